@@ -0,0 +1,93 @@
+package it.demo.fabrick.jmh;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import it.demo.fabrick.dto.ListaTransactionDto;
+
+/**
+ * Sample messages shared by the benchmarks, same layout as CONTO_CONFIGURATION in data.sql.
+ */
+final class BenchmarkData {
+
+	static final String BON_MESSAGE = "BON"
+			+ String.format("%50s", "John Doe")
+			+ "IT23A0336844430152923804660"
+			+ "SELBIT2BXXX"
+			+ String.format("%500s", "Payment invoice 75/2017")
+			+ String.format("%20s", "10.50")
+			+ "EUR"
+			+ "SHA";
+
+	static final String BON_CONFIGURATION = "OPERAZIONE=3;creditor-name=50;accountCode=27;bicCode=11;"
+			+ "description=500;amount=NUM20;currency=3;feeType=3;";
+
+	static final String LIS_MESSAGE = "LIS2024-01-012024-01-31";
+
+	static final String LIS_CONFIGURATION = "OPERAZIONE=3;start-date=10;end-date=10;";
+
+	static final String LIS_URL = "https://sandbox.platfr.io/api/gbs/banking/v4.0/accounts/{account-number}"
+			+ "/transactions?fromAccountingDate={start-date}&toAccountingDate={end-date}";
+
+	static final String ACCOUNT_ID = "14537780";
+
+	static final String BALANCE_JSON = "{\"status\":\"OK\",\"error\":[],\"payload\":{\"date\":\"2024-01-31\","
+			+ "\"balance\":29.64,\"availableBalance\":29.64,\"currency\":\"EUR\"}}";
+
+	/**
+	 * Keep the it.demo loggers (DEBUG in logging-extend.xml) quiet,
+	 * so the benchmarks measure the code and not the console appender.
+	 */
+	static void quietLogging() {
+		((Logger) LoggerFactory.getLogger("it.demo")).setLevel(Level.WARN);
+	}
+
+	/**
+	 * @param size number of transactions
+	 * @return transactions with distinct amounts and descriptions: "Payment invoice <i>", amount <i>.50 EUR
+	 */
+	static List<ListaTransactionDto> transactions(int size) {
+		List<ListaTransactionDto> transactions = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			ListaTransactionDto transaction = new ListaTransactionDto();
+			transaction.setTransactionId("TX" + i);
+			transaction.setOperationId("OP" + i);
+			transaction.setAccountingDate("2024-01-31");
+			transaction.setValueDate("2024-01-31");
+			transaction.setAmount(new BigDecimal(i + ".50"));
+			transaction.setCurrency("EUR");
+			transaction.setDescription("Payment invoice " + i);
+			transactions.add(transaction);
+		}
+		return transactions;
+	}
+
+	/**
+	 * @param size number of transactions
+	 * @return the Fabrick transactions list response
+	 */
+	static String transactionsJson(int size) {
+		StringBuilder builder = new StringBuilder("{\"status\":\"OK\",\"error\":[],\"payload\":{\"list\":[");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				builder.append(',');
+			}
+			builder.append("{\"transactionId\":\"TX").append(i)
+					.append("\",\"operationId\":\"OP").append(i)
+					.append("\",\"accountingDate\":\"2024-01-31\",\"valueDate\":\"2024-01-31\",")
+					.append("\"type\":{\"enumeration\":\"GBS_TRANSACTION_TYPE\",\"value\":\"GBS_ACCOUNT_TRANSACTION_TYPE_0034\"},")
+					.append("\"amount\":-").append(i).append(".50,\"currency\":\"EUR\",")
+					.append("\"description\":\"BA JOHN DOE PAYMENT INVOICE ").append(i).append("\"}");
+		}
+		return builder.append("]}}").toString();
+	}
+
+	private BenchmarkData() {
+		// Utility class - prevent instantiation
+	}
+}
@@ -0,0 +1,30 @@
+package it.demo.fabrick.jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the jmh profile. Every benchmark runs with the GC profiler,
+ * so the results include the allocation rate (gc.alloc.rate.norm = bytes allocated per operation).
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException {
+
+		String include = args.length > 0 ? args[0] : ".*";
+
+		Options options = new OptionsBuilder()
+				.include(include)
+				.addProfiler(GCProfiler.class)
+				.build();
+
+		new Runner(options).run();
+	}
+
+	private BenchmarkRunner() {
+		// Utility class - prevent instantiation
+	}
+}
@@ -0,0 +1,102 @@
+package it.demo.fabrick.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import it.demo.fabrick.dto.BalanceDto;
+import it.demo.fabrick.dto.BonificoRequestDto;
+import it.demo.fabrick.dto.TransactionDto;
+import it.demo.fabrick.exception.ExceptionMessageIn;
+import it.demo.fabrick.utils.MessageLayout;
+
+/**
+ * Jackson mapping of the Fabrick payloads, as done by the verticles.
+ * BonificoRequestDto is only written (it has no default constructor, it is never read).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonBenchmark {
+
+	private ObjectMapper mapper;
+	private BonificoRequestDto bonificoRequest;
+	private BalanceDto balanceDto;
+
+	/**
+	 * Transactions list response, parameterized by size.
+	 */
+	@State(Scope.Benchmark)
+	public static class Transactions {
+
+		@Param({ "10", "1000" })
+		private int size;
+
+		private String json;
+		private TransactionDto dto;
+
+		@Setup
+		public void setup() throws JsonProcessingException {
+			json = BenchmarkData.transactionsJson(size);
+			dto = new ObjectMapper().readValue(json, TransactionDto.class);
+		}
+	}
+
+	@Setup
+	public void setup() throws ExceptionMessageIn, JsonProcessingException {
+		BenchmarkData.quietLogging();
+
+		mapper = new ObjectMapper();
+		bonificoRequest = new BonificoRequestDto(
+				MessageLayout.compile(BenchmarkData.BON_CONFIGURATION).wrap(BenchmarkData.BON_MESSAGE));
+		balanceDto = mapper.readValue(BenchmarkData.BALANCE_JSON, BalanceDto.class);
+	}
+
+	@Benchmark
+	public String writeBonificoRequest() throws JsonProcessingException {
+		return mapper.writeValueAsString(bonificoRequest);
+	}
+
+	@Benchmark
+	public TransactionDto readTransactions(Transactions transactions) throws JsonProcessingException {
+		return mapper.readValue(transactions.json, TransactionDto.class);
+	}
+
+	@Benchmark
+	public String writeTransactions(Transactions transactions) throws JsonProcessingException {
+		return mapper.writeValueAsString(transactions.dto);
+	}
+
+	@Benchmark
+	public String roundTripTransactionList(Transactions transactions) throws JsonProcessingException {
+		// ListaTransazioniVerticle: read the whole response, write back payload.list
+		TransactionDto transaction = mapper.readValue(transactions.json, TransactionDto.class);
+		return mapper.writeValueAsString(transaction.getPayload().getList());
+	}
+
+	@Benchmark
+	public BalanceDto readBalance() throws JsonProcessingException {
+		return mapper.readValue(BenchmarkData.BALANCE_JSON, BalanceDto.class);
+	}
+
+	@Benchmark
+	public String writeBalance() throws JsonProcessingException {
+		return mapper.writeValueAsString(balanceDto);
+	}
+}
@@ -0,0 +1,91 @@
+package it.demo.fabrick.jmh;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import it.demo.fabrick.exception.ExceptionMessageIn;
+import it.demo.fabrick.utils.DecodedMessage;
+import it.demo.fabrick.utils.MessageLayout;
+import it.demo.fabrick.utils.MessageParserUtil;
+import it.demo.fabrick.utils.UrlTemplate;
+
+/**
+ * Parsing and routing hot path of GestisciRequestVerticle: MessageParserUtil against the compiled
+ * MessageLayout / UrlTemplate reused by the verticle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageParserBenchmark {
+
+	private Map<String, String> bonConfiguration;
+	private MessageLayout bonLayout;
+	private Map<String, String> lisParameters;
+	private DecodedMessage lisMessage;
+	private String lisUrl;
+	private UrlTemplate lisUrlTemplate;
+
+	@Setup
+	public void setup() throws ExceptionMessageIn {
+		BenchmarkData.quietLogging();
+
+		bonConfiguration = MessageParserUtil.parseConfiguration(BenchmarkData.BON_CONFIGURATION);
+		bonLayout = MessageLayout.compile(BenchmarkData.BON_CONFIGURATION);
+
+		MessageLayout lisLayout = MessageLayout.compile(BenchmarkData.LIS_CONFIGURATION);
+		lisParameters = lisLayout.decode(BenchmarkData.LIS_MESSAGE);
+		lisMessage = lisLayout.wrap(BenchmarkData.LIS_MESSAGE);
+		lisUrl = BenchmarkData.LIS_URL.replace("{account-number}", BenchmarkData.ACCOUNT_ID);
+		lisUrlTemplate = UrlTemplate.compile(BenchmarkData.LIS_URL, Map.of("account-number", BenchmarkData.ACCOUNT_ID));
+	}
+
+	@Benchmark
+	public Map<String, String> parseConfiguration() {
+		return MessageParserUtil.parseConfiguration(BenchmarkData.BON_CONFIGURATION);
+	}
+
+	@Benchmark
+	public Map<String, String> decodeMessage() throws ExceptionMessageIn {
+		// the layout is compiled from the configuration map on every call
+		return MessageParserUtil.decodeMessage(BenchmarkData.BON_MESSAGE, bonConfiguration);
+	}
+
+	@Benchmark
+	public Map<String, String> decodeCompiledLayout() throws ExceptionMessageIn {
+		return bonLayout.decode(BenchmarkData.BON_MESSAGE);
+	}
+
+	@Benchmark
+	public void wrapDecodedMessage(Blackhole blackhole) throws ExceptionMessageIn {
+		// fields read by BonificoVerticle for the request and the log
+		DecodedMessage decoded = bonLayout.wrap(BenchmarkData.BON_MESSAGE);
+		for (int i = 0; i < decoded.size(); i++) {
+			blackhole.consume(decoded.get(i));
+		}
+	}
+
+	@Benchmark
+	public String substituteUrlParameters() {
+		return MessageParserUtil.substituteUrlParameters(lisParameters, lisUrl);
+	}
+
+	@Benchmark
+	public String expandUrlTemplate() {
+		return lisUrlTemplate.expand(lisMessage);
+	}
+}
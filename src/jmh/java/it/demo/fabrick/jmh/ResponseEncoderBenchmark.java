@@ -0,0 +1,62 @@
+package it.demo.fabrick.jmh;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.vertx.core.buffer.Buffer;
+import it.demo.fabrick.utils.ResponseEncoder;
+import it.demo.fabrick.utils.SocketFraming;
+import it.demo.fabrick.utils.WireCodec;
+
+/**
+ * Socket success reply: String.format padding + charset encoding against ResponseEncoder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseEncoderBenchmark {
+
+	private static final String CHARSET = "cp280";
+
+	@Param({ "40", "2000" })
+	private int payloadLength;
+
+	private String payload;
+	private SocketFraming framing;
+	private ResponseEncoder encoder;
+
+	@Setup
+	public void setup() {
+		payload = "x".repeat(payloadLength);
+		WireCodec codec = WireCodec.forName(CHARSET);
+		framing = new SocketFraming(SocketFraming.Mode.DELIMITER, SocketFraming.DEFAULT_DELIMITER,
+				Charset.forName(CHARSET), 65536);
+		encoder = new ResponseEncoder(codec, framing, ResponseEncoder.DEFAULT_MIN_LENGTH);
+	}
+
+	@Benchmark
+	public Buffer stringFormat() {
+		String stringOut = String.format("%-" + ResponseEncoder.DEFAULT_MIN_LENGTH + "s", "0" + payload);
+		return framing.frame(Buffer.buffer(stringOut, CHARSET));
+	}
+
+	@Benchmark
+	public Buffer responseEncoder() {
+		return encoder.success("", payload);
+	}
+}
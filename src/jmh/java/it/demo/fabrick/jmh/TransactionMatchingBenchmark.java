@@ -0,0 +1,61 @@
+package it.demo.fabrick.jmh;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.demo.fabrick.dto.ListaTransactionDto;
+import it.demo.fabrick.utils.TransactionValidationUtil;
+
+/**
+ * Validation enquiry of BonificoVerticle: search of the transfer in the transactions of the day,
+ * worst case (the matching transaction is the last one, or there is none).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionMatchingBenchmark {
+
+	@Param({ "10", "1000", "100000" })
+	private int size;
+
+	private List<ListaTransactionDto> transactions;
+	private BigDecimal lastAmount;
+	private String lastDescription;
+
+	@Setup
+	public void setup() {
+		BenchmarkData.quietLogging();
+
+		transactions = BenchmarkData.transactions(size);
+		lastAmount = new BigDecimal((size - 1) + ".50");
+		lastDescription = "Payment invoice " + (size - 1);
+	}
+
+	@Benchmark
+	public ListaTransactionDto matchLast() {
+		return TransactionValidationUtil.findMatchingTransaction(transactions, lastAmount, "EUR", lastDescription,
+				"John Doe");
+	}
+
+	@Benchmark
+	public ListaTransactionDto noMatch() {
+		return TransactionValidationUtil.findMatchingTransaction(transactions, lastAmount, "EUR", "Not found",
+				"John Doe");
+	}
+}
@@ -0,0 +1,70 @@
+package it.demo.fabrick.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.vertx.core.buffer.Buffer;
+import it.demo.fabrick.utils.WireCodec;
+
+/**
+ * Socket charset codec: JDK cp280 charset against the table driven WireCodec,
+ * decoding a BON request frame and encoding a 500 chars reply.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireCodecBenchmark {
+
+	private static final String CHARSET = "cp280";
+
+	private WireCodec codec;
+	private Buffer requestFrame;
+	private String reply;
+
+	@Setup
+	public void setup() {
+		codec = WireCodec.forName(CHARSET);
+		requestFrame = Buffer.buffer(BenchmarkData.BON_MESSAGE, CHARSET);
+		reply = String.format("%-500s", "0Transfer executed - Transaction ID: 1331714087");
+	}
+
+	@Benchmark
+	public String decodeJdkCharset() {
+		return requestFrame.toString(CHARSET);
+	}
+
+	@Benchmark
+	public String decodeWireCodec() {
+		return codec.decode(requestFrame, 0, requestFrame.length());
+	}
+
+	@Benchmark
+	public char decodeWireCodecView() {
+		// fixed-width fields read straight from the buffer, no String for the whole frame
+		CharSequence frame = codec.decode(requestFrame);
+		return frame.charAt(frame.length() - 1);
+	}
+
+	@Benchmark
+	public Buffer encodeJdkCharset() {
+		return Buffer.buffer(reply, CHARSET);
+	}
+
+	@Benchmark
+	public Buffer encodeWireCodec() {
+		return codec.encode(reply);
+	}
+}
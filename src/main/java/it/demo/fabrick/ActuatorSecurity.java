@@ -7,6 +7,8 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.web.SecurityFilterChain;
 
+import it.demo.fabrick.config.ConfigurationEndpoint;
+
 @Configuration(proxyBeanMethods = false)
 @EnableWebSecurity
 public class ActuatorSecurity {
@@ -14,7 +16,9 @@ public class ActuatorSecurity {
 	@Bean
 	public SecurityFilterChain actuatorSecurityFilterChain(HttpSecurity http) throws Exception {
 		http.securityMatcher(EndpointRequest.toAnyEndpoint())
-			.authorizeHttpRequests(authorize -> authorize.anyRequest().permitAll());
+			.authorizeHttpRequests(authorize -> authorize.anyRequest().permitAll())
+			// POST /actuator/configuration is called by scripts, with no session to protect
+			.csrf(csrf -> csrf.ignoringRequestMatchers(EndpointRequest.to(ConfigurationEndpoint.class)));
 
 		return http.build();
 	}
@@ -1,22 +1,31 @@
 package it.demo.fabrick;
 
-import java.util.List;
-
 import jakarta.annotation.PostConstruct;
 
+import org.springframework.beans.factory.ListableBeanFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 
 import io.reactiverse.contextual.logging.ContextualData;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Verticle;
 import io.vertx.core.Vertx;
 import io.vertx.core.VertxOptions;
 import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+import it.demo.fabrick.config.OperationConfig;
+import it.demo.fabrick.dto.OperationRequest;
+import it.demo.fabrick.dto.OperationResult;
+import it.demo.fabrick.utils.ChunkedReply;
+import it.demo.fabrick.utils.Deadline;
+import it.demo.fabrick.utils.LocalMessageCodec;
+import it.demo.fabrick.utils.VerticleDeployment;
 import lombok.extern.slf4j.Slf4j;
 
 @PropertySource("${applicationPropertiesPath:file:/data/application.properties}")
@@ -26,12 +35,27 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class ContoDemoApplication {
 
-    @Autowired
-	private List<Verticle> verticleList;
+	private static final long DEFAULT_SEND_TIMEOUT_MS = 120000;
+
+	private static final String[] PROPAGATED_KEYS = { "requestId", Deadline.KEY, ChunkedReply.KEY };
+
+	// the verticles are prototype beans: every instance deployed is a new bean, see VerticleDeployment
+	@Autowired
+	private ListableBeanFactory beanFactory;
+
+	@Autowired
+	private Environment environment;
 
 	@Value("${vertx.eventLoopExecuteTime:2000000000}")
 	private String eventLoopExecuteTime;
 
+	@Value("${vertx.preferNativeTransport:true}")
+	private boolean preferNativeTransport;
+
+	// 0 = one instance per available core, default of verticle.socketServerVerticle.instances
+	@Value("${socket.instances:0}")
+	private int socketInstances;
+
     public static void main(String[] args) {
 
         // lancio di SpringBoot
@@ -43,14 +67,28 @@ public class ContoDemoApplication {
 
 		final VertxOptions vertOptions = new VertxOptions();
 		vertOptions.setMaxEventLoopExecuteTime(Long.parseLong(eventLoopExecuteTime));
+		vertOptions.setPreferNativeTransport(preferNativeTransport);
 		Vertx vertx = Vertx.vertx(vertOptions);
 
+		if (vertx.isNativeTransportEnabled()) {
+			log.info("Vert.x native transport enabled");
+		} else if (preferNativeTransport) {
+			log.warn("Vert.x native transport not available, using NIO", vertx.unavailableNativeTransportCause());
+		}
+
         configureInterceptor(vertx);
+		registerCodecs(vertx);
 
         // i deploy sono asincroni
-		verticleList.stream().forEach(verticle -> {
-			vertx.deployVerticle(verticle);
-		});
+		for (String beanName : beanFactory.getBeanNamesForType(Verticle.class)) {
+
+			int defaultInstances = beanName.equals("socketServerVerticle") ? socketInstances : 1;
+			DeploymentOptions options = VerticleDeployment.options(environment, beanName, defaultInstances);
+			log.info("Deploying {} - instances: {}, threading model: {}", beanName, options.getInstances(),
+					options.getThreadingModel());
+			vertx.deployVerticle(() -> beanFactory.getBean(beanName, Verticle.class), options).onFailure(
+					e -> log.error("Deployment of {} failed", beanName, e));
+		}
 
         // per fare in modo che quando venga chiuso SpringBoot, venga chiuso anche il contesto vert.x e tutti i verticle
         // deplotati altrimenti rimangono attivi
@@ -66,23 +104,42 @@ public class ContoDemoApplication {
 
     }
 
+	/**
+	 * @return delivery options with the remaining budget of the current request as timeout (120 s at most)
+	 */
     public static DeliveryOptions getDefaultDeliverOptions(){
-        return new DeliveryOptions().setSendTimeout(120000);
+		return new DeliveryOptions().setSendTimeout(Deadline.timeoutMs(DEFAULT_SEND_TIMEOUT_MS));
     }
 
+	/**
+	 * Requests, configurations and results are handed over between the verticles by reference, see LocalMessageCodec.
+	 */
+	private void registerCodecs(Vertx vertx) {
+		EventBus eventBus = vertx.eventBus();
+		eventBus.registerCodec(new LocalMessageCodec<>());
+		eventBus.registerDefaultCodec(OperationRequest.class, LocalMessageCodec.forType(OperationRequest.class));
+		eventBus.registerDefaultCodec(OperationConfig.class, LocalMessageCodec.forType(OperationConfig.class));
+		eventBus.registerDefaultCodec(OperationResult.class, LocalMessageCodec.forType(OperationResult.class));
+	}
+
     private void configureInterceptor(Vertx vertx) {
+        // requestId, deadline and page size of the request follow it from verticle to verticle
         vertx.eventBus().addOutboundInterceptor(event -> {
-			String requestId = ContextualData.get("requestId");
-			if (requestId != null) {
-				event.message().headers().add("requestId", requestId);
+			for (String key : PROPAGATED_KEYS) {
+				String value = ContextualData.get(key);
+				if (value != null) {
+					event.message().headers().add(key, value);
+				}
 			}
 			event.next();
 		});
 		
 		vertx.eventBus().addInboundInterceptor(event -> {
-			String requestId = event.message().headers().get("requestId");
-			if (requestId != null) {
-				ContextualData.put("requestId", requestId);
+			for (String key : PROPAGATED_KEYS) {
+				String value = event.message().headers().get(key);
+				if (value != null) {
+					ContextualData.put(key, value);
+				}
 			}
 			event.next();
 		});
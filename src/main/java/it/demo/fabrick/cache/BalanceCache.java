@@ -0,0 +1,171 @@
+package it.demo.fabrick.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.demo.fabrick.dto.BalanceDto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache of the balance (parsed Fabrick response) by account, shared by the SaldoVerticle instances.
+ * Lifecycle of an entry, by age:
+ * - up to ttlMs - refreshAheadMs: fresh, served as it is
+ * - up to ttlMs: fresh, served as it is and refreshed in background by the first reader (refresh ahead)
+ * - up to ttlMs + maxStaleMs: stale, served flagged as stale and refreshed in background (stale while revalidate),
+ *   so a slow or unavailable Fabrick does not stop the balance requests
+ * - older: not served, the balance is read from Fabrick
+ * A money transfer invalidates the entry of its account; a refresh started before the invalidation is discarded.
+ * ttlMs 0 disables the cache.
+ * Metrics:
+ * - conto.cache.requests{cache=balance, result=hit|stale|miss}
+ */
+@Component
+@Slf4j
+public class BalanceCache {
+
+	public enum Status {
+		HIT,
+		STALE,
+		MISS
+	}
+
+	/**
+	 * Result of a lookup: the balance to serve (null for a miss) and whether the caller has to refresh it.
+	 */
+	@Getter
+	@AllArgsConstructor
+	public static final class Lookup {
+		private final Status status;
+		private final BalanceDto balance;
+		// epoch millis of the Fabrick response
+		private final long loadedAt;
+		private final boolean refresh;
+		// to be passed back to put(), the result is discarded if the account was invalidated in between
+		private final long generation;
+	}
+
+	private static final class Entry {
+		private final BalanceDto balance;
+		private final long loadedAt;
+		private final AtomicBoolean refreshing = new AtomicBoolean();
+
+		private Entry(BalanceDto balance, long loadedAt) {
+			this.balance = balance;
+			this.loadedAt = loadedAt;
+		}
+	}
+
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+	private final AtomicLong generation = new AtomicLong();
+	private final long ttlMs;
+	private final long refreshAheadMs;
+	private final long maxStaleMs;
+	private final LongSupplier clock;
+	private final Counter hits;
+	private final Counter stale;
+	private final Counter misses;
+
+	@Autowired
+	public BalanceCache(MeterRegistry meterRegistry,
+			@Value("${saldo.cache.ttlMs:5000}") long ttlMs,
+			@Value("${saldo.cache.refreshAheadMs:1000}") long refreshAheadMs,
+			@Value("${saldo.cache.maxStaleMs:60000}") long maxStaleMs) {
+		this(meterRegistry, ttlMs, refreshAheadMs, maxStaleMs, System::currentTimeMillis);
+	}
+
+	public BalanceCache(MeterRegistry meterRegistry, long ttlMs, long refreshAheadMs, long maxStaleMs, LongSupplier clock) {
+		this.ttlMs = ttlMs;
+		this.refreshAheadMs = Math.min(refreshAheadMs, ttlMs);
+		this.maxStaleMs = maxStaleMs;
+		this.clock = clock;
+		this.hits = counter(meterRegistry, "hit");
+		this.stale = counter(meterRegistry, "stale");
+		this.misses = counter(meterRegistry, "miss");
+	}
+
+	private static Counter counter(MeterRegistry meterRegistry, String result) {
+		return Counter.builder("conto.cache.requests")
+				.description("Lookups of the cache by result")
+				.tag("cache", "balance")
+				.tag("result", result)
+				.register(meterRegistry);
+	}
+
+	/**
+	 * @param account account number
+	 * @return the cached balance and what to do with it; refresh is true for a single caller at a time
+	 */
+	public Lookup lookup(String account) {
+
+		long currentGeneration = generation.get();
+		Entry entry = ttlMs > 0 ? entries.get(account) : null;
+		long age = entry == null ? Long.MAX_VALUE : clock.getAsLong() - entry.loadedAt;
+
+		if (entry == null || age >= ttlMs + maxStaleMs) {
+			misses.increment();
+			return new Lookup(Status.MISS, null, 0, false, currentGeneration);
+		}
+		if (age < ttlMs - refreshAheadMs) {
+			hits.increment();
+			return new Lookup(Status.HIT, entry.balance, entry.loadedAt, false, currentGeneration);
+		}
+
+		boolean refresh = entry.refreshing.compareAndSet(false, true);
+		if (age < ttlMs) {
+			hits.increment();
+			return new Lookup(Status.HIT, entry.balance, entry.loadedAt, refresh, currentGeneration);
+		}
+		stale.increment();
+		return new Lookup(Status.STALE, entry.balance, entry.loadedAt, refresh, currentGeneration);
+	}
+
+	/**
+	 * @param account account number
+	 * @param balance balance read from Fabrick
+	 * @param lookupGeneration generation of the lookup that triggered the read
+	 */
+	public void put(String account, BalanceDto balance, long lookupGeneration) {
+
+		if (ttlMs <= 0) {
+			return;
+		}
+		if (generation.get() != lookupGeneration) {
+			log.debug("Balance read before an invalidation, not cached");
+			return;
+		}
+		entries.put(account, new Entry(balance, clock.getAsLong()));
+	}
+
+	/**
+	 * A failed background refresh: the entry is served as it is until a new refresh succeeds.
+	 *
+	 * @param account account number
+	 */
+	public void refreshFailed(String account) {
+		Entry entry = entries.get(account);
+		if (entry != null) {
+			entry.refreshing.set(false);
+		}
+	}
+
+	/**
+	 * @param account account number, e.g. after a money transfer
+	 */
+	public void invalidate(String account) {
+		generation.incrementAndGet();
+		if (entries.remove(account) != null) {
+			log.debug("Balance cache invalidated");
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package it.demo.fabrick.cache;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.demo.fabrick.dto.ListaTransactionDto;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache of the transactions by account and accounting day, shared by the ListaTransazioniVerticle instances.
+ * Only closed days are cached: a day is closed once it is at least closedAfterDays before today (Europe/Rome),
+ * its transactions do not change anymore and the entry never expires. The open days are always read from Fabrick.
+ * A day with no transactions is cached too, as an empty list.
+ * Size bound: least recently used days are evicted when the cached transactions exceed maxTransactions
+ * (an empty day counts as one). maxTransactions 0 disables the cache.
+ * Metrics:
+ * - conto.cache.requests{cache=transactions, result=hit|miss}: closed days looked up
+ * - conto.cache.size{cache=transactions}: transactions cached
+ */
+@Component
+@Slf4j
+public class TransactionCache {
+
+	private static final ZoneId ACCOUNTING_ZONE = ZoneId.of("Europe/Rome");
+
+	private record DayKey(String account, LocalDate day) {
+	}
+
+	private final int closedAfterDays;
+	private final long maxTransactions;
+	private final Clock clock;
+	private final Counter hits;
+	private final Counter misses;
+
+	// access ordered: the eldest entry is the least recently used day
+	private final LinkedHashMap<DayKey, List<ListaTransactionDto>> days = new LinkedHashMap<>(256, 0.75f, true);
+	private long size;
+
+	@Autowired
+	public TransactionCache(MeterRegistry meterRegistry,
+			@Value("${lista.cache.closedAfterDays:3}") int closedAfterDays,
+			@Value("${lista.cache.maxTransactions:100000}") long maxTransactions) {
+		this(meterRegistry, closedAfterDays, maxTransactions, Clock.system(ACCOUNTING_ZONE));
+	}
+
+	public TransactionCache(MeterRegistry meterRegistry, int closedAfterDays, long maxTransactions, Clock clock) {
+		this.closedAfterDays = closedAfterDays;
+		this.maxTransactions = maxTransactions;
+		this.clock = clock;
+		this.hits = counter(meterRegistry, "hit");
+		this.misses = counter(meterRegistry, "miss");
+		Gauge.builder("conto.cache.size", this, TransactionCache::size)
+				.description("Entries cached, for transactions the number of transactions")
+				.tag("cache", "transactions")
+				.register(meterRegistry);
+	}
+
+	private static Counter counter(MeterRegistry meterRegistry, String result) {
+		return Counter.builder("conto.cache.requests")
+				.description("Lookups of the cache by result")
+				.tag("cache", "transactions")
+				.tag("result", result)
+				.register(meterRegistry);
+	}
+
+	/**
+	 * @return the current accounting day
+	 */
+	public LocalDate today() {
+		return LocalDate.now(clock);
+	}
+
+	/**
+	 * @return the first day not closed yet, the days before it can be cached
+	 */
+	public LocalDate firstOpenDay() {
+		return today().minusDays(closedAfterDays - 1L);
+	}
+
+	/**
+	 * @param account account number
+	 * @param day closed accounting day
+	 * @return the transactions of the day, null if not cached
+	 */
+	public List<ListaTransactionDto> get(String account, LocalDate day) {
+
+		if (maxTransactions <= 0) {
+			misses.increment();
+			return null;
+		}
+		List<ListaTransactionDto> transactions;
+		synchronized (days) {
+			transactions = days.get(new DayKey(account, day));
+		}
+		(transactions == null ? misses : hits).increment();
+		return transactions;
+	}
+
+	/**
+	 * @param account account number
+	 * @param day accounting day, ignored if not closed
+	 * @param transactions all the transactions of the day
+	 */
+	public void put(String account, LocalDate day, List<ListaTransactionDto> transactions) {
+
+		if (maxTransactions <= 0 || !day.isBefore(firstOpenDay())) {
+			return;
+		}
+		List<ListaTransactionDto> copy = List.copyOf(transactions);
+		synchronized (days) {
+			List<ListaTransactionDto> previous = days.put(new DayKey(account, day), copy);
+			size += weight(copy) - (previous == null ? 0 : weight(previous));
+
+			var eldest = days.entrySet().iterator();
+			while (size > maxTransactions && eldest.hasNext()) {
+				Map.Entry<DayKey, List<ListaTransactionDto>> evicted = eldest.next();
+				eldest.remove();
+				size -= weight(evicted.getValue());
+				log.debug("Transactions of {} evicted from the cache", evicted.getKey().day());
+			}
+		}
+	}
+
+	/**
+	 * @return the transactions cached
+	 */
+	public long size() {
+		synchronized (days) {
+			return size;
+		}
+	}
+
+	private static int weight(List<ListaTransactionDto> transactions) {
+		return Math.max(1, transactions.size());
+	}
+}
@@ -0,0 +1,138 @@
+package it.demo.fabrick.client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Factory of the WebClient used to call the Fabrick APIs.
+ * Every verticle instance creates its client once in start() and closes it in stop(): the connections are kept alive
+ * and reused by the following requests, so a steady flow of requests does not pay a TCP connection and
+ * a TLS handshake per call. HTTP/2 is negotiated with ALPN, falling back to HTTP/1.1 (with optional pipelining).
+ * Configuration, properties prefixed with fabrick.client:
+ * - maxPoolSize: HTTP/1.1 connections per client, maxWaitQueueSize: requests waiting for a connection (-1 = unbounded)
+ * - http2: HTTP/2 over ALPN, http2MaxPoolSize: HTTP/2 connections per client (every one multiplexes the requests)
+ * - keepAlive, keepAliveTimeoutSeconds: idle time before a pooled connection is closed
+ * - connectTimeoutMs, pipelining, pipeliningLimit
+ * Metrics, summed over the clients of all the verticle instances:
+ * - conto.http.client.connections.open: connections currently open to Fabrick
+ * - conto.http.client.connections.created: connections opened since the start, flat when the pool is warm
+ */
+@Component
+@Slf4j
+public class FabrickClients {
+
+	private static final String UPSTREAM = "fabrick";
+
+	@Value("${fabrick.client.maxPoolSize:20}")
+	private int maxPoolSize;
+
+	@Value("${fabrick.client.maxWaitQueueSize:-1}")
+	private int maxWaitQueueSize;
+
+	@Value("${fabrick.client.http2:true}")
+	private boolean http2;
+
+	@Value("${fabrick.client.http2MaxPoolSize:1}")
+	private int http2MaxPoolSize;
+
+	@Value("${fabrick.client.keepAlive:true}")
+	private boolean keepAlive;
+
+	@Value("${fabrick.client.keepAliveTimeoutSeconds:60}")
+	private int keepAliveTimeoutSeconds;
+
+	@Value("${fabrick.client.connectTimeoutMs:5000}")
+	private int connectTimeoutMs;
+
+	@Value("${fabrick.client.pipelining:false}")
+	private boolean pipelining;
+
+	@Value("${fabrick.client.pipeliningLimit:10}")
+	private int pipeliningLimit;
+
+	private final MeterRegistry meterRegistry;
+	private final AtomicInteger openConnections = new AtomicInteger();
+	private Counter createdConnections;
+
+	public FabrickClients(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@PostConstruct
+	void registerMetrics() {
+
+		Gauge.builder("conto.http.client.connections.open", openConnections, AtomicInteger::get)
+				.description("Connections currently open to the upstream")
+				.tag("upstream", UPSTREAM)
+				.register(meterRegistry);
+		createdConnections = Counter.builder("conto.http.client.connections.created")
+				.description("Connections opened to the upstream")
+				.tag("upstream", UPSTREAM)
+				.register(meterRegistry);
+	}
+
+	/**
+	 * @return the options of the clients, built from the fabrick.client properties
+	 */
+	public WebClientOptions options() {
+
+		WebClientOptions options = new WebClientOptions()
+				.setKeepAlive(keepAlive)
+				.setKeepAliveTimeout(keepAliveTimeoutSeconds)
+				.setConnectTimeout(connectTimeoutMs)
+				.setPipelining(pipelining)
+				.setPipeliningLimit(pipeliningLimit);
+		if (http2) {
+			options.setProtocolVersion(HttpVersion.HTTP_2)
+					.setUseAlpn(true)
+					.setHttp2KeepAliveTimeout(keepAliveTimeoutSeconds);
+		}
+		return options;
+	}
+
+	/**
+	 * @return the connection pool options of the clients
+	 */
+	public PoolOptions poolOptions() {
+		return new PoolOptions()
+				.setHttp1MaxSize(maxPoolSize)
+				.setHttp2MaxSize(http2MaxPoolSize)
+				.setMaxWaitQueueSize(maxWaitQueueSize);
+	}
+
+	/**
+	 * To be called in the start() of the verticle, the client is bound to the verticle context.
+	 *
+	 * @param vertx Vert.x instance of the verticle
+	 * @return a new pooled client, to be closed in the stop() of the verticle
+	 */
+	public WebClient create(Vertx vertx) {
+
+		WebClientOptions options = options();
+		HttpClient httpClient = vertx.httpClientBuilder()
+				.with(options)
+				.with(poolOptions())
+				.withConnectHandler(connection -> {
+					createdConnections.increment();
+					openConnections.incrementAndGet();
+					log.debug("Connection opened to {} - {}", UPSTREAM, connection.remoteAddress());
+					connection.closeHandler(v -> openConnections.decrementAndGet());
+				})
+				.build();
+		return WebClient.wrap(httpClient, options);
+	}
+}
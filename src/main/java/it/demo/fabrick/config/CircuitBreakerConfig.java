@@ -0,0 +1,31 @@
+package it.demo.fabrick.config;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Thresholds of the circuit breaker of an upstream address (CONTO_INDIRIZZI.CB_* columns):
+ * - failureRate: % of failed calls in the window that opens the breaker, 0 = not checked
+ * - slowCallMs / slowCallRate: % of calls slower than slowCallMs that opens the breaker, slowCallMs 0 = not checked
+ * - openMs: time the breaker stays open before letting the half-open probes through
+ * With no threshold checked the breaker is disabled. Immutable.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class CircuitBreakerConfig {
+
+	public static final CircuitBreakerConfig DISABLED = new CircuitBreakerConfig(0, 0, 0, 0);
+
+	private final int failureRate;
+	private final int slowCallMs;
+	private final int slowCallRate;
+	private final int openMs;
+
+	public boolean isEnabled() {
+		return failureRate > 0 || slowCallMs > 0;
+	}
+}
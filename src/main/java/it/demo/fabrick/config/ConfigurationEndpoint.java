@@ -0,0 +1,55 @@
+package it.demo.fabrick.config;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Actuator endpoint of the configuration snapshot:
+ * - GET /actuator/configuration: version and operations of the current snapshot
+ * - POST /actuator/configuration: reload the configuration from database
+ */
+@Component
+@Endpoint(id = "configuration")
+@Slf4j
+public class ConfigurationEndpoint {
+
+	private static final long RELOAD_TIMEOUT_SECONDS = 30;
+
+	@Autowired
+	private ConfigurationHolder configurationHolder;
+
+	@ReadOperation
+	public Map<String, Object> snapshot() {
+		return describe(configurationHolder.get());
+	}
+
+	@WriteOperation
+	public Map<String, Object> reload() throws InterruptedException, ExecutionException, TimeoutException {
+
+		log.info("Configuration reload requested");
+		ConfigurationSnapshot snapshot = configurationHolder.reload().toCompletableFuture()
+				.get(RELOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		return describe(snapshot);
+	}
+
+	private static Map<String, Object> describe(ConfigurationSnapshot snapshot) {
+
+		Map<String, Object> description = new LinkedHashMap<>();
+		description.put("loaded", snapshot != null);
+		description.put("version", snapshot == null ? null : snapshot.getVersion());
+		description.put("operations", snapshot == null ? List.of() : snapshot.getOperations());
+		return description;
+	}
+}
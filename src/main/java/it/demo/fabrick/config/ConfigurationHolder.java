@@ -0,0 +1,66 @@
+package it.demo.fabrick.config;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Holder of the current configuration snapshot, shared by all the verticles.
+ * The snapshot is loaded by ConfigVerticle; readers get it with a single volatile read, with no locks.
+ * A reload replaces the whole snapshot with a single reference swap: a request keeps the OperationConfig
+ * it has read until it completes, the following requests see the new snapshot.
+ */
+@Component
+public class ConfigurationHolder {
+
+	private final AtomicReference<ConfigurationSnapshot> snapshot = new AtomicReference<>();
+
+	private volatile Supplier<CompletionStage<ConfigurationSnapshot>> reloader;
+
+	/**
+	 * @return the current snapshot, null until the configuration has been loaded
+	 */
+	public ConfigurationSnapshot get() {
+		return snapshot.get();
+	}
+
+	/**
+	 * @param operation operation code
+	 * @return the compiled configuration, null if not loaded yet or not in the snapshot
+	 */
+	public OperationConfig getOperation(String operation) {
+		ConfigurationSnapshot current = snapshot.get();
+		return current == null ? null : current.getOperation(operation);
+	}
+
+	/**
+	 * @param newSnapshot snapshot replacing the current one
+	 * @return the snapshot replaced, null if none
+	 */
+	public ConfigurationSnapshot publish(ConfigurationSnapshot newSnapshot) {
+		return snapshot.getAndSet(newSnapshot);
+	}
+
+	/**
+	 * @param reloader reloads the configuration from database, registered by ConfigVerticle
+	 */
+	public void setReloader(Supplier<CompletionStage<ConfigurationSnapshot>> reloader) {
+		this.reloader = reloader;
+	}
+
+	/**
+	 * Reload the configuration from database even if its version has not changed.
+	 *
+	 * @return completed with the snapshot published
+	 * @throws IllegalStateException if ConfigVerticle has not been deployed yet
+	 */
+	public CompletionStage<ConfigurationSnapshot> reload() {
+		Supplier<CompletionStage<ConfigurationSnapshot>> current = reloader;
+		if (current == null) {
+			throw new IllegalStateException("Configuration reload not available yet");
+		}
+		return current.get();
+	}
+}
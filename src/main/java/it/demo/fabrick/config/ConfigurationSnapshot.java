@@ -0,0 +1,102 @@
+package it.demo.fabrick.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import it.demo.fabrick.dto.ConfigurazioneDto;
+import it.demo.fabrick.utils.MessageLayout;
+import it.demo.fabrick.utils.UrlTemplate;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Immutable, versioned snapshot of the whole configuration of the environment.
+ * Built once from the CONTO_CONFIGURATION / CONTO_INDIRIZZI rows, it is read by GestisciRequestVerticle
+ * straight from memory, with no event bus hop and no query per request.
+ * Operations whose configuration is not valid (duplicated rows, wrong layout) are left out:
+ * their requests go through get-configurazione-bus, which reports the error.
+ */
+@Slf4j
+public final class ConfigurationSnapshot {
+
+	private final long version;
+	private final Map<String, OperationConfig> operations;
+
+	private ConfigurationSnapshot(long version, Map<String, OperationConfig> operations) {
+		this.version = version;
+		this.operations = Collections.unmodifiableMap(operations);
+	}
+
+	/**
+	 * @param version version of the configuration
+	 * @param rows CONTO_CONFIGURATION rows joined with CONTO_INDIRIZZI for the environment
+	 * @param urlConstants URL placeholders resolved once, e.g. account-number
+	 * @return the snapshot with the compiled operations
+	 */
+	public static ConfigurationSnapshot build(long version, List<ConfigurazioneDto> rows,
+			Map<String, String> urlConstants) {
+
+		Set<String> duplicated = new HashSet<>();
+		Map<String, ConfigurazioneDto> byOperation = new HashMap<>();
+		for (ConfigurazioneDto row : rows) {
+			if (byOperation.putIfAbsent(row.getOperation(), row) != null) {
+				duplicated.add(row.getOperation());
+			}
+		}
+
+		Map<String, OperationConfig> operations = new HashMap<>();
+		for (ConfigurazioneDto row : byOperation.values()) {
+
+			if (duplicated.contains(row.getOperation())) {
+				log.error("Multiple configurations found for operation: {}, not cached", row.getOperation());
+				continue;
+			}
+			try {
+				operations.put(row.getOperation(), compile(row, urlConstants));
+			} catch (IllegalArgumentException e) {
+				log.error("Invalid configuration for operation: {}, not cached", row.getOperation(), e);
+			}
+		}
+
+		return new ConfigurationSnapshot(version, operations);
+	}
+
+	/**
+	 * @param row configuration of a single operation
+	 * @param urlConstants URL placeholders resolved once, e.g. account-number
+	 * @return the compiled operation
+	 * @throws IllegalArgumentException if the message layout is not valid
+	 */
+	public static OperationConfig compile(ConfigurazioneDto row, Map<String, String> urlConstants) {
+		return new OperationConfig(row.getOperation(), row.getMessageOutFromBus(),
+				MessageLayout.compile(row.getMessageIn()),
+				UrlTemplate.compile(row.getIndirizzo(), urlConstants), row.getMaxConcurrent(), row.getMaxQueued(),
+				new CircuitBreakerConfig(row.getCbFailureRate(), row.getCbSlowCallMs(), row.getCbSlowCallRate(),
+						row.getCbOpenMs()));
+	}
+
+	/**
+	 * @param operation operation code, the first 3 characters of the message
+	 * @return the compiled configuration, null if the operation is not in the snapshot
+	 */
+	public OperationConfig getOperation(String operation) {
+		return operations.get(operation);
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the operations in the snapshot, sorted
+	 */
+	public List<String> getOperations() {
+		List<String> names = new ArrayList<>(operations.keySet());
+		Collections.sort(names);
+		return names;
+	}
+}
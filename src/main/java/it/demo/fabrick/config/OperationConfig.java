@@ -0,0 +1,36 @@
+package it.demo.fabrick.config;
+
+import it.demo.fabrick.utils.MessageLayout;
+import it.demo.fabrick.utils.UrlTemplate;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Compiled configuration of an operation (LIS, BON, SAL): the CONTO_CONFIGURATION row joined with the
+ * CONTO_INDIRIZZI row of the environment, with the message layout and the URL template ready to use.
+ * maxConcurrent / maxQueued size the bulkhead of the operation (maxConcurrent 0 = no limit),
+ * circuitBreaker holds the thresholds of the breaker of the upstream address.
+ * Immutable.
+ */
+@Getter
+@AllArgsConstructor
+public class OperationConfig {
+
+	private final String operation;
+	private final String messageOutFromBus;
+	private final MessageLayout layout;
+	private final UrlTemplate urlTemplate;
+	private final int maxConcurrent;
+	private final int maxQueued;
+	private final CircuitBreakerConfig circuitBreaker;
+
+	public OperationConfig(String operation, String messageOutFromBus, MessageLayout layout, UrlTemplate urlTemplate) {
+		this(operation, messageOutFromBus, layout, urlTemplate, 0, 0);
+	}
+
+	public OperationConfig(String operation, String messageOutFromBus, MessageLayout layout, UrlTemplate urlTemplate,
+			int maxConcurrent, int maxQueued) {
+		this(operation, messageOutFromBus, layout, urlTemplate, maxConcurrent, maxQueued, CircuitBreakerConfig.DISABLED);
+	}
+
+}
@@ -3,7 +3,7 @@ package it.demo.fabrick.dto;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
-import io.vertx.core.json.JsonObject;
+import it.demo.fabrick.utils.DecodedMessage;
 import it.demo.fabrick.utils.MessageParserUtil;
 import lombok.Data;
 
@@ -24,7 +24,7 @@ public class BonificoRequestDto {
 	public String feeAccountId;
 	public TaxRelief taxRelief;
 
-	public BonificoRequestDto(JsonObject messageIn) {
+	public BonificoRequestDto(DecodedMessage messageIn) {
 		this.creditor = new Creditor();
 		creditor.setName(messageIn.getString("creditor-name"));
 		creditor.setAccount(new Account());
@@ -1,6 +1,7 @@
 package it.demo.fabrick.dto;
 
 import io.vertx.core.json.JsonArray;
+import io.vertx.sqlclient.Row;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -13,6 +14,14 @@ public class ConfigurazioneDto {
 	private String messageIn = null;
 	private String messageOutFromBus = null;
 	private String indirizzo = null;
+	// bulkhead of the operation, 0 = no limit
+	private int maxConcurrent = 0;
+	private int maxQueued = 0;
+	// circuit breaker of the address, all 0 = disabled
+	private int cbFailureRate = 0;
+	private int cbSlowCallMs = 0;
+	private int cbSlowCallRate = 0;
+	private int cbOpenMs = 0;
 	
 	public ConfigurazioneDto(JsonArray line) {
 
@@ -21,6 +30,35 @@ public class ConfigurazioneDto {
 		this.setMessageIn(line.getString(2));
 		this.setMessageOutFromBus(line.getString(3));
 		this.setIndirizzo(line.getString(4));
+		if (line.size() > 6) {
+			this.setMaxConcurrent(line.getInteger(5));
+			this.setMaxQueued(line.getInteger(6));
+		}
+		if (line.size() > 10) {
+			this.setCbFailureRate(line.getInteger(7));
+			this.setCbSlowCallMs(line.getInteger(8));
+			this.setCbSlowCallRate(line.getInteger(9));
+			this.setCbOpenMs(line.getInteger(10));
+		}
+	}
+
+	public ConfigurazioneDto(Row row) {
+
+		this.setOperation(row.getString(0));
+		this.setAmbiente(row.getString(1));
+		this.setMessageIn(row.getString(2));
+		this.setMessageOutFromBus(row.getString(3));
+		this.setIndirizzo(row.getString(4));
+		if (row.size() > 6) {
+			this.setMaxConcurrent(row.getInteger(5));
+			this.setMaxQueued(row.getInteger(6));
+		}
+		if (row.size() > 10) {
+			this.setCbFailureRate(row.getInteger(7));
+			this.setCbSlowCallMs(row.getInteger(8));
+			this.setCbSlowCallRate(row.getInteger(9));
+			this.setCbOpenMs(row.getInteger(10));
+		}
 	}
 
 	public JsonArray toJsonArray() {
@@ -32,6 +70,12 @@ public class ConfigurazioneDto {
 		json.add(messageIn);
 		json.add(messageOutFromBus);
 		json.add(indirizzo);
+		json.add(maxConcurrent);
+		json.add(maxQueued);
+		json.add(cbFailureRate);
+		json.add(cbSlowCallMs);
+		json.add(cbSlowCallRate);
+		json.add(cbOpenMs);
 
 		return json;
 	}
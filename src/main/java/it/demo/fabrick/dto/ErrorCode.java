@@ -35,6 +35,11 @@ public enum ErrorCode {
      */
     CONFIGURATION_ERROR(1005),
 
+    /**
+     * Request rejected because the service is overloaded (too many requests in flight)
+     */
+    OVERLOAD_ERROR(1006),
+
     /**
      * Unknown or unexpected error
      */
@@ -49,4 +54,19 @@ public enum ErrorCode {
     public int getCode() {
         return code;
     }
+
+    /**
+     * Find the error code by its numeric identifier.
+     *
+     * @param code numeric identifier, e.g. the failure code of an event bus reply
+     * @return the matching error code, UNKNOWN_ERROR if none matches
+     */
+    public static ErrorCode fromCode(int code) {
+        for (ErrorCode errorCode : values()) {
+            if (errorCode.code == code) {
+                return errorCode;
+            }
+        }
+        return UNKNOWN_ERROR;
+    }
 }
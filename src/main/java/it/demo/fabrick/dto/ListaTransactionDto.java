@@ -15,6 +15,14 @@ public class ListaTransactionDto {
 	public String currency;
 	public String description;
 
+	/**
+	 * @param amount written with at least the 2 decimals of the ledger (NUMERIC(18,2)), e.g. -800 as -800.00: the
+	 *        same transaction has the same JSON whether it comes from Fabrick, the cache or the ledger
+	 */
+	public void setAmount(BigDecimal amount) {
+		this.amount = amount == null || amount.scale() >= 2 ? amount : amount.setScale(2);
+	}
+
 	@Data
 	public class Type {
 		public String enumeration;
@@ -0,0 +1,21 @@
+package it.demo.fabrick.dto;
+
+import it.demo.fabrick.utils.DecodedMessage;
+import it.demo.fabrick.utils.UrlTemplate;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Request routed by GestisciRequestVerticle to the verticle running the operation (saldo_bus, lista_bus, bonifico_bus).
+ * Sent with the local codec: the decoded message is a view on the socket frame and it is not copied.
+ * The URL template lets the verticle build a different URL than indirizzo, e.g. LIS for the days not cached.
+ */
+@Getter
+@AllArgsConstructor
+public class OperationRequest {
+
+	private final String indirizzo;
+	private final DecodedMessage messageIn;
+	private final UrlTemplate urlTemplate;
+
+}
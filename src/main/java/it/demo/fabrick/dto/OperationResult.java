@@ -0,0 +1,36 @@
+package it.demo.fabrick.dto;
+
+import it.demo.fabrick.utils.TransactionPages;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Successful result of an operation, replied by the verticle running it (saldo_bus, lista_bus, bonifico_bus)
+ * and forwarded by GestisciRequestVerticle to the socket server, which writes the payload in the reply.
+ * Sent with the local codec: the same instance is handed over from hop to hop.
+ * A chunked LIS reply carries the pages of the transactions instead of the payload.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class OperationResult {
+
+	private final String payload;
+
+	// null for a single reply
+	@ToString.Exclude
+	private final TransactionPages pages;
+
+	public OperationResult(String payload) {
+		this(payload, null);
+	}
+
+	public OperationResult(TransactionPages pages) {
+		this(null, pages);
+	}
+
+	public boolean isChunked() {
+		return pages != null;
+	}
+}
@@ -0,0 +1,14 @@
+package it.demo.fabrick.exception;
+
+/**
+ * Upstream call not made because the circuit breaker of its address is open.
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public CircuitBreakerOpenException(String upstream, long retryInMs) {
+		super("Circuit breaker open for " + upstream + ", upstream not called (retry in " + retryInMs + " ms)");
+	}
+
+}
@@ -0,0 +1,330 @@
+package it.demo.fabrick.ledger;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.jdbcclient.JDBCPool;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Tuple;
+import it.demo.fabrick.dto.ListaTransactionDto;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local copy of the account movements in CONTO_TRANSACTION, written by LedgerVerticle and read by
+ * ListaTransazioniVerticle with an indexed range query (CONTO_TRANSACTION_DATE_IX).
+ * The ledger is complete from coveredFrom to completeUntil: these days were synchronized after being closed,
+ * so they do not change anymore. The open days are written too, but always read from Fabrick.
+ * Every transaction keeps its position in the Fabrick response, so the transactions of a day are read in the order
+ * of Fabrick: a day is always rewritten by the same response, the one of its last synchronization.
+ * Every synchronization replaces the days it read in a single transaction, so the transactions no longer returned
+ * by Fabrick (e.g. cancelled while the day was open) are removed and the readers never see a day half written.
+ * The coverage is kept in memory: after a restart the ledger is synchronized again (the upsert is idempotent).
+ * Transactions that do not fit the columns of CONTO_TRANSACTION are rejected with a warning before the batch, so a
+ * single invalid transaction does not fail its batch; its day and the following ones do not become complete, they
+ * are read from Fabrick, which has the transaction.
+ * Metrics:
+ * - conto.ledger.synced: transactions written
+ * - conto.ledger.rejected: transactions not fitting the table, never written
+ */
+@Component
+@Slf4j
+public class TransactionLedger {
+
+	//@f:off
+	private static final String UPSERT = " merge into CONTO_TRANSACTION ("
+						+ "      accountId, transactionId, operationId, accountingDate, valueDate, "
+						+ "      typeEnumeration, typeValue, amount, currency, description, listPosition) "
+						+ " key (transactionId) "
+						+ " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ";
+
+	private static final String DELETE_RANGE = " delete from CONTO_TRANSACTION "
+						+ " where accountId = ? and accountingDate between ? and ? ";
+
+	private static final String QUERY_RANGE = " select "
+						+ "      transactionId, operationId, accountingDate, valueDate, "
+						+ "      typeEnumeration, typeValue, amount, currency, description "
+						+ " from CONTO_TRANSACTION "
+						+ " where accountId = ? and accountingDate between ? and ? "
+						+ " order by accountingDate desc, listPosition, id ";
+	//@f:on
+
+	// sizes of the columns in schema.sql
+	private static final int ID_LENGTH = 20;
+	private static final int TYPE_ENUMERATION_LENGTH = 20;
+	private static final int TYPE_VALUE_LENGTH = 200;
+	private static final int CURRENCY_LENGTH = 3;
+	private static final int DESCRIPTION_LENGTH = 3000;
+	private static final int AMOUNT_PRECISION = 18;
+	private static final int AMOUNT_SCALE = 2;
+
+	private final DataSource dataSource;
+	private final int batchSize;
+	private final Counter synced;
+	private final Counter rejected;
+
+	private JDBCPool pool;
+	private volatile LocalDate coveredFrom;
+	private volatile LocalDate completeUntil;
+
+	public TransactionLedger(DataSource dataSource, MeterRegistry meterRegistry,
+			@Value("${ledger.batchSize:500}") int batchSize) {
+		this.dataSource = dataSource;
+		this.batchSize = Math.max(1, batchSize);
+		this.synced = Counter.builder("conto.ledger.synced")
+				.description("Transactions written into the local ledger")
+				.register(meterRegistry);
+		this.rejected = Counter.builder("conto.ledger.rejected")
+				.description("Transactions not fitting the local ledger, never written")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * @param vertx Vert.x instance, the pool is created once by LedgerVerticle
+	 */
+	public synchronized void open(Vertx vertx) {
+		if (pool == null) {
+			pool = JDBCPool.pool(vertx, dataSource);
+		}
+	}
+
+	/**
+	 * @param from first day requested
+	 * @return true if the ledger is complete from that day (up to {@link #getCompleteUntil()})
+	 */
+	public boolean covers(LocalDate from) {
+		LocalDate start = coveredFrom;
+		LocalDate end = completeUntil;
+		return start != null && end != null && !from.isBefore(start) && !from.isAfter(end);
+	}
+
+	/**
+	 * @param from first day of the synchronization
+	 * @param until last day synchronized after it was closed
+	 */
+	public void setCoverage(LocalDate from, LocalDate until) {
+		if (until.isBefore(from)) {
+			return;
+		}
+		if (coveredFrom == null || from.isBefore(coveredFrom)) {
+			coveredFrom = from;
+		}
+		completeUntil = until;
+	}
+
+	public LocalDate getCoveredFrom() {
+		return coveredFrom;
+	}
+
+	public LocalDate getCompleteUntil() {
+		return completeUntil;
+	}
+
+	/**
+	 * Replace the transactions of the days synchronized: in one transaction, delete the days and insert or update
+	 * the transactions read by transactionId, in batches of ledger.batchSize; then mark as complete the days from
+	 * the first one synchronized to the last closed one.
+	 * The transactions not fitting the table are rejected: they would fail at every synchronization, and their days
+	 * would miss them, so the coverage stops the day before the first one with a rejected transaction (those days
+	 * are always read from Fabrick).
+	 *
+	 * @param account account number
+	 * @param from first day synchronized
+	 * @param to last day synchronized
+	 * @param lastClosedDay last day closed when the read started
+	 * @param transactions transactions read from Fabrick, in the order of the response
+	 * @return completed once the transaction is committed, with the number of transactions rejected; failed if it
+	 *         is rolled back, the ledger is then unchanged
+	 */
+	public Future<Integer> synchronize(String account, LocalDate from, LocalDate to, LocalDate lastClosedDay,
+			List<ListaTransactionDto> transactions) {
+
+		if (account == null || account.length() > ID_LENGTH) {
+			return Future.failedFuture("Invalid account for the ledger: " + account);
+		}
+		int skipped = 0;
+		LocalDate until = lastClosedDay;
+		List<List<Tuple>> batches = new ArrayList<>();
+		List<Tuple> batch = new ArrayList<>(Math.min(batchSize, transactions.size()));
+		for (int position = 0; position < transactions.size(); position++) {
+			ListaTransactionDto transaction = transactions.get(position);
+			String violation = violation(transaction);
+			if (violation != null) {
+				log.warn("Transaction {} not written into the ledger: {}", transaction.getTransactionId(), violation);
+				rejected.increment();
+				skipped++;
+				until = min(until, lastCompleteDay(transaction, from));
+				continue;
+			}
+			batch.add(toTuple(account, transaction, position));
+			if (batch.size() == batchSize) {
+				batches.add(batch);
+				batch = new ArrayList<>(batchSize);
+			}
+		}
+		if (!batch.isEmpty()) {
+			batches.add(batch);
+		}
+		int notWritten = skipped;
+		int toWrite = transactions.size() - skipped;
+		LocalDate completeUntil = until;
+		return pool.withTransaction(connection -> {
+			Future<Void> written = connection.preparedQuery(DELETE_RANGE).execute(Tuple.of(account, from, to))
+					.mapEmpty();
+			for (List<Tuple> next : batches) {
+				written = written.compose(executeBatch(connection, next));
+			}
+			return written;
+		}).map(v -> {
+			synced.increment(toWrite);
+			setCoverage(from, completeUntil);
+			return notWritten;
+		});
+	}
+
+	/**
+	 * @return the last day complete without the rejected transaction: the day before its accounting day, the day
+	 *         before the synchronization if the accounting day is not readable
+	 */
+	private static LocalDate lastCompleteDay(ListaTransactionDto transaction, LocalDate from) {
+		try {
+			LocalDate day = toDate(transaction.getAccountingDate());
+			return day == null || day.isBefore(from) ? from.minusDays(1) : day.minusDays(1);
+		} catch (DateTimeParseException e) {
+			return from.minusDays(1);
+		}
+	}
+
+	private static LocalDate min(LocalDate a, LocalDate b) {
+		return a.isBefore(b) ? a : b;
+	}
+
+	/**
+	 * @return why the transaction does not fit CONTO_TRANSACTION, null if it does
+	 */
+	private static String violation(ListaTransactionDto transaction) {
+
+		if (transaction.getTransactionId() == null || transaction.getTransactionId().length() > ID_LENGTH) {
+			return "missing or too long transactionId";
+		}
+		if (tooLong(transaction.getOperationId(), ID_LENGTH)) {
+			return "operationId too long";
+		}
+		try {
+			if (toDate(transaction.getAccountingDate()) == null) {
+				return "missing accountingDate";
+			}
+			toDate(transaction.getValueDate());
+		} catch (DateTimeParseException e) {
+			return "invalid date";
+		}
+		ListaTransactionDto.Type type = transaction.getType();
+		if (type != null && (tooLong(type.getEnumeration(), TYPE_ENUMERATION_LENGTH)
+				|| tooLong(type.getValue(), TYPE_VALUE_LENGTH))) {
+			return "type too long";
+		}
+		if (!fits(transaction.getAmount())) {
+			return "missing amount or amount out of NUMERIC(" + AMOUNT_PRECISION + "," + AMOUNT_SCALE + ")";
+		}
+		if (transaction.getCurrency() == null || transaction.getCurrency().length() > CURRENCY_LENGTH) {
+			return "missing or too long currency";
+		}
+		if (tooLong(transaction.getDescription(), DESCRIPTION_LENGTH)) {
+			return "description too long";
+		}
+		return null;
+	}
+
+	private static boolean tooLong(String value, int length) {
+		return value != null && value.length() > length;
+	}
+
+	private static boolean fits(BigDecimal amount) {
+		if (amount == null) {
+			return false;
+		}
+		try {
+			// more decimals would be rounded by the column and more integer digits fail the insert: both rejected
+			return amount.setScale(AMOUNT_SCALE, RoundingMode.UNNECESSARY).precision() <= AMOUNT_PRECISION;
+		} catch (ArithmeticException e) {
+			return false;
+		}
+	}
+
+	private static Function<Void, Future<Void>> executeBatch(SqlConnection connection, List<Tuple> batch) {
+		return v -> connection.preparedQuery(UPSERT).executeBatch(batch).mapEmpty();
+	}
+
+	/**
+	 * @param account account number
+	 * @param from first accounting day
+	 * @param to last accounting day
+	 * @return the transactions of the days, newest day first, each day in the order of Fabrick
+	 */
+	public Future<List<ListaTransactionDto>> read(String account, LocalDate from, LocalDate to) {
+		return pool.preparedQuery(QUERY_RANGE).execute(Tuple.of(account, from, to)).map(rows -> {
+			List<ListaTransactionDto> transactions = new ArrayList<>(rows.size());
+			for (Row row : rows) {
+				transactions.add(toTransaction(row));
+			}
+			return transactions;
+		});
+	}
+
+	private static Tuple toTuple(String account, ListaTransactionDto transaction, int position) {
+		ListaTransactionDto.Type type = transaction.getType();
+		return Tuple.tuple()
+				.addString(account)
+				.addString(transaction.getTransactionId())
+				.addString(transaction.getOperationId())
+				.addLocalDate(toDate(transaction.getAccountingDate()))
+				.addLocalDate(toDate(transaction.getValueDate()))
+				.addString(type == null ? null : type.getEnumeration())
+				.addString(type == null ? null : type.getValue())
+				.addBigDecimal(transaction.getAmount())
+				.addString(transaction.getCurrency())
+				.addString(transaction.getDescription())
+				.addInteger(position);
+	}
+
+	private static ListaTransactionDto toTransaction(Row row) {
+		ListaTransactionDto transaction = new ListaTransactionDto();
+		transaction.setTransactionId(row.getString(0));
+		transaction.setOperationId(row.getString(1));
+		transaction.setAccountingDate(toString(row.getLocalDate(2)));
+		transaction.setValueDate(toString(row.getLocalDate(3)));
+		if (row.getString(4) != null || row.getString(5) != null) {
+			ListaTransactionDto.Type type = transaction.new Type();
+			type.setEnumeration(row.getString(4));
+			type.setValue(row.getString(5));
+			transaction.setType(type);
+		}
+		transaction.setAmount(row.getBigDecimal(6));
+		transaction.setCurrency(row.getString(7));
+		transaction.setDescription(row.getString(8));
+		return transaction;
+	}
+
+	private static LocalDate toDate(String date) {
+		// Fabrick dates are ISO days, possibly followed by a time
+		return date == null || date.length() < 10 ? null : LocalDate.parse(date.substring(0, 10));
+	}
+
+	private static String toString(LocalDate date) {
+		return date == null ? null : date.toString();
+	}
+}
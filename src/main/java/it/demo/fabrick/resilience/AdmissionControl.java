@@ -0,0 +1,87 @@
+package it.demo.fabrick.resilience;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Global admission control of the socket requests.
+ * Shared by all the SocketServerVerticle instances: it bounds the requests in flight over all the connections,
+ * so that an upstream slowdown cannot make the pending work (and the event bus reply handlers) grow without limit.
+ * The per-connection bound is enforced by InFlightRequests, its rejections are counted here.
+ * Metrics:
+ * - conto.socket.inflight: requests in flight
+ * - conto.socket.rejected{scope=global|connection}: requests rejected because a limit was reached
+ */
+@Component
+public class AdmissionControl {
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final int maxInFlight;
+	private final Counter rejectedGlobal;
+	private final Counter rejectedConnection;
+
+	public AdmissionControl(@Value("${socket.maxInFlight:10000}") int maxInFlight, MeterRegistry meterRegistry) {
+		if (maxInFlight <= 0) {
+			throw new IllegalArgumentException("Max in-flight requests must be positive (was: " + maxInFlight + ")");
+		}
+		this.maxInFlight = maxInFlight;
+
+		Gauge.builder("conto.socket.inflight", inFlight, AtomicInteger::get)
+				.description("Socket requests in flight")
+				.register(meterRegistry);
+		this.rejectedGlobal = Counter.builder("conto.socket.rejected")
+				.description("Socket requests rejected because an in-flight limit was reached")
+				.tag("scope", "global")
+				.register(meterRegistry);
+		this.rejectedConnection = Counter.builder("conto.socket.rejected")
+				.description("Socket requests rejected because an in-flight limit was reached")
+				.tag("scope", "connection")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Admit a new request. Every successful call must be paired with {@link #release()}.
+	 *
+	 * @return false if the global limit is reached and the request must be rejected
+	 */
+	public boolean tryAcquire() {
+		while (true) {
+			int current = inFlight.get();
+			if (current >= maxInFlight) {
+				rejectedGlobal.increment();
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Release a request admitted by {@link #tryAcquire()}.
+	 */
+	public void release() {
+		inFlight.decrementAndGet();
+	}
+
+	/**
+	 * Count a request rejected because its connection reached the per-connection limit.
+	 */
+	public void rejectedByConnection() {
+		rejectedConnection.increment();
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+}
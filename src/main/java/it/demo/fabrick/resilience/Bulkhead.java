@@ -0,0 +1,136 @@
+package it.demo.fabrick.resilience;
+
+import java.util.ArrayDeque;
+
+import io.micrometer.core.instrument.Counter;
+import io.vertx.core.Context;
+
+/**
+ * Bulkhead of a single operation: at most maxConcurrent calls run at the same time, up to maxQueued more wait
+ * for a free slot and the others are rejected, so that a slow operation cannot take the capacity of the others.
+ * Shared by the verticle instances running on different event loops: the counters are guarded by the bulkhead
+ * monitor, the tasks always run outside of it. A queued task is resumed on the context it was submitted from.
+ * Every task that has been started must be paired with {@link #release()}: a task throwing before its call has
+ * been started is released here, so it must not release itself before throwing.
+ */
+public final class Bulkhead {
+
+	private final String operation;
+	private final Counter rejected;
+	private final ArrayDeque<Waiting> queue = new ArrayDeque<>();
+
+	private int maxConcurrent;
+	private int maxQueued;
+	private int active;
+
+	private record Waiting(Context context, Runnable task) {
+	}
+
+	/**
+	 * @param operation operation code
+	 * @param maxConcurrent calls running at the same time, 0 = no limit
+	 * @param maxQueued calls waiting for a free slot
+	 * @param rejected counter of the rejected calls
+	 */
+	Bulkhead(String operation, int maxConcurrent, int maxQueued, Counter rejected) {
+		this.operation = operation;
+		this.rejected = rejected;
+		resize(maxConcurrent, maxQueued);
+	}
+
+	/**
+	 * Run the task now if a slot is free, queue it otherwise.
+	 *
+	 * @param context context the task is resumed on when it has been queued
+	 * @param task the call, it must invoke {@link #release()} when completed
+	 * @return false if the queue is full and the task has been rejected
+	 */
+	public boolean submit(Context context, Runnable task) {
+
+		synchronized (this) {
+			if (active >= maxConcurrent) {
+				if (queue.size() >= maxQueued) {
+					rejected.increment();
+					return false;
+				}
+				queue.add(new Waiting(context, task));
+				return true;
+			}
+			active++;
+		}
+		run(task);
+		return true;
+	}
+
+	/**
+	 * Free the slot of a completed call, the first waiting call (if any) takes it.
+	 */
+	public void release() {
+
+		Waiting next;
+		synchronized (this) {
+			next = active <= maxConcurrent ? queue.poll() : null;
+			if (next == null) {
+				active--;
+			}
+		}
+		if (next != null) {
+			resume(next);
+		}
+	}
+
+	/**
+	 * Change the limits, e.g. after a configuration reload. With a higher limit the waiting calls start at once,
+	 * with a lower one the calls in excess complete normally.
+	 *
+	 * @param newMaxConcurrent calls running at the same time, 0 = no limit
+	 * @param newMaxQueued calls waiting for a free slot
+	 */
+	public void resize(int newMaxConcurrent, int newMaxQueued) {
+
+		ArrayDeque<Waiting> started = new ArrayDeque<>();
+		synchronized (this) {
+			maxConcurrent = newMaxConcurrent > 0 ? newMaxConcurrent : Integer.MAX_VALUE;
+			maxQueued = Math.max(0, newMaxQueued);
+			while (active < maxConcurrent && !queue.isEmpty()) {
+				active++;
+				started.add(queue.poll());
+			}
+		}
+		started.forEach(this::resume);
+	}
+
+	private void resume(Waiting waiting) {
+		waiting.context().runOnContext(v -> run(waiting.task()));
+	}
+
+	private void run(Runnable task) {
+		try {
+			task.run();
+		} catch (RuntimeException | Error e) {
+			// the call has not been started: without the release its slot would be lost for good
+			release();
+			throw e;
+		}
+	}
+
+	public String getOperation() {
+		return operation;
+	}
+
+	public synchronized int getActive() {
+		return active;
+	}
+
+	public synchronized int getQueued() {
+		return queue.size();
+	}
+
+	public synchronized int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	public synchronized int getMaxQueued() {
+		return maxQueued;
+	}
+}
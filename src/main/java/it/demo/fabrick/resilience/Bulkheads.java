@@ -0,0 +1,74 @@
+package it.demo.fabrick.resilience;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.demo.fabrick.config.OperationConfig;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulkheads of the operations (LIS, SAL, BON), sized by CONTO_CONFIGURATION.MAX_CONCURRENT / MAX_QUEUED.
+ * A bulkhead is created on the first call of its operation and kept across configuration reloads,
+ * new limits are applied to it in place.
+ * Metrics, tagged with the operation:
+ * - conto.bulkhead.active: calls running
+ * - conto.bulkhead.queued: calls waiting for a free slot
+ * - conto.bulkhead.rejected: calls rejected because the queue was full
+ */
+@Component
+@Slf4j
+public class Bulkheads {
+
+	private final ConcurrentMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+	private final MeterRegistry meterRegistry;
+
+	public Bulkheads(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * @param operationConfig configuration of the operation
+	 * @return the bulkhead of the operation, with the configured limits
+	 */
+	public Bulkhead get(OperationConfig operationConfig) {
+
+		String operation = operationConfig.getOperation();
+		int maxConcurrent = operationConfig.getMaxConcurrent() > 0 ? operationConfig.getMaxConcurrent() : Integer.MAX_VALUE;
+		int maxQueued = Math.max(0, operationConfig.getMaxQueued());
+
+		Bulkhead bulkhead = bulkheads.computeIfAbsent(operation,
+				op -> create(op, operationConfig.getMaxConcurrent(), operationConfig.getMaxQueued()));
+		if (bulkhead.getMaxConcurrent() != maxConcurrent || bulkhead.getMaxQueued() != maxQueued) {
+			log.info("Bulkhead {} resized - max concurrent: {}, max queued: {}", operation,
+					operationConfig.getMaxConcurrent(), maxQueued);
+			bulkhead.resize(operationConfig.getMaxConcurrent(), maxQueued);
+		}
+		return bulkhead;
+	}
+
+	private Bulkhead create(String operation, int maxConcurrent, int maxQueued) {
+
+		Counter rejected = Counter.builder("conto.bulkhead.rejected")
+				.description("Calls rejected because the bulkhead of the operation was full")
+				.tag("operation", operation)
+				.register(meterRegistry);
+		Bulkhead bulkhead = new Bulkhead(operation, maxConcurrent, maxQueued, rejected);
+
+		Gauge.builder("conto.bulkhead.active", bulkhead, Bulkhead::getActive)
+				.description("Calls of the operation running")
+				.tag("operation", operation)
+				.register(meterRegistry);
+		Gauge.builder("conto.bulkhead.queued", bulkhead, Bulkhead::getQueued)
+				.description("Calls of the operation waiting for a free slot")
+				.tag("operation", operation)
+				.register(meterRegistry);
+
+		log.info("Bulkhead {} created - max concurrent: {}, max queued: {}", operation, maxConcurrent, maxQueued);
+		return bulkhead;
+	}
+}
@@ -0,0 +1,230 @@
+package it.demo.fabrick.resilience;
+
+import java.util.function.LongSupplier;
+
+import io.micrometer.core.instrument.Counter;
+import it.demo.fabrick.config.CircuitBreakerConfig;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Circuit breaker of a single upstream address.
+ * The outcomes of the last windowSize calls are kept in a ring: once at least minimumCalls have been recorded, the
+ * breaker opens when the failed calls or the slow calls reach their configured rate. While open every call is
+ * rejected at once; after openMs up to halfOpenCalls probes go through: a failed or slow probe opens it again,
+ * halfOpenCalls good probes close it with an empty window.
+ * Shared by the verticle instances running on different event loops: the state is guarded by the breaker monitor.
+ * Every call permitted by {@link #tryAcquire()} must be paired with {@link #record(long, boolean, long)} or
+ * {@link #ignore(long)}.
+ */
+@Slf4j
+public final class CircuitBreaker {
+
+	public enum State {
+		CLOSED(0),
+		HALF_OPEN(1),
+		OPEN(2);
+
+		private final int level;
+
+		State(int level) {
+			this.level = level;
+		}
+
+		/**
+		 * @return the value of the state gauge
+		 */
+		public int getLevel() {
+			return level;
+		}
+	}
+
+	private final String upstream;
+	private final int windowSize;
+	private final int minimumCalls;
+	private final int halfOpenCalls;
+	private final Counter rejected;
+	private final LongSupplier clock;
+
+	// outcomes of the last calls, a ring of windowSize entries
+	private final boolean[] failed;
+	private final boolean[] slow;
+	private int next;
+	private int calls;
+	private int failures;
+	private int slowCalls;
+
+	private CircuitBreakerConfig config;
+	private State state = State.CLOSED;
+	// incremented on every state change: the outcome of a call permitted in a previous state is not recorded
+	private long epoch;
+	private long openedAt;
+	private int probesStarted;
+	private int probesSucceeded;
+
+	/**
+	 * @param upstream name of the upstream, for the log and the exception
+	 * @param config thresholds of the breaker
+	 * @param windowSize number of calls the rates are computed on
+	 * @param minimumCalls calls recorded before the rates are checked
+	 * @param halfOpenCalls probes let through when the open time has passed
+	 * @param rejected counter of the calls rejected while open
+	 * @param clock current time in milliseconds
+	 */
+	CircuitBreaker(String upstream, CircuitBreakerConfig config, int windowSize, int minimumCalls, int halfOpenCalls,
+			Counter rejected, LongSupplier clock) {
+		if (windowSize <= 0 || minimumCalls <= 0 || halfOpenCalls <= 0) {
+			throw new IllegalArgumentException("Window size, minimum calls and half-open calls must be positive");
+		}
+		this.upstream = upstream;
+		this.config = config;
+		this.windowSize = windowSize;
+		this.minimumCalls = Math.min(minimumCalls, windowSize);
+		this.halfOpenCalls = halfOpenCalls;
+		this.rejected = rejected;
+		this.clock = clock;
+		this.failed = new boolean[windowSize];
+		this.slow = new boolean[windowSize];
+	}
+
+	/**
+	 * @return the epoch of the permitted call, to be passed to {@link #record(long, boolean, long)};
+	 *         -1 if the breaker is open and the call must not be made
+	 */
+	public synchronized long tryAcquire() {
+
+		if (!config.isEnabled()) {
+			return epoch;
+		}
+		if (state == State.OPEN) {
+			if (clock.getAsLong() - openedAt < config.getOpenMs()) {
+				rejected.increment();
+				return -1;
+			}
+			transition(State.HALF_OPEN);
+		}
+		if (state == State.HALF_OPEN) {
+			if (probesStarted >= halfOpenCalls) {
+				rejected.increment();
+				return -1;
+			}
+			probesStarted++;
+		}
+		return epoch;
+	}
+
+	/**
+	 * @param callEpoch value returned by {@link #tryAcquire()} for the call
+	 * @param failure true if the call failed (no response, timeout, server error)
+	 * @param durationMs duration of the call
+	 */
+	public synchronized void record(long callEpoch, boolean failure, long durationMs) {
+
+		if (!config.isEnabled() || callEpoch != epoch) {
+			return;
+		}
+		boolean slowCall = config.getSlowCallMs() > 0 && durationMs >= config.getSlowCallMs();
+
+		if (state == State.HALF_OPEN) {
+			if (failure || slowCall) {
+				log.warn("Circuit breaker {} probe {}, open again", upstream, failure ? "failed" : "slow");
+				open();
+			} else if (++probesSucceeded >= halfOpenCalls) {
+				log.info("Circuit breaker {} closed", upstream);
+				transition(State.CLOSED);
+			}
+			return;
+		}
+
+		if (calls == windowSize) {
+			failures -= failed[next] ? 1 : 0;
+			slowCalls -= slow[next] ? 1 : 0;
+		} else {
+			calls++;
+		}
+		failed[next] = failure;
+		slow[next] = slowCall;
+		failures += failure ? 1 : 0;
+		slowCalls += slowCall ? 1 : 0;
+		next = (next + 1) % windowSize;
+
+		if (calls < minimumCalls) {
+			return;
+		}
+		boolean failureRateReached = config.getFailureRate() > 0 && failures * 100 >= config.getFailureRate() * calls;
+		boolean slowRateReached = config.getSlowCallMs() > 0 && slowCalls * 100 >= config.getSlowCallRate() * calls;
+		if (failureRateReached || slowRateReached) {
+			log.warn("Circuit breaker {} open - failed: {}, slow: {} of the last {} calls", upstream, failures,
+					slowCalls, calls);
+			open();
+		}
+	}
+
+	/**
+	 * Release a permitted call without recording its outcome, e.g. a timeout not caused by the upstream.
+	 * A half-open probe is given back, so that another call can probe the upstream.
+	 *
+	 * @param callEpoch value returned by {@link #tryAcquire()} for the call
+	 */
+	public synchronized void ignore(long callEpoch) {
+
+		if (!config.isEnabled() || callEpoch != epoch) {
+			return;
+		}
+		if (state == State.HALF_OPEN && probesStarted > 0) {
+			probesStarted--;
+		}
+	}
+
+	/**
+	 * @param newConfig thresholds applied in place, the state is kept
+	 */
+	public synchronized void reconfigure(CircuitBreakerConfig newConfig) {
+		this.config = newConfig;
+		if (!newConfig.isEnabled() && state != State.CLOSED) {
+			transition(State.CLOSED);
+		}
+	}
+
+	/**
+	 * @return the time left before the half-open probes, 0 if not open
+	 */
+	public synchronized long retryInMs() {
+		return state == State.OPEN ? Math.max(0, openedAt + config.getOpenMs() - clock.getAsLong()) : 0;
+	}
+
+	private void open() {
+		transition(State.OPEN);
+		openedAt = clock.getAsLong();
+	}
+
+	private void transition(State newState) {
+		state = newState;
+		epoch++;
+		probesStarted = 0;
+		probesSucceeded = 0;
+		if (newState == State.CLOSED) {
+			next = 0;
+			calls = 0;
+			failures = 0;
+			slowCalls = 0;
+		}
+	}
+
+	/**
+	 * @return the state of the breaker, HALF_OPEN also when the open time has passed and no probe has started yet
+	 */
+	public synchronized State getState() {
+		if (state == State.OPEN && clock.getAsLong() - openedAt >= config.getOpenMs()) {
+			return State.HALF_OPEN;
+		}
+		return state;
+	}
+
+	public synchronized CircuitBreakerConfig getConfig() {
+		return config;
+	}
+
+	public String getUpstream() {
+		return upstream;
+	}
+}
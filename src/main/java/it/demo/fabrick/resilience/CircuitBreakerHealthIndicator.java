@@ -0,0 +1,31 @@
+package it.demo.fabrick.resilience;
+
+import java.util.Map;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Health of the upstream circuit breakers, "circuitBreaker" in /actuator/health.
+ * OUT_OF_SERVICE while a breaker is open: with the indicator in the readiness group
+ * (management.endpoint.health.group.readiness.include) the instance stops receiving new connections until the
+ * open time has passed and the half-open probes can go through.
+ */
+@Component
+public class CircuitBreakerHealthIndicator implements HealthIndicator {
+
+	private final CircuitBreakers circuitBreakers;
+
+	public CircuitBreakerHealthIndicator(CircuitBreakers circuitBreakers) {
+		this.circuitBreakers = circuitBreakers;
+	}
+
+	@Override
+	public Health health() {
+
+		Map<String, CircuitBreaker.State> states = circuitBreakers.states();
+		Health.Builder builder = states.containsValue(CircuitBreaker.State.OPEN) ? Health.outOfService() : Health.up();
+		return builder.withDetails(states).build();
+	}
+}
@@ -0,0 +1,163 @@
+package it.demo.fabrick.resilience;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.web.client.HttpResponse;
+import it.demo.fabrick.config.CircuitBreakerConfig;
+import it.demo.fabrick.config.ConfigurationHolder;
+import it.demo.fabrick.config.OperationConfig;
+import it.demo.fabrick.exception.CircuitBreakerOpenException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Circuit breakers of the upstream addresses, one per CONTO_INDIRIZZI row of the environment (i.e. per operation),
+ * with the thresholds of its CB_* columns. A breaker is created on the first call of its operation and kept across
+ * configuration reloads, new thresholds are applied to it in place.
+ * A call is a failure when it gets no response (connection error, timeout) or a 5xx response. A timeout is not
+ * recorded when the timeout of the call had been cut short by the deadline of its request, below the slow call
+ * threshold of the breaker: the upstream was not given its time, so the call says nothing about its health.
+ * Metrics, tagged with the upstream:
+ * - conto.circuitbreaker.state: 0 closed, 1 half-open, 2 open
+ * - conto.circuitbreaker.rejected: calls rejected while open
+ */
+@Component
+@Slf4j
+public class CircuitBreakers {
+
+	private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+	private final MeterRegistry meterRegistry;
+	private final ConfigurationHolder configurationHolder;
+	private final int windowSize;
+	private final int minimumCalls;
+	private final int halfOpenCalls;
+	private final LongSupplier clock;
+
+	@Autowired
+	public CircuitBreakers(MeterRegistry meterRegistry, ConfigurationHolder configurationHolder,
+			@Value("${circuitBreaker.windowSize:20}") int windowSize,
+			@Value("${circuitBreaker.minimumCalls:10}") int minimumCalls,
+			@Value("${circuitBreaker.halfOpenCalls:3}") int halfOpenCalls) {
+		this(meterRegistry, configurationHolder, windowSize, minimumCalls, halfOpenCalls, System::currentTimeMillis);
+	}
+
+	public CircuitBreakers(MeterRegistry meterRegistry, ConfigurationHolder configurationHolder, int windowSize,
+			int minimumCalls, int halfOpenCalls, LongSupplier clock) {
+		this.meterRegistry = meterRegistry;
+		this.configurationHolder = configurationHolder;
+		this.windowSize = windowSize;
+		this.minimumCalls = minimumCalls;
+		this.halfOpenCalls = halfOpenCalls;
+		this.clock = clock;
+	}
+
+	/**
+	 * Make an upstream call through the breaker of the operation.
+	 *
+	 * @param operation operation whose address is called
+	 * @param call makes the upstream call, invoked only if the breaker lets it through
+	 * @return the result of the call, failed with CircuitBreakerOpenException at once if the breaker is open
+	 */
+	public Future<HttpResponse<Buffer>> execute(String operation, Supplier<Future<HttpResponse<Buffer>>> call) {
+		return execute(operation, 0, 0, call);
+	}
+
+	/**
+	 * Make an upstream call through the breaker of the operation, with a timeout possibly cut by a deadline.
+	 *
+	 * @param operation operation whose address is called
+	 * @param timeoutMs timeout of the call
+	 * @param upstreamTimeoutMs timeout configured for the upstream: with a shorter timeoutMs, also shorter than the
+	 *        slow call threshold, a timeout is not recorded
+	 * @param call makes the upstream call, invoked only if the breaker lets it through
+	 * @return the result of the call, failed with CircuitBreakerOpenException at once if the breaker is open
+	 */
+	public Future<HttpResponse<Buffer>> execute(String operation, long timeoutMs, long upstreamTimeoutMs,
+			Supplier<Future<HttpResponse<Buffer>>> call) {
+
+		CircuitBreaker breaker = get(operation);
+		long epoch = breaker.tryAcquire();
+		if (epoch < 0) {
+			return Future.failedFuture(new CircuitBreakerOpenException(operation, breaker.retryInMs()));
+		}
+
+		long start = clock.getAsLong();
+		Future<HttpResponse<Buffer>> result;
+		try {
+			result = call.get();
+		} catch (RuntimeException e) {
+			result = Future.failedFuture(e);
+		}
+		// a call running for the slow call threshold is slow whatever its budget
+		long slowCallMs = breaker.getConfig().getSlowCallMs();
+		boolean timeoutCut = timeoutMs < upstreamTimeoutMs && (slowCallMs <= 0 || timeoutMs < slowCallMs);
+		return result.onComplete(ar -> {
+			if (ar.failed() && timeoutCut && ar.cause() instanceof TimeoutException) {
+				log.debug("Circuit breaker {} - call timed out after a timeout cut to {} ms, not recorded", operation,
+						timeoutMs);
+				breaker.ignore(epoch);
+				return;
+			}
+			breaker.record(epoch, ar.failed() || ar.result().statusCode() >= 500, clock.getAsLong() - start);
+		});
+	}
+
+	/**
+	 * @param operation operation whose address is called
+	 * @return the breaker of the operation, with the thresholds of the current configuration snapshot
+	 */
+	public CircuitBreaker get(String operation) {
+
+		OperationConfig operationConfig = configurationHolder.getOperation(operation);
+		CircuitBreakerConfig config = operationConfig == null ? null : operationConfig.getCircuitBreaker();
+
+		CircuitBreaker breaker = breakers.computeIfAbsent(operation,
+				op -> create(op, config == null ? CircuitBreakerConfig.DISABLED : config));
+		if (config != null && !config.equals(breaker.getConfig())) {
+			log.info("Circuit breaker {} reconfigured - {}", operation, config);
+			breaker.reconfigure(config);
+		}
+		return breaker;
+	}
+
+	/**
+	 * @return the state of the breakers created so far, by upstream
+	 */
+	public Map<String, CircuitBreaker.State> states() {
+		Map<String, CircuitBreaker.State> states = new TreeMap<>();
+		breakers.forEach((upstream, breaker) -> states.put(upstream, breaker.getState()));
+		return states;
+	}
+
+	private CircuitBreaker create(String operation, CircuitBreakerConfig config) {
+
+		Counter rejected = Counter.builder("conto.circuitbreaker.rejected")
+				.description("Upstream calls rejected because the circuit breaker was open")
+				.tag("upstream", operation)
+				.register(meterRegistry);
+		CircuitBreaker breaker = new CircuitBreaker(operation, config, windowSize, minimumCalls, halfOpenCalls,
+				rejected, clock);
+
+		Gauge.builder("conto.circuitbreaker.state", breaker, b -> b.getState().getLevel())
+				.description("State of the circuit breaker of the upstream: 0 closed, 1 half-open, 2 open")
+				.tag("upstream", operation)
+				.register(meterRegistry);
+
+		log.info("Circuit breaker {} created - {}", operation, config);
+		return breaker;
+	}
+}
@@ -0,0 +1,105 @@
+package it.demo.fabrick.resilience;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Coalescing of identical upstream calls in flight (single flight).
+ * The first caller for a key (the resolved URL of a GET) makes the call, the callers arriving while it is in flight
+ * get the same result instead of making their own call; once completed, the next caller makes a new call.
+ * The call is shared, so its timeout must not be the budget of the caller making it: every caller, the first one
+ * included, waits for the result at most its own time and gets a TimeoutException after it.
+ * Shared by the verticle instances: every caller gets the result on its own context.
+ * Only for idempotent reads (SAL, LIS), the result is shared and must not be modified.
+ * Metrics:
+ * - conto.singleflight.saved{operation}: upstream calls saved by coalescing
+ */
+@Component
+@Slf4j
+public class SingleFlight {
+
+	private final ConcurrentMap<String, Future<?>> inFlight = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Counter> saved = new ConcurrentHashMap<>();
+	private final MeterRegistry meterRegistry;
+
+	public SingleFlight(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * @param operation operation code, tag of the metric
+	 * @param key identity of the call, e.g. the resolved URL
+	 * @param waitMs how long this caller waits for the result, e.g. the remaining budget of its request
+	 * @param call makes the upstream call, invoked only if no identical call is in flight
+	 * @return the result of the call in flight for the key
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Future<T> execute(String operation, String key, long waitMs, Supplier<Future<T>> call) {
+
+		Promise<T> leader = Promise.promise();
+		Future<T> existing = (Future<T>) inFlight.putIfAbsent(key, leader.future());
+		if (existing != null) {
+			savedCounter(operation).increment();
+			log.debug("Call coalesced with the one in flight - operation: {}", operation);
+			return onCurrentContext(existing, waitMs);
+		}
+
+		Future<T> result;
+		try {
+			result = call.get();
+		} catch (RuntimeException e) {
+			result = Future.failedFuture(e);
+		}
+		result.onComplete(ar -> {
+			// removed before completing, a caller arriving now makes a new call
+			inFlight.remove(key, leader.future());
+			leader.handle(ar);
+		});
+		return onCurrentContext(leader.future(), waitMs);
+	}
+
+	/**
+	 * @return the number of calls in flight
+	 */
+	public int size() {
+		return inFlight.size();
+	}
+
+	private Counter savedCounter(String operation) {
+		return saved.computeIfAbsent(operation, op -> Counter.builder("conto.singleflight.saved")
+				.description("Upstream calls saved by coalescing identical calls in flight")
+				.tag("operation", op)
+				.register(meterRegistry));
+	}
+
+	private static <T> Future<T> onCurrentContext(Future<T> future, long waitMs) {
+		Context context = Vertx.currentContext();
+		if (context == null) {
+			return future;
+		}
+		Promise<T> promise = Promise.promise();
+		long timer = context.owner().setTimer(Math.max(1, waitMs), id -> promise.tryFail(
+				new TimeoutException("No result of the call in flight within " + waitMs + " ms")));
+		future.onComplete(ar -> context.runOnContext(v -> {
+			context.owner().cancelTimer(timer);
+			if (ar.succeeded()) {
+				promise.tryComplete(ar.result());
+			} else {
+				promise.tryFail(ar.cause());
+			}
+		}));
+		return promise.future();
+	}
+}
@@ -0,0 +1,34 @@
+package it.demo.fabrick.utils;
+
+import io.reactiverse.contextual.logging.ContextualData;
+
+/**
+ * Page size of the chunked reply requested for the request being processed.
+ * It is set by SocketServerVerticle on every request and kept in the ContextualData of the request, like the
+ * deadline: the event bus interceptors carry it in the "pageSize" header up to the verticle running the operation.
+ * 0, or no value in the context, means a single reply.
+ */
+public final class ChunkedReply {
+
+	public static final String KEY = "pageSize";
+
+	private static final String SINGLE_REPLY = "0";
+
+	private ChunkedReply() {
+	}
+
+	/**
+	 * @param pageSize maximum number of elements of a chunk, 0 for a single reply
+	 */
+	public static void request(int pageSize) {
+		ContextualData.put(KEY, pageSize > 0 ? Integer.toString(pageSize) : SINGLE_REPLY);
+	}
+
+	/**
+	 * @return the page size requested for the current request, 0 for a single reply
+	 */
+	public static int pageSize() {
+		String pageSize = ContextualData.get(KEY);
+		return pageSize == null ? 0 : Integer.parseInt(pageSize);
+	}
+}
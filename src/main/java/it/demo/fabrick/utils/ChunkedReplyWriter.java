@@ -0,0 +1,161 @@
+package it.demo.fabrick.utils;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+import it.demo.fabrick.dto.ErrorCode;
+
+/**
+ * Writer of the chunked replies of a connection.
+ * The frames are produced one at a time and only while the socket write queue has room: when it is full the writer
+ * stops and goes on from the drain handler, so a slow client holds at most the write queue plus one page in memory.
+ * The queued replies hold their whole response: the caller keeps them within the in-flight limits of the connection
+ * by completing the request only from the done handler of the reply.
+ * The chunked replies of a connection are written one after the other, never interleaved among them; the single
+ * replies are written as soon as they are ready, also between two chunks (clients pipelining requests tell them
+ * apart by the correlation id).
+ * Not thread safe: used on the event loop of the connection.
+ */
+public class ChunkedReplyWriter {
+
+	private static final Logger log = LoggerFactory.getLogger(ChunkedReplyWriter.class);
+
+	private final WriteStream<Buffer> socket;
+	private final ResponseEncoder responseEncoder;
+	private final Deque<Reply> pending = new ArrayDeque<>();
+	private Reply current;
+	private boolean closed;
+
+	/**
+	 * @param socket connection the replies are written to, its drain handler is taken by the writer
+	 * @param responseEncoder encoder of the frames
+	 */
+	public ChunkedReplyWriter(WriteStream<Buffer> socket, ResponseEncoder responseEncoder) {
+		this.socket = socket;
+		this.responseEncoder = responseEncoder;
+		socket.drainHandler(v -> drain());
+	}
+
+	/**
+	 * Queue a chunked reply, it is written after the ones already queued.
+	 *
+	 * @param correlationId client correlation id, empty if not used
+	 * @param requestId request id, for the error frame and the log
+	 * @param pages pages of the reply, closed when written
+	 * @param done called once, when the reply has been written or dropped because the connection has been closed
+	 */
+	public void write(String correlationId, String requestId, TransactionPages pages, Handler<Void> done) {
+
+		Reply reply = new Reply(correlationId, requestId, pages, done);
+		if (closed) {
+			log.debug("Connection closed, chunked reply dropped - requestId: {}", requestId);
+			end(reply);
+			return;
+		}
+		pending.add(reply);
+		if (current == null) {
+			current = pending.poll();
+			drain();
+		}
+	}
+
+	/**
+	 * @return the chunked replies not completely written yet, the one being written included
+	 */
+	public int size() {
+		return pending.size() + (current == null ? 0 : 1);
+	}
+
+	/**
+	 * The connection has been closed: the replies not written yet are dropped.
+	 */
+	public void close() {
+
+		closed = true;
+		if (current != null) {
+			log.debug("Connection closed, chunked reply dropped - requestId: {}", current.requestId);
+			Reply reply = current;
+			current = null;
+			end(reply);
+		}
+		Reply reply;
+		while ((reply = pending.poll()) != null) {
+			end(reply);
+		}
+	}
+
+	private void drain() {
+
+		while (current != null && !socket.writeQueueFull()) {
+			Buffer frame = nextFrame(current);
+			if (frame == null) {
+				log.debug("Chunked reply sent - requestId: {}, transactions: {}", current.requestId,
+						current.pages.total());
+				Reply reply = current;
+				current = pending.poll();
+				end(reply);
+			} else {
+				socket.write(frame);
+			}
+		}
+	}
+
+	/**
+	 * @return the next frame of the reply, null when the terminator has been written
+	 */
+	private Buffer nextFrame(Reply reply) {
+
+		if (reply.ended) {
+			return null;
+		}
+		if (!reply.started) {
+			reply.started = true;
+			return responseEncoder.chunkedHeader(reply.correlationId, reply.pages.total());
+		}
+		if (!reply.pages.hasNext()) {
+			reply.ended = true;
+			return responseEncoder.chunkedEnd(reply.correlationId);
+		}
+		try {
+			return responseEncoder.chunk(reply.correlationId, reply.pages.next());
+		} catch (IOException e) {
+			// the header has been written already: the error frame ends the reply
+			log.error("Chunked reply failed - requestId: {}", reply.requestId, e);
+			reply.ended = true;
+			return responseEncoder.error(reply.correlationId, reply.requestId, ErrorCode.PARSE_ERROR,
+					"Failed to parse transactions response: " + e.getMessage());
+		}
+	}
+
+	private static void end(Reply reply) {
+		try {
+			reply.pages.close();
+		} catch (IOException e) {
+			log.warn("Failed to close the transactions pages", e);
+		}
+		reply.done.handle(null);
+	}
+
+	private static final class Reply {
+		private final String correlationId;
+		private final String requestId;
+		private final TransactionPages pages;
+		private final Handler<Void> done;
+		private boolean started;
+		private boolean ended;
+
+		private Reply(String correlationId, String requestId, TransactionPages pages, Handler<Void> done) {
+			this.correlationId = correlationId;
+			this.requestId = requestId;
+			this.pages = pages;
+			this.done = done;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package it.demo.fabrick.utils;
+
+import io.reactiverse.contextual.logging.ContextualData;
+
+/**
+ * Absolute deadline of the request being processed, as epoch milliseconds.
+ * It is stamped by SocketServerVerticle when the request is received and kept in the ContextualData of the
+ * request, next to the requestId: the event bus interceptors carry it in the "deadline" header, so every stage
+ * sees the same deadline and uses the remaining budget as its timeout.
+ * Outside of a request (no deadline in the context) the given default timeouts apply.
+ */
+public final class Deadline {
+
+	public static final String KEY = "deadline";
+
+	private Deadline() {
+	}
+
+	/**
+	 * Stamp the deadline of the current request.
+	 *
+	 * @param timeoutMs time budget of the whole request
+	 */
+	public static void start(long timeoutMs) {
+		ContextualData.put(KEY, Long.toString(System.currentTimeMillis() + timeoutMs));
+	}
+
+	/**
+	 * @param defaultTimeoutMs timeout of the stage, also used when the request has no deadline
+	 * @return the timeout of the stage: the remaining budget of the request if shorter, 0 if expired
+	 */
+	public static long remainingMs(long defaultTimeoutMs) {
+		String deadline = ContextualData.get(KEY);
+		if (deadline == null) {
+			return defaultTimeoutMs;
+		}
+		return Math.min(defaultTimeoutMs, Math.max(0, Long.parseLong(deadline) - System.currentTimeMillis()));
+	}
+
+	/**
+	 * @param defaultTimeoutMs timeout of the stage, also used when the request has no deadline
+	 * @return {@link #remainingMs(long)} as a timeout, at least 1 ms: Vert.x reads 0 as no timeout
+	 */
+	public static long timeoutMs(long defaultTimeoutMs) {
+		return Math.max(1, remainingMs(defaultTimeoutMs));
+	}
+
+	/**
+	 * @return true if the current request has a deadline and it has passed, its work must be dropped
+	 */
+	public static boolean isExpired() {
+		String deadline = ContextualData.get(KEY);
+		return deadline != null && System.currentTimeMillis() >= Long.parseLong(deadline);
+	}
+}
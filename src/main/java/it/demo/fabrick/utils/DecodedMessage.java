@@ -0,0 +1,81 @@
+package it.demo.fabrick.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Flyweight view of a positional message decoded with a {@link MessageLayout}.
+ * It keeps only the original message (for socket requests a view on the frame buffer) and the shared layout:
+ * fields are sliced on access, so a request creates no String or map entry per field.
+ * Immutable: it can be handed over the event bus, with the local codec, to the verticle running the operation.
+ * Instances are created by {@link MessageLayout#wrap(CharSequence)}.
+ */
+public final class DecodedMessage {
+
+	private final MessageLayout layout;
+	private final CharSequence message;
+
+	DecodedMessage(MessageLayout layout, CharSequence message) {
+		this.layout = layout;
+		this.message = message;
+	}
+
+	public MessageLayout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * @return the raw message
+	 */
+	public CharSequence getMessage() {
+		return message;
+	}
+
+	public int size() {
+		return layout.size();
+	}
+
+	/**
+	 * @param index field index in the layout
+	 * @return the field value, null for an empty NULLIFEMTPY field
+	 */
+	public CharSequence get(int index) {
+		return layout.slice(message, index);
+	}
+
+	/**
+	 * @param name field name
+	 * @return the field value, null if the layout has no such field or for an empty NULLIFEMTPY field
+	 */
+	public CharSequence get(String name) {
+		int index = layout.indexOf(name);
+		return index < 0 ? null : layout.slice(message, index);
+	}
+
+	/**
+	 * @param name field name
+	 * @return the field value as a String, null if the layout has no such field or for an empty NULLIFEMTPY field
+	 */
+	public String getString(String name) {
+		CharSequence value = get(name);
+		return value == null ? null : value.toString();
+	}
+
+	/**
+	 * Materialize all the fields, same result as {@link MessageLayout#decode(String)}.
+	 *
+	 * @return field names mapped to the decoded values
+	 */
+	public Map<String, String> toMap() {
+		Map<String, String> mappaMessageIn = new HashMap<>(layout.size() * 2);
+		for (int i = 0; i < layout.size(); i++) {
+			mappaMessageIn.put(layout.getName(i), layout.field(message, i));
+		}
+		return mappaMessageIn;
+	}
+
+	@Override
+	public String toString() {
+		return message.toString();
+	}
+}
@@ -0,0 +1,79 @@
+package it.demo.fabrick.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bounded registry of the requests in flight on a single socket connection.
+ * Keyed by the client correlation id, it rejects duplicates and new requests once the bound is reached,
+ * and lets late replies be dropped after the connection has been closed.
+ * Not thread safe: it must only be used from the event loop owning the connection.
+ */
+public class InFlightRequests {
+
+	private final Map<String, String> requests = new HashMap<>();
+	private final int maxInFlight;
+	private boolean closed = false;
+
+	/**
+	 * @param maxInFlight maximum number of requests in flight on the connection
+	 */
+	public InFlightRequests(int maxInFlight) {
+		if (maxInFlight <= 0) {
+			throw new IllegalArgumentException("Max in-flight requests must be positive (was: " + maxInFlight + ")");
+		}
+		this.maxInFlight = maxInFlight;
+	}
+
+	/**
+	 * Track a new request.
+	 *
+	 * @param correlationId client correlation id echoed in the reply
+	 * @param requestId server request id used for log correlation
+	 * @return false if the connection is closed, full, or the correlation id is already in flight
+	 */
+	public boolean register(String correlationId, String requestId) {
+		if (closed || requests.size() >= maxInFlight || requests.containsKey(correlationId)) {
+			return false;
+		}
+		requests.put(correlationId, requestId);
+		return true;
+	}
+
+	/**
+	 * Stop tracking a completed request.
+	 *
+	 * @param correlationId client correlation id
+	 * @return false if the request is no longer tracked (connection closed), so the reply must be dropped
+	 */
+	public boolean complete(String correlationId) {
+		return requests.remove(correlationId) != null;
+	}
+
+	/**
+	 * @param correlationId client correlation id
+	 * @return true if a request with the correlation id is in flight
+	 */
+	public boolean contains(String correlationId) {
+		return requests.containsKey(correlationId);
+	}
+
+	/**
+	 * @return true if no more requests can be accepted
+	 */
+	public boolean isFull() {
+		return requests.size() >= maxInFlight;
+	}
+
+	public int size() {
+		return requests.size();
+	}
+
+	/**
+	 * Forget all the requests in flight, called when the connection is closed.
+	 */
+	public void close() {
+		closed = true;
+		requests.clear();
+	}
+}
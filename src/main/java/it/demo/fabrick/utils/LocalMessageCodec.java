@@ -0,0 +1,61 @@
+package it.demo.fabrick.utils;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+
+/**
+ * Event bus codec passing the message body by reference, with no serialization and no copy.
+ * Only for local delivery of immutable (or no longer modified) objects, the consumers are registered with
+ * {@code localConsumer}:
+ * - the codec named {@link #NAME} is selected with {@code DeliveryOptions.setCodecName(LocalMessageCodec.NAME)},
+ *   e.g. for the views on the socket frame
+ * - the codecs created with {@link #forType(Class)} are registered as default codecs of their type
+ *   (OperationRequest, OperationConfig, OperationResult), no codec name is needed when sending them
+ */
+public class LocalMessageCodec<T> implements MessageCodec<T, T> {
+
+	public static final String NAME = "local";
+
+	private final String name;
+
+	public LocalMessageCodec() {
+		this(NAME);
+	}
+
+	private LocalMessageCodec(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @param type type of the message body
+	 * @return the codec to register with {@code EventBus.registerDefaultCodec}
+	 */
+	public static <T> LocalMessageCodec<T> forType(Class<T> type) {
+		return new LocalMessageCodec<>(NAME + "-" + type.getName());
+	}
+
+	@Override
+	public void encodeToWire(Buffer buffer, T body) {
+		throw new UnsupportedOperationException("Local codec, messages cannot be sent over the wire");
+	}
+
+	@Override
+	public T decodeFromWire(int pos, Buffer buffer) {
+		throw new UnsupportedOperationException("Local codec, messages cannot be received from the wire");
+	}
+
+	@Override
+	public T transform(T body) {
+		return body;
+	}
+
+	@Override
+	public String name() {
+		return name;
+	}
+
+	@Override
+	public byte systemCodecID() {
+		return -1;
+	}
+}
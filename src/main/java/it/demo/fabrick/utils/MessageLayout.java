@@ -0,0 +1,257 @@
+package it.demo.fabrick.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import it.demo.fabrick.exception.ExceptionMessageIn;
+
+/**
+ * Compiled layout of a positional input message (CONTO_CONFIGURATION.MESSAGE_IN).
+ * The configuration string is parsed once into arrays of field names, offsets, widths and modes,
+ * so decoding a message is a single pass over the offsets with no regex and no integer parsing.
+ * Immutable and thread safe: a layout can be shared by all the verticle instances.
+ * A message can be decoded into a map ({@link #decode(String)}) or wrapped in a {@link DecodedMessage} flyweight.
+ * Field modes, from the configuration value:
+ * - NULLIFEMTPY<N>: N characters trimmed, null if empty
+ * - NOTRIM<N>: N characters as they are
+ * - <AAA><N>: N characters without leading zeros (the last one is kept), trimmed
+ * - <N>: N characters trimmed
+ */
+public final class MessageLayout {
+
+	public enum FieldMode {
+		TRIM,
+		NOTRIM,
+		NULLIFEMPTY,
+		STRIP_ZEROS
+	}
+
+	// the misspelling is part of the configuration format stored on DB
+	private static final String PREFIX_NULLIFEMPTY = "NULLIFEMTPY";
+	private static final String PREFIX_NOTRIM = "NOTRIM";
+	private static final int CODE_LENGTH = 3;
+
+	private final String configuration;
+	private final String[] names;
+	private final int[] offsets;
+	private final int[] widths;
+	private final FieldMode[] modes;
+	private final Map<String, Integer> indexByName;
+	private final int length;
+
+	private MessageLayout(String configuration, Map<String, String> fields) {
+
+		this.configuration = configuration;
+		int size = fields.size();
+		this.names = new String[size];
+		this.offsets = new int[size];
+		this.widths = new int[size];
+		this.modes = new FieldMode[size];
+		this.indexByName = new HashMap<>(size * 2);
+
+		int i = 0;
+		int offset = 0;
+		for (Map.Entry<String, String> field : fields.entrySet()) {
+
+			String valore = field.getValue();
+			FieldMode mode;
+			String width;
+			if (valore.startsWith(PREFIX_NULLIFEMPTY)) {
+				mode = FieldMode.NULLIFEMPTY;
+				width = valore.substring(PREFIX_NULLIFEMPTY.length());
+			} else if (valore.startsWith(PREFIX_NOTRIM)) {
+				mode = FieldMode.NOTRIM;
+				width = valore.substring(PREFIX_NOTRIM.length());
+			} else if (isCode(valore)) {
+				mode = FieldMode.STRIP_ZEROS;
+				width = valore.substring(CODE_LENGTH);
+			} else {
+				mode = FieldMode.TRIM;
+				width = valore;
+			}
+
+			names[i] = field.getKey();
+			offsets[i] = offset;
+			widths[i] = parseWidth(field.getKey(), width);
+			modes[i] = mode;
+			indexByName.put(field.getKey(), i);
+
+			offset += widths[i];
+			i++;
+		}
+		this.length = offset;
+	}
+
+	/**
+	 * @param configuration layout in the "field1=width1;field2=width2" format
+	 * @return the compiled layout
+	 * @throws IllegalArgumentException if a field width is not valid
+	 */
+	public static MessageLayout compile(String configuration) {
+		return new MessageLayout(configuration, MessageParserUtil.parseConfiguration(configuration));
+	}
+
+	/**
+	 * @param fields field names mapped to their width definition, in message order
+	 * @return the compiled layout
+	 * @throws IllegalArgumentException if a field width is not valid
+	 */
+	public static MessageLayout compile(Map<String, String> fields) {
+		return new MessageLayout(null, fields);
+	}
+
+	private static boolean isCode(String valore) {
+		if (valore.length() < CODE_LENGTH) {
+			return false;
+		}
+		for (int i = 0; i < CODE_LENGTH; i++) {
+			char c = valore.charAt(i);
+			if (c < 'A' || c > 'Z') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int parseWidth(String name, String width) {
+		int value;
+		try {
+			value = Integer.parseInt(width);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid width for field " + name + ": " + width, e);
+		}
+		if (value < 0) {
+			throw new IllegalArgumentException("Invalid width for field " + name + ": " + width);
+		}
+		return value;
+	}
+
+	/**
+	 * Decode a message into a map of field values.
+	 *
+	 * @param message the raw input message
+	 * @return field names mapped to the decoded values
+	 * @throws ExceptionMessageIn if the message is shorter than the layout
+	 */
+	public Map<String, String> decode(String message) throws ExceptionMessageIn {
+
+		if (message.length() < length) {
+			throw new ExceptionMessageIn();
+		}
+
+		Map<String, String> mappaMessageIn = new HashMap<>(names.length * 2);
+		for (int i = 0; i < names.length; i++) {
+			mappaMessageIn.put(names[i], field(message, i));
+		}
+		return mappaMessageIn;
+	}
+
+	/**
+	 * Wrap a message without decoding it: fields are sliced from it only when read.
+	 *
+	 * @param message the raw input message, e.g. a view on the socket frame
+	 * @return the flyweight decoded message
+	 * @throws ExceptionMessageIn if the message is shorter than the layout
+	 */
+	public DecodedMessage wrap(CharSequence message) throws ExceptionMessageIn {
+
+		if (message.length() < length) {
+			throw new ExceptionMessageIn();
+		}
+		return new DecodedMessage(this, message);
+	}
+
+	/**
+	 * Decode a single field of a message, the message must be at least {@link #getLength()} characters long.
+	 *
+	 * @param message the raw input message
+	 * @param index field index
+	 * @return the decoded value, null for an empty NULLIFEMTPY field
+	 */
+	public String field(CharSequence message, int index) {
+		CharSequence slice = slice(message, index);
+		return slice == null ? null : slice.toString();
+	}
+
+	/**
+	 * Slice a single field of a message, the message must be at least {@link #getLength()} characters long.
+	 *
+	 * @param message the raw input message
+	 * @param index field index
+	 * @return the field as a subsequence of the message, null for an empty NULLIFEMTPY field
+	 */
+	public CharSequence slice(CharSequence message, int index) {
+
+		int start = offsets[index];
+		int end = start + widths[index];
+
+		switch (modes[index]) {
+		case NOTRIM:
+			return message.subSequence(start, end);
+		case STRIP_ZEROS:
+			// same as replaceFirst("^0+(?!$)", "") followed by trim
+			while (start < end - 1 && message.charAt(start) == '0') {
+				start++;
+			}
+			break;
+		default:
+			break;
+		}
+
+		// same as String.trim, without copying the characters
+		while (start < end && message.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && message.charAt(end - 1) <= ' ') {
+			end--;
+		}
+
+		if (start == end) {
+			return modes[index] == FieldMode.NULLIFEMPTY ? null : Constants.EMPTY_STRING;
+		}
+		return message.subSequence(start, end);
+	}
+
+	/**
+	 * @param name field name
+	 * @return the field index, -1 if the layout has no such field
+	 */
+	public int indexOf(String name) {
+		Integer index = indexByName.get(name);
+		return index == null ? -1 : index;
+	}
+
+	public int size() {
+		return names.length;
+	}
+
+	public String getName(int index) {
+		return names[index];
+	}
+
+	public int getOffset(int index) {
+		return offsets[index];
+	}
+
+	public int getWidth(int index) {
+		return widths[index];
+	}
+
+	public FieldMode getMode(int index) {
+		return modes[index];
+	}
+
+	/**
+	 * @return the minimum message length, i.e. the sum of the field widths
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the configuration string the layout was compiled from, null if compiled from a map
+	 */
+	public String getConfiguration() {
+		return configuration;
+	}
+}
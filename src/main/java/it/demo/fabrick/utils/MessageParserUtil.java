@@ -3,12 +3,8 @@ package it.demo.fabrick.utils;
 import it.demo.fabrick.exception.ExceptionMessageIn;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Utility class for message parsing, URL parameter substitution, and input validation.
@@ -16,13 +12,6 @@ import java.util.regex.Pattern;
  */
 public class MessageParserUtil {
 
-	private static final String REGEX_URL_PARAMETER = "(\\{.+?\\})";
-
-	// Constants for message parsing patterns
-	public static final String PATTERN_NULLIFEMPTY = "^NULLIFEMTPY.*";
-	public static final String PATTERN_NOTRIM = "^NOTRIM.*";
-	public static final String PATTERN_THREE_LETTER_CODE = "^[A-Z]{3}.*";
-
 	// Constants for operation codes
 	public static final String OPERATION_LIS = "LIS";
 	public static final String OPERATION_SAL = "SAL";
@@ -68,61 +57,13 @@ public class MessageParserUtil {
 	 * @param creaConfigurazioneInput configuration map defining field parsing rules
 	 * @return map of field names to parsed values
 	 * @throws ExceptionMessageIn if message format doesn't match configuration
+	 * @see MessageLayout
 	 */
 	public static Map<String, String> decodeMessage(String messageInInput, Map<String, String> creaConfigurazioneInput)
 			throws ExceptionMessageIn {
 
-		Map<String, String> mappaMessageIn = new HashMap<>();
-
-		int start = 0;
-		int end = 0;
-
-		Set<String> keySet = creaConfigurazioneInput.keySet();
-		for (String key : keySet) {
-
-			String valore = creaConfigurazioneInput.get(key);
-			String substring = null;
-
-			try {
-
-				if (Pattern.matches(PATTERN_NULLIFEMPTY, valore)) {
-
-					start = end;
-					end = start + Integer.valueOf(valore.substring(11));
-					substring = messageInInput.substring(start, end).trim();
-
-					if (substring.isEmpty()) {
-						substring = null;
-					}
-
-				} else if (Pattern.matches(PATTERN_NOTRIM, valore)) {
-
-					start = end;
-					end = start + Integer.valueOf(valore.substring(6));
-					substring = messageInInput.substring(start, end);
-
-				} else if (Pattern.matches(PATTERN_THREE_LETTER_CODE, valore)) {
-
-					start = end;
-					end = start + Integer.valueOf(valore.substring(3));
-					substring = messageInInput.substring(start, end).replaceFirst("^0+(?!$)", Constants.EMPTY_STRING)
-							.trim();
-
-				} else {
-
-					start = end;
-					end = start + Integer.valueOf(valore);
-					substring = messageInInput.substring(start, end).trim();
-				}
-
-			} catch (StringIndexOutOfBoundsException e) {
-				throw new ExceptionMessageIn();
-			}
-
-			mappaMessageIn.put(key, substring);
-		}
-
-		return mappaMessageIn;
+		// callers decoding many messages with the same configuration should compile the layout once and reuse it
+		return MessageLayout.compile(creaConfigurazioneInput).decode(messageInInput);
 	}
 
 	/**
@@ -173,7 +114,7 @@ public class MessageParserUtil {
 
 	/**
 	 * Replace URL placeholders {key} with values from params map.
-	 * Uses regex to find and replace parameters in URL.
+	 * Callers building many URLs from the same template should compile it once with {@link UrlTemplate}.
 	 *
 	 * @param mappaMessageIn map of parameter names to values
 	 * @param indirizzo URL string containing {placeholder} parameters
@@ -181,21 +122,7 @@ public class MessageParserUtil {
 	 */
 	public static String substituteUrlParameters(Map<String, String> mappaMessageIn, String indirizzo) {
 
-		String result = null;
-		StringBuffer builder = new StringBuffer();
-		Matcher matcher = Pattern.compile(REGEX_URL_PARAMETER).matcher(indirizzo);
-		while (matcher.find()) {
-
-			String key = matcher.group();
-			key = key.substring(1, key.length() - 1);
-			String value = mappaMessageIn.get(key);
-
-			matcher.appendReplacement(builder, value);
-		}
-
-		matcher.appendTail(builder);
-
-		result = builder.toString();
+		String result = UrlTemplate.compile(indirizzo).expand(mappaMessageIn::get);
 		if (Constants.EMPTY_STRING.equals(result)) {
 			result = indirizzo;
 		}
@@ -205,23 +132,35 @@ public class MessageParserUtil {
 
 	/**
 	 * Pad string right to specified length.
+	 * Same result as String.format("%-Ns"), without parsing a format string on every call.
 	 *
 	 * @param stringa string to pad
 	 * @param lunghezza target length
 	 * @return right-padded string
 	 */
 	public static String padRight(String stringa, int lunghezza) {
-		return String.format("%-" + lunghezza + "s", stringa);
+		String value = String.valueOf(stringa);
+		int padding = lunghezza - value.length();
+		if (padding <= 0) {
+			return value;
+		}
+		return new StringBuilder(lunghezza).append(value).repeat(' ', padding).toString();
 	}
 
 	/**
 	 * Pad string left to specified length.
+	 * Same result as String.format("%Ns"), without parsing a format string on every call.
 	 *
 	 * @param stringa string to pad
 	 * @param lunghezza target length
 	 * @return left-padded string
 	 */
 	public static String padLeft(String stringa, int lunghezza) {
-		return String.format("%" + lunghezza + "s", stringa);
+		String value = String.valueOf(stringa);
+		int padding = lunghezza - value.length();
+		if (padding <= 0) {
+			return value;
+		}
+		return new StringBuilder(lunghezza).repeat(' ', padding).append(value).toString();
 	}
 }
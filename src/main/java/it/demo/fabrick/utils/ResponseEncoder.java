@@ -0,0 +1,148 @@
+package it.demo.fabrick.utils;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import io.vertx.core.buffer.Buffer;
+import it.demo.fabrick.dto.ErrorCode;
+
+/**
+ * Encoder of the fixed-width socket replies.
+ * The status byte, the payload and the space padding are written directly into a single buffer
+ * sized for the whole frame, with no intermediate String: the padding is copied from a precomputed
+ * array of encoded spaces, so its cost does not depend on the payload size.
+ * Reply format:
+ * - success: [correlation id] 0 + payload, right padded with spaces to the minimum length
+ * - error: [correlation id] 1[requestId][error code] + message
+ * Chunked reply, a frame per part, not padded:
+ * - header: [correlation id] 2 + total number of elements
+ * - chunk: [correlation id] 3 + JSON array of at most page size elements
+ * - end: [correlation id] 4
+ * An error frame in place of a chunk or of the end frame terminates the chunked reply.
+ */
+public class ResponseEncoder {
+
+	public static final int DEFAULT_MIN_LENGTH = 500;
+
+	private static final String STATUS_OK = "0";
+	private static final String STATUS_CHUNKED = "2";
+	private static final String STATUS_CHUNK = "3";
+	private static final String STATUS_END = "4";
+	private static final String ERROR_OPEN = "1[";
+	private static final String ERROR_CLOSE = "][";
+	private static final String CODE_CLOSE = "] ";
+
+	private final WireCodec codec;
+	private final SocketFraming framing;
+	private final int minLength;
+	private final Buffer statusOk;
+	private final Buffer statusChunked;
+	private final Buffer statusChunk;
+	private final Buffer statusEnd;
+	private final Buffer errorOpen;
+	private final Buffer errorClose;
+	// "CODE] " encoded once per error code
+	private final Map<ErrorCode, Buffer> errorCodes = new EnumMap<>(ErrorCode.class);
+	private final byte[] padding;
+
+	/**
+	 * @param codec charset codec used on the socket
+	 * @param framing framing of the replies
+	 * @param minLength minimum length of a success reply (status included), shorter replies are padded with spaces
+	 */
+	public ResponseEncoder(WireCodec codec, SocketFraming framing, int minLength) {
+		this.codec = codec;
+		this.framing = framing;
+		this.minLength = minLength;
+		this.statusOk = codec.encode(STATUS_OK);
+		this.statusChunked = codec.encode(STATUS_CHUNKED);
+		this.statusChunk = codec.encode(STATUS_CHUNK);
+		this.statusEnd = codec.encode(STATUS_END);
+		this.errorOpen = codec.encode(ERROR_OPEN);
+		this.errorClose = codec.encode(ERROR_CLOSE);
+		for (ErrorCode errorCode : ErrorCode.values()) {
+			errorCodes.put(errorCode, codec.encode(errorCode.name() + CODE_CLOSE));
+		}
+
+		this.padding = codec.encode(" ".repeat(minLength)).getBytes();
+	}
+
+	/**
+	 * @param correlationId client correlation id, empty if not used
+	 * @param payload reply of the operation
+	 * @return the framed success reply
+	 */
+	public Buffer success(String correlationId, CharSequence payload) {
+
+		int length = STATUS_OK.length() + payload.length();
+		int paddingLength = Math.max(0, minLength - length);
+
+		Buffer out = framing.newFrame(correlationId.length() + length + paddingLength);
+		codec.encode(correlationId, out);
+		out.appendBuffer(statusOk);
+		codec.encode(payload, out);
+		// the padding is made of single-byte spaces also in multi-byte charsets
+		out.appendBytes(padding, 0, paddingLength);
+
+		return framing.endFrame(out);
+	}
+
+	/**
+	 * @param correlationId client correlation id, empty if not used
+	 * @param total number of elements of the chunked reply
+	 * @return the framed header of a chunked reply
+	 */
+	public Buffer chunkedHeader(String correlationId, int total) {
+		return part(correlationId, statusChunked, Integer.toString(total));
+	}
+
+	/**
+	 * @param correlationId client correlation id, empty if not used
+	 * @param chunk a page of the reply
+	 * @return the framed chunk
+	 */
+	public Buffer chunk(String correlationId, CharSequence chunk) {
+		return part(correlationId, statusChunk, chunk);
+	}
+
+	/**
+	 * @param correlationId client correlation id, empty if not used
+	 * @return the framed terminator of a chunked reply
+	 */
+	public Buffer chunkedEnd(String correlationId) {
+		return part(correlationId, statusEnd, "");
+	}
+
+	private Buffer part(String correlationId, Buffer status, CharSequence payload) {
+
+		Buffer out = framing.newFrame(correlationId.length() + status.length() + payload.length());
+		codec.encode(correlationId, out);
+		out.appendBuffer(status);
+		codec.encode(payload, out);
+
+		return framing.endFrame(out);
+	}
+
+	/**
+	 * @param correlationId client correlation id, empty if not used
+	 * @param requestId request id, for log correlation
+	 * @param errorCode semantic error code
+	 * @param message error message
+	 * @return the framed error reply
+	 */
+	public Buffer error(String correlationId, String requestId, ErrorCode errorCode, String message) {
+
+		String text = String.valueOf(message);
+		Buffer code = errorCodes.get(errorCode);
+		Buffer out = framing.newFrame(correlationId.length() + ERROR_OPEN.length() + requestId.length()
+				+ ERROR_CLOSE.length() + code.length() + text.length());
+		codec.encode(correlationId, out);
+		out.appendBuffer(errorOpen);
+		codec.encode(requestId, out);
+		out.appendBuffer(errorClose);
+		out.appendBuffer(code);
+		codec.encode(text, out);
+
+		return framing.endFrame(out);
+	}
+}
@@ -0,0 +1,152 @@
+package it.demo.fabrick.utils;
+
+import java.nio.charset.Charset;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.parsetools.RecordParser;
+
+/**
+ * Framing layer for the TCP socket protocol.
+ * TCP does not preserve message boundaries, so every inbound buffer is fed to a {@link RecordParser}
+ * that re-assembles complete frames regardless of how they were split or merged on the wire.
+ * Supported modes:
+ * - DELIMITER: each frame ends with a configurable terminator (default END-OF-BUFFER, encoded in the socket charset)
+ * - LENGTH: each frame starts with a 4 byte big-endian length header followed by the payload
+ * Replies are framed with the same mode, so clients can keep the connection open and read many replies.
+ */
+public class SocketFraming {
+
+	public static final String DEFAULT_DELIMITER = "END-OF-BUFFER";
+	public static final int LENGTH_HEADER_SIZE = 4;
+
+	public enum Mode {
+		DELIMITER,
+		LENGTH
+	}
+
+	private final Mode mode;
+	private final Buffer delimiter;
+	private final int maxFrameSize;
+
+	/**
+	 * @param mode framing mode
+	 * @param delimiter frame terminator, used only in DELIMITER mode
+	 * @param charset charset used on the wire, the delimiter is encoded with it
+	 * @param maxFrameSize maximum accepted frame size in bytes (header and terminator excluded)
+	 */
+	public SocketFraming(Mode mode, String delimiter, Charset charset, int maxFrameSize) {
+		if (maxFrameSize <= 0) {
+			throw new IllegalArgumentException("Max frame size must be positive (was: " + maxFrameSize + ")");
+		}
+		if (mode == Mode.DELIMITER && (delimiter == null || delimiter.isEmpty())) {
+			throw new IllegalArgumentException("Delimiter is required in DELIMITER framing mode");
+		}
+		this.mode = mode;
+		this.delimiter = mode == Mode.DELIMITER ? Buffer.buffer(delimiter.getBytes(charset)) : null;
+		this.maxFrameSize = maxFrameSize;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Create a new parser for a single connection. The parser is stateful and must not be shared.
+	 *
+	 * @param frameHandler invoked with the payload of every complete frame
+	 * @param errorHandler invoked when the peer sends a frame that violates the protocol
+	 * @return the parser to register as socket handler
+	 */
+	public RecordParser newParser(Handler<Buffer> frameHandler, Handler<Throwable> errorHandler) {
+
+		if (mode == Mode.DELIMITER) {
+			// maxRecordSize only guards the pending data, a complete frame received in one read is checked here
+			RecordParser parser = RecordParser.newDelimited(delimiter, frame -> {
+				if (frame.length() > maxFrameSize) {
+					errorHandler.handle(new IllegalStateException(
+							"Frame too large: " + frame.length() + " bytes (max: " + maxFrameSize + ")"));
+					return;
+				}
+				frameHandler.handle(frame);
+			});
+			parser.maxRecordSize(maxFrameSize);
+			parser.exceptionHandler(errorHandler);
+			return parser;
+		}
+
+		RecordParser parser = RecordParser.newFixed(LENGTH_HEADER_SIZE);
+		parser.handler(new Handler<Buffer>() {
+
+			private boolean readingHeader = true;
+
+			@Override
+			public void handle(Buffer buffer) {
+
+				if (readingHeader) {
+					int length = buffer.getInt(0);
+					if (length <= 0 || length > maxFrameSize) {
+						errorHandler.handle(new IllegalStateException(
+								"Invalid frame length: " + length + " (max: " + maxFrameSize + ")"));
+						return;
+					}
+					readingHeader = false;
+					parser.fixedSizeMode(length);
+				} else {
+					readingHeader = true;
+					parser.fixedSizeMode(LENGTH_HEADER_SIZE);
+					frameHandler.handle(buffer);
+				}
+			}
+		});
+		parser.exceptionHandler(errorHandler);
+		return parser;
+	}
+
+	/**
+	 * Allocate the buffer for a reply, with room for the frame header and trailer.
+	 * The payload must be appended to it and the frame completed with {@link #endFrame(Buffer)}.
+	 *
+	 * @param payloadLength expected payload length in bytes, used to size the buffer
+	 * @return the buffer to append the payload to
+	 */
+	public Buffer newFrame(int payloadLength) {
+
+		if (mode == Mode.DELIMITER) {
+			return Buffer.buffer(payloadLength + delimiter.length());
+		}
+
+		// length placeholder, set by endFrame
+		return Buffer.buffer(LENGTH_HEADER_SIZE + payloadLength).appendInt(0);
+	}
+
+	/**
+	 * Complete a frame allocated with {@link #newFrame(int)}.
+	 *
+	 * @param frame the buffer with the payload appended
+	 * @return the framed reply
+	 */
+	public Buffer endFrame(Buffer frame) {
+
+		if (mode == Mode.DELIMITER) {
+			return frame.appendBuffer(delimiter);
+		}
+
+		return frame.setInt(0, frame.length() - LENGTH_HEADER_SIZE);
+	}
+
+	/**
+	 * Wrap a reply payload in a frame.
+	 *
+	 * @param payload reply payload, in DELIMITER mode the terminator is appended to it
+	 * @return the framed reply
+	 */
+	public Buffer frame(Buffer payload) {
+
+		if (mode == Mode.DELIMITER) {
+			return payload.appendBuffer(delimiter);
+		}
+
+		return endFrame(newFrame(payload.length()).appendBuffer(payload));
+	}
+}
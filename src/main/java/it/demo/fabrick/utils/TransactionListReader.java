@@ -0,0 +1,149 @@
+package it.demo.fabrick.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import io.netty.buffer.ByteBufInputStream;
+import io.vertx.core.buffer.Buffer;
+import it.demo.fabrick.dto.ListaTransactionDto;
+
+/**
+ * Streaming reader of the payload.list array of a Fabrick transactions response.
+ * The response Buffer is parsed in place with the Jackson streaming parser: no String of the body, no TransactionDto.
+ * The elements are bound to ListaTransactionDto one at a time, either written at once into a generator
+ * ({@link #copy}) or collected when the objects are needed ({@link #read}): every transaction replied has the JSON of
+ * ListaTransactionDto, as the ones served from the cache and the ledger. The other fields of the response and of the
+ * elements are skipped.
+ */
+public final class TransactionListReader {
+
+	@FunctionalInterface
+	public interface ElementHandler {
+		/**
+		 * @param parser positioned on the START_OBJECT of the element, the handler consumes the whole element
+		 */
+		void handle(JsonParser parser) throws IOException;
+	}
+
+	private TransactionListReader() {
+	}
+
+	/**
+	 * @param factory JSON factory, e.g. the one of the application ObjectMapper
+	 * @param body transactions response
+	 * @param handler called for every element of payload.list
+	 * @return the number of elements
+	 * @throws IOException if the body is not a valid JSON object
+	 */
+	public static int forEach(JsonFactory factory, Buffer body, ElementHandler handler) throws IOException {
+
+		int count = 0;
+		try (JsonParser parser = openList(factory, body)) {
+			while (parser != null && parser.nextToken() != JsonToken.END_ARRAY) {
+				handler.handle(parser);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @param factory JSON factory, e.g. the one of the application ObjectMapper
+	 * @param body transactions response
+	 * @return a parser positioned on the START_ARRAY of payload.list, to be closed by the caller; null if the
+	 *         response has no list
+	 * @throws IOException if the body is not a valid JSON object
+	 */
+	public static JsonParser openList(JsonFactory factory, Buffer body) throws IOException {
+
+		JsonParser parser = factory.createParser(inputStream(body));
+		try {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new JsonParseException(parser, "Transactions response is not a JSON object");
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.currentName();
+				if (parser.nextToken() != JsonToken.START_OBJECT || !"payload".equals(name)) {
+					parser.skipChildren();
+					continue;
+				}
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String field = parser.currentName();
+					if (parser.nextToken() == JsonToken.START_ARRAY && "list".equals(field)) {
+						return parser;
+					}
+					parser.skipChildren();
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			parser.close();
+			throw e;
+		}
+		parser.close();
+		return null;
+	}
+
+	/**
+	 * @return a stream reading the Netty buffer of the body, without copying it
+	 */
+	// getByteBuf() is deprecated in Vert.x 4.5 in favour of getBytes(), which would copy the whole body
+	@SuppressWarnings("deprecation")
+	private static InputStream inputStream(Buffer body) {
+		return new ByteBufInputStream(body.getByteBuf());
+	}
+
+	/**
+	 * @return the number of elements of payload.list, counted without binding them
+	 */
+	public static int count(JsonFactory factory, Buffer body) throws IOException {
+		return forEach(factory, body, JsonParser::skipChildren);
+	}
+
+	/**
+	 * @param generator receives the elements of payload.list as ListaTransactionDto, inside an array opened by the
+	 *        caller
+	 * @return the number of elements copied
+	 */
+	public static int copy(ObjectMapper mapper, Buffer body, JsonGenerator generator) throws IOException {
+		ObjectReader reader = elementReader(mapper);
+		return forEach(mapper.getFactory(), body, parser -> copyElement(mapper, reader, parser, generator));
+	}
+
+	/**
+	 * @param reader from {@link #elementReader}
+	 * @param parser positioned on the START_OBJECT of the element
+	 * @param generator receives the element as ListaTransactionDto
+	 */
+	public static void copyElement(ObjectMapper mapper, ObjectReader reader, JsonParser parser,
+			JsonGenerator generator) throws IOException {
+		mapper.writeValue(generator, reader.<ListaTransactionDto>readValue(parser));
+	}
+
+	/**
+	 * @return the elements of payload.list bound to ListaTransactionDto
+	 */
+	public static List<ListaTransactionDto> read(ObjectMapper mapper, Buffer body) throws IOException {
+		ObjectReader reader = elementReader(mapper);
+		List<ListaTransactionDto> transactions = new ArrayList<>();
+		forEach(mapper.getFactory(), body, parser -> transactions.add(reader.readValue(parser)));
+		return transactions;
+	}
+
+	/**
+	 * @return reader of the elements, the fields Fabrick may add are ignored
+	 */
+	public static ObjectReader elementReader(ObjectMapper mapper) {
+		return mapper.readerFor(ListaTransactionDto.class).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+	}
+}
@@ -0,0 +1,118 @@
+package it.demo.fabrick.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Iterator;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import io.vertx.core.buffer.Buffer;
+import it.demo.fabrick.dto.ListaTransactionDto;
+
+/**
+ * Transactions list replied in pages, for the chunked LIS replies.
+ * The elements of the Fabrick response are copied from its buffer one page at a time, while the socket takes them,
+ * with the JSON of ListaTransactionDto; the transactions served locally follow. The whole list is never written into a single String.
+ * Not thread safe: the pages are read by the socket server, one at a time.
+ */
+public final class TransactionPages implements Closeable {
+
+	private final ObjectMapper mapper;
+	private final ObjectReader reader;
+	private final int pageSize;
+	private final int total;
+	private final Iterator<ListaTransactionDto> local;
+	// positioned inside payload.list, null when there is no list or it has been read
+	private JsonParser parser;
+	private int written;
+
+	private TransactionPages(ObjectMapper mapper, int pageSize, int total, JsonParser parser,
+			List<ListaTransactionDto> local) {
+		this.mapper = mapper;
+		this.reader = TransactionListReader.elementReader(mapper);
+		this.pageSize = pageSize;
+		this.total = total;
+		this.parser = parser;
+		this.local = local.iterator();
+	}
+
+	/**
+	 * @param body Fabrick transactions response, its elements are counted here and copied page by page
+	 * @param local transactions following the ones of the response
+	 * @param pageSize maximum number of transactions of a page
+	 * @throws IOException if the body is not a valid JSON object
+	 */
+	public static TransactionPages of(ObjectMapper mapper, Buffer body, List<ListaTransactionDto> local, int pageSize)
+			throws IOException {
+
+		// the count is a pass on the tokens, the elements are not bound
+		int fetched = TransactionListReader.count(mapper.getFactory(), body);
+		JsonParser parser = fetched == 0 ? null : TransactionListReader.openList(mapper.getFactory(), body);
+		return new TransactionPages(mapper, pageSize, fetched + local.size(), parser, local);
+	}
+
+	/**
+	 * @param transactions transactions already bound to objects
+	 * @param pageSize maximum number of transactions of a page
+	 */
+	public static TransactionPages of(ObjectMapper mapper, List<ListaTransactionDto> transactions, int pageSize) {
+		return new TransactionPages(mapper, pageSize, transactions.size(), null, transactions);
+	}
+
+	/**
+	 * @return the number of transactions of all the pages
+	 */
+	public int total() {
+		return total;
+	}
+
+	public boolean hasNext() {
+		return written < total;
+	}
+
+	/**
+	 * @return the next page, a JSON array of at most pageSize transactions
+	 * @throws IOException if the Fabrick response cannot be read
+	 */
+	public String next() throws IOException {
+
+		StringWriter out = new StringWriter();
+		try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+			generator.writeStartArray();
+			int count = 0;
+			while (count < pageSize && parser != null) {
+				if (parser.nextToken() == JsonToken.END_ARRAY) {
+					close();
+					break;
+				}
+				TransactionListReader.copyElement(mapper, reader, parser, generator);
+				count++;
+			}
+			while (count < pageSize && local.hasNext()) {
+				mapper.writeValue(generator, local.next());
+				count++;
+			}
+			generator.writeEndArray();
+			written += count;
+		}
+		if (written < total && !local.hasNext() && parser == null) {
+			// fewer elements than counted, the response has changed under the parser
+			throw new IOException("Transactions list shorter than announced: " + written + " of " + total);
+		}
+		return out.toString();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (parser != null) {
+			parser.close();
+			parser = null;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package it.demo.fabrick.utils;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Pre-tokenized URL template (CONTO_INDIRIZZI.INDIRIZZO) with {name} placeholders.
+ * The template is split once into literal and parameter segments; the constant parameters (e.g. {account-number})
+ * are resolved at that point, so building a URL is a single append pass on a presized StringBuilder.
+ * Parameter values are URL-encoded: as form values in the query string, as path segments before it.
+ * Values made only of unreserved characters (dates, account numbers) are appended as they are.
+ * Immutable and thread safe.
+ */
+public final class UrlTemplate {
+
+	// extra room for every parameter when presizing the builder, enough for a date or an account number
+	private static final int PARAMETER_CAPACITY = 16;
+
+	private final String template;
+	// literals.length == parameters.length + 1, literals[i] precedes parameters[i]
+	private final String[] literals;
+	private final String[] parameters;
+	private final boolean[] inQuery;
+	private final int capacity;
+
+	private UrlTemplate(String template, List<String> literals, List<String> parameters, List<Boolean> inQuery) {
+		this.template = template;
+		this.literals = literals.toArray(new String[0]);
+		this.parameters = parameters.toArray(new String[0]);
+		this.inQuery = new boolean[parameters.size()];
+		for (int i = 0; i < this.inQuery.length; i++) {
+			this.inQuery[i] = inQuery.get(i);
+		}
+
+		int literalLength = 0;
+		for (String literal : this.literals) {
+			literalLength += literal.length();
+		}
+		this.capacity = literalLength + this.parameters.length * PARAMETER_CAPACITY;
+	}
+
+	/**
+	 * @param template URL with {name} placeholders
+	 * @return the compiled template
+	 */
+	public static UrlTemplate compile(String template) {
+		return compile(template, Map.of());
+	}
+
+	/**
+	 * @param template URL with {name} placeholders
+	 * @param constants placeholders resolved once, e.g. account-number
+	 * @return the compiled template
+	 */
+	public static UrlTemplate compile(String template, Map<String, String> constants) {
+
+		List<String> literals = new ArrayList<>();
+		List<String> parameters = new ArrayList<>();
+		List<Boolean> inQuery = new ArrayList<>();
+
+		StringBuilder literal = new StringBuilder();
+		boolean query = false;
+		int position = 0;
+		while (position < template.length()) {
+
+			int open = template.indexOf('{', position);
+			// same placeholders as the (\{.+?\}) regex: at least one character between the braces
+			int close = open < 0 ? -1 : template.indexOf('}', open + 2);
+			if (open < 0 || close < 0) {
+				literal.append(template, position, template.length());
+				break;
+			}
+
+			literal.append(template, position, open);
+			query |= literal.indexOf("?") >= 0;
+			String name = template.substring(open + 1, close);
+			String constant = constants.get(name);
+			if (constant != null) {
+				encode(constant, query, literal);
+			} else {
+				literals.add(literal.toString());
+				parameters.add(name);
+				inQuery.add(query);
+				literal.setLength(0);
+			}
+			position = close + 1;
+		}
+		literals.add(literal.toString());
+
+		return new UrlTemplate(template, literals, parameters, inQuery);
+	}
+
+	/**
+	 * @param values parameter values by name, a missing value is expanded as an empty string
+	 * @return the URL
+	 */
+	public String expand(Function<String, ? extends CharSequence> values) {
+
+		if (parameters.length == 0) {
+			return literals[0];
+		}
+
+		StringBuilder builder = new StringBuilder(capacity);
+		for (int i = 0; i < parameters.length; i++) {
+			builder.append(literals[i]);
+			CharSequence value = values.apply(parameters[i]);
+			if (value != null) {
+				encode(value, inQuery[i], builder);
+			}
+		}
+		return builder.append(literals[parameters.length]).toString();
+	}
+
+	/**
+	 * @param messageIn decoded input message, the placeholders are its field names
+	 * @return the URL
+	 */
+	public String expand(DecodedMessage messageIn) {
+		return expand(messageIn::get);
+	}
+
+	private static void encode(CharSequence value, boolean query, StringBuilder builder) {
+
+		if (isUnreserved(value)) {
+			builder.append(value);
+			return;
+		}
+
+		String encoded = URLEncoder.encode(value.toString(), StandardCharsets.UTF_8);
+		// URLEncoder produces form encoding, in the path a space is %20
+		builder.append(query ? encoded : encoded.replace("+", "%20"));
+	}
+
+	private static boolean isUnreserved(CharSequence value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			boolean unreserved = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+					|| c == '-' || c == '.' || c == '_' || c == '~';
+			if (!unreserved) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the names of the placeholders still to be expanded, in URL order
+	 */
+	public List<String> getParameters() {
+		return List.of(parameters);
+	}
+
+	/**
+	 * @return the template the URL was compiled from
+	 */
+	public String getTemplate() {
+		return template;
+	}
+
+	@Override
+	public String toString() {
+		return template;
+	}
+}
@@ -0,0 +1,45 @@
+package it.demo.fabrick.utils;
+
+import org.springframework.core.env.Environment;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.ThreadingModel;
+
+/**
+ * Deployment options of a verticle, read from the properties prefixed with verticle.[bean name]:
+ * - instances: number of instances, 0 = one per available core
+ * - threadingModel: EVENT_LOOP, WORKER or VIRTUAL_THREAD
+ * - workerPoolSize: size of a worker pool dedicated to the verticle (WORKER model only), 0 = shared worker pool
+ * e.g. verticle.saldoVerticle.instances=0
+ */
+public final class VerticleDeployment {
+
+	public static final String PREFIX = "verticle.";
+
+	private VerticleDeployment() {
+	}
+
+	/**
+	 * @param environment Spring environment
+	 * @param beanName name of the verticle bean, e.g. saldoVerticle
+	 * @param defaultInstances instances when not configured, 0 = one per available core
+	 * @return the deployment options of the verticle
+	 * @throws IllegalArgumentException if the threading model is not valid
+	 */
+	public static DeploymentOptions options(Environment environment, String beanName, int defaultInstances) {
+
+		String prefix = PREFIX + beanName + ".";
+		int instances = environment.getProperty(prefix + "instances", Integer.class, defaultInstances);
+		ThreadingModel threadingModel = ThreadingModel.valueOf(
+				environment.getProperty(prefix + "threadingModel", ThreadingModel.EVENT_LOOP.name()).trim());
+		int workerPoolSize = environment.getProperty(prefix + "workerPoolSize", Integer.class, 0);
+
+		DeploymentOptions options = new DeploymentOptions()
+				.setInstances(instances > 0 ? instances : Runtime.getRuntime().availableProcessors())
+				.setThreadingModel(threadingModel);
+		if (threadingModel == ThreadingModel.WORKER && workerPoolSize > 0) {
+			options.setWorkerPoolName(beanName + "-worker").setWorkerPoolSize(workerPoolSize);
+		}
+		return options;
+	}
+}
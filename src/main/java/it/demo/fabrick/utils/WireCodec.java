@@ -0,0 +1,284 @@
+package it.demo.fabrick.utils;
+
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Charset codec used on the socket, working directly on {@link Buffer} bytes.
+ * For single-byte charsets (cp280 EBCDIC) decoding and encoding go through lookup tables precomputed once,
+ * with no charset lookup and no intermediate String or char array per request.
+ * Multi-byte charsets (UTF-8) fall back to the JDK charset.
+ */
+public abstract class WireCodec {
+
+	/**
+	 * @param charsetName charset used on the wire, e.g. cp280 or UTF-8
+	 * @return the table driven codec for single-byte charsets, the JDK based one otherwise
+	 */
+	public static WireCodec forName(String charsetName) {
+
+		Charset charset = Charset.forName(charsetName);
+		if (isSingleByte(charset)) {
+			return new SingleByteCodec(charset);
+		}
+		return new CharsetCodec(charset);
+	}
+
+	private static boolean isSingleByte(Charset charset) {
+		if (!charset.canEncode()) {
+			return false;
+		}
+		CharsetEncoder encoder = charset.newEncoder();
+		CharsetDecoder decoder = charset.newDecoder();
+		return encoder.maxBytesPerChar() == 1.0f && decoder.maxCharsPerByte() == 1.0f;
+	}
+
+	public abstract Charset charset();
+
+	/**
+	 * Decode a whole frame.
+	 *
+	 * @param buffer the frame, it must not be modified while the result is in use
+	 * @return the decoded text, for single-byte charsets a view on the buffer decoded on access
+	 */
+	public abstract CharSequence decode(Buffer buffer);
+
+	/**
+	 * Decode a fixed-width field.
+	 *
+	 * @param buffer the frame
+	 * @param start first byte of the field, inclusive
+	 * @param end last byte of the field, exclusive
+	 * @return the decoded field
+	 */
+	public abstract String decode(Buffer buffer, int start, int end);
+
+	/**
+	 * Encode text appending it to the buffer.
+	 *
+	 * @param text text to encode
+	 * @param out buffer the bytes are appended to
+	 * @return the buffer
+	 */
+	public abstract Buffer encode(CharSequence text, Buffer out);
+
+	/**
+	 * @param text text to encode
+	 * @return a new buffer containing the encoded text
+	 */
+	public Buffer encode(CharSequence text) {
+		return encode(text, Buffer.buffer(text.length()));
+	}
+
+	/**
+	 * Table driven codec for single-byte charsets.
+	 */
+	static final class SingleByteCodec extends WireCodec {
+
+		private static final char UNMAPPABLE = '\uFFFD';
+		private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[1024]);
+		private static final ThreadLocal<char[]> CHAR_SCRATCH = ThreadLocal.withInitial(() -> new char[1024]);
+
+		private final Charset charset;
+		private final char[] decodeTable = new char[256];
+		// decodeTable re-encoded as ISO-8859-1 when every character fits in it, used to build compact Strings
+		private final byte[] latin1Table;
+		// indexed by char: 64KB per charset, a single lookup per character
+		private final byte[] encodeTable = new byte[65536];
+		private final byte replacement;
+
+		SingleByteCodec(Charset charset) {
+
+			this.charset = charset;
+			// same substitution byte used by String.getBytes for unmappable characters
+			this.replacement = charset.newEncoder().replacement()[0];
+
+			byte[] single = new byte[1];
+			boolean latin1 = true;
+			for (int i = 0; i < 256; i++) {
+				single[0] = (byte) i;
+				String decoded = new String(single, charset);
+				char c = decoded.length() == 1 ? decoded.charAt(0) : UNMAPPABLE;
+				decodeTable[i] = c;
+				latin1 &= c <= 0xFF;
+			}
+
+			Arrays.fill(encodeTable, replacement);
+			for (int i = 0; i < 256; i++) {
+				char c = decodeTable[i];
+				if (c != UNMAPPABLE) {
+					// the JDK encoder decides when more bytes decode to the same char
+					encodeTable[c] = String.valueOf(c).getBytes(charset)[0];
+				}
+			}
+
+			if (latin1) {
+				latin1Table = new byte[256];
+				for (int i = 0; i < 256; i++) {
+					latin1Table[i] = (byte) decodeTable[i];
+				}
+			} else {
+				latin1Table = null;
+			}
+		}
+
+		@Override
+		public Charset charset() {
+			return charset;
+		}
+
+		char decodeByte(byte b) {
+			return decodeTable[b & 0xFF];
+		}
+
+		@Override
+		public CharSequence decode(Buffer buffer) {
+			return new BufferCharSequence(this, buffer, 0, buffer.length());
+		}
+
+		@Override
+		public String decode(Buffer buffer, int start, int end) {
+
+			int length = end - start;
+			byte[] bytes = scratch(length);
+			buffer.getBytes(start, end, bytes, 0);
+
+			if (latin1Table != null) {
+				for (int i = 0; i < length; i++) {
+					bytes[i] = latin1Table[bytes[i] & 0xFF];
+				}
+				return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+			}
+
+			char[] chars = new char[length];
+			for (int i = 0; i < length; i++) {
+				chars[i] = decodeTable[bytes[i] & 0xFF];
+			}
+			return new String(chars);
+		}
+
+		@Override
+		public Buffer encode(CharSequence text, Buffer out) {
+
+			int length = text.length();
+			byte[] bytes = scratch(length);
+			if (text instanceof String string) {
+				// bulk copy of the chars is much faster than charAt on every position
+				char[] chars = charScratch(length);
+				string.getChars(0, length, chars, 0);
+				for (int i = 0; i < length; i++) {
+					bytes[i] = encodeTable[chars[i]];
+				}
+			} else {
+				for (int i = 0; i < length; i++) {
+					bytes[i] = encodeTable[text.charAt(i)];
+				}
+			}
+			return out.appendBytes(bytes, 0, length);
+		}
+
+		/**
+		 * Per-thread scratch array, reused by every request handled on the same event loop.
+		 * The content is always copied out (into a String or a Buffer) before returning.
+		 */
+		private static byte[] scratch(int length) {
+			byte[] bytes = SCRATCH.get();
+			if (bytes.length < length) {
+				bytes = new byte[Math.max(length, bytes.length * 2)];
+				SCRATCH.set(bytes);
+			}
+			return bytes;
+		}
+
+		private static char[] charScratch(int length) {
+			char[] chars = CHAR_SCRATCH.get();
+			if (chars.length < length) {
+				chars = new char[Math.max(length, chars.length * 2)];
+				CHAR_SCRATCH.set(chars);
+			}
+			return chars;
+		}
+	}
+
+	/**
+	 * Codec delegating to the JDK charset, used for multi-byte charsets.
+	 */
+	static final class CharsetCodec extends WireCodec {
+
+		private final Charset charset;
+
+		CharsetCodec(Charset charset) {
+			this.charset = charset;
+		}
+
+		@Override
+		public Charset charset() {
+			return charset;
+		}
+
+		@Override
+		public CharSequence decode(Buffer buffer) {
+			return buffer.toString(charset);
+		}
+
+		@Override
+		public String decode(Buffer buffer, int start, int end) {
+			return buffer.getString(start, end, charset.name());
+		}
+
+		@Override
+		public Buffer encode(CharSequence text, Buffer out) {
+			return out.appendBytes(text.toString().getBytes(charset));
+		}
+	}
+
+	/**
+	 * Read-only view on a slice of a buffer encoded with a single-byte charset.
+	 * Characters are decoded on access, a String is built only when {@link #toString()} is called.
+	 */
+	static final class BufferCharSequence implements CharSequence {
+
+		private final SingleByteCodec codec;
+		private final Buffer buffer;
+		private final int start;
+		private final int end;
+
+		BufferCharSequence(SingleByteCodec codec, Buffer buffer, int start, int end) {
+			this.codec = codec;
+			this.buffer = buffer;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= end - start) {
+				throw new StringIndexOutOfBoundsException(index);
+			}
+			return codec.decodeByte(buffer.getByte(start + index));
+		}
+
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			if (from < 0 || to > end - start || from > to) {
+				throw new StringIndexOutOfBoundsException("begin " + from + ", end " + to + ", length " + (end - start));
+			}
+			return new BufferCharSequence(codec, buffer, start + from, start + to);
+		}
+
+		@Override
+		public String toString() {
+			return codec.decode(buffer, start, end);
+		}
+	}
+}
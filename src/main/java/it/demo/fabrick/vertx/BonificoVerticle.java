@@ -2,11 +2,16 @@ package it.demo.fabrick.vertx;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.concurrent.TimeoutException;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.vertx.codegen.annotations.Nullable;
@@ -14,21 +19,28 @@ import io.vertx.core.AbstractVerticle;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.http.HttpMethod;
-import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.HttpResponse;
 import io.vertx.ext.web.client.WebClient;
 import it.demo.fabrick.ContoDemoApplication;
+import it.demo.fabrick.cache.BalanceCache;
+import it.demo.fabrick.client.FabrickClients;
 import it.demo.fabrick.dto.BonificoRequestDto;
 import it.demo.fabrick.dto.BonificoResponseDto;
 import it.demo.fabrick.dto.ErrorDto;
 import it.demo.fabrick.dto.ErrorCode;
 import it.demo.fabrick.dto.ErrorResponse;
 import it.demo.fabrick.dto.ListaTransactionDto;
+import it.demo.fabrick.dto.OperationRequest;
+import it.demo.fabrick.dto.OperationResult;
+import it.demo.fabrick.resilience.CircuitBreakers;
+import it.demo.fabrick.utils.Deadline;
+import it.demo.fabrick.utils.DecodedMessage;
 import it.demo.fabrick.utils.MessageParserUtil;
 import it.demo.fabrick.utils.TransactionValidationUtil;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 @Slf4j
 public class BonificoVerticle extends AbstractVerticle {
 
@@ -38,35 +50,70 @@ public class BonificoVerticle extends AbstractVerticle {
 	@Value("${fabrick.authSchema}")
 	private String authSchema;
 
+	@Value("${fabrick.accountId}")
+	private String accountId;
+
+	@Autowired
+	private FabrickClients fabrickClients;
+
+	// pooled keep-alive client of this instance, created in start()
+	private WebClient client;
+
+	@Autowired
+	private CircuitBreakers circuitBreakers;
+
+	@Autowired
+	private BalanceCache balanceCache;
+
 	private static final int MONEY_TRANSFER_TIMEOUT_MS = 120000; // 120 seconds (exceeds Fabrick's recommended 100 seconds)
 
+	private static final int VALIDATION_ENQUIRY_TIMEOUT_MS = 30000;
+
+	// the transfer is not idempotent: it is not sent at all with less time than this to wait for its outcome
+	private static final long MIN_MONEY_TRANSFER_TIMEOUT_MS = 30000;
+
+	// part of the request budget kept for the validation enquiry of a transfer timed out
+	private static final long VALIDATION_ENQUIRY_RESERVE_MS = 10000;
+
 	@Override
 	public void start(io.vertx.core.Promise<Void> startFuture) throws Exception {
 
+		client = fabrickClients.create(vertx);
+
 		String bus = "bonifico_bus";
 		log.debug("Subscribing to event bus: {}", bus);
-		vertx.eventBus().consumer(bus, message -> {
+		vertx.eventBus().localConsumer(bus, message -> {
 
 			lanciaChiamataEsterna(message);
 		});
 	}
 
+	@Override
+	public void stop() throws Exception {
+		client.close();
+	}
+
 	public void lanciaChiamataEsterna(Message<Object> message) {
 
-		JsonObject json = (JsonObject) message.body();
+		OperationRequest operationRequest = (OperationRequest) message.body();
 
-		String indirizzo = json.getString("indirizzo");
-		JsonObject mappaMessageIn = json.getJsonObject("mappaMessageIn");
+		String indirizzo = operationRequest.getIndirizzo();
+		DecodedMessage messageIn = operationRequest.getMessageIn();
 
-		String creditorName = mappaMessageIn != null ? mappaMessageIn.getString("creditor-name") : "unknown";
+		String creditorName = messageIn != null ? messageIn.getString("creditor-name") : "unknown";
 		log.info("Processing money transfer to creditor: {}", creditorName);
 
-		WebClient client = WebClient.create(vertx);
+		// the transfer is not sent at all once the client has given up, so it cannot be executed unnoticed
+		if (Deadline.isExpired()) {
+			log.warn("Request expired, money transfer to creditor {} not sent", creditorName);
+			message.fail(ErrorCode.TIMEOUT_ERROR.getCode(), "Request expired before calling the money transfer service - transfer not executed");
+			return;
+		}
 
 		String requestString = null;
 		ObjectMapper mapper = new ObjectMapper();
 		try {
-			BonificoRequestDto request = new BonificoRequestDto(mappaMessageIn);
+			BonificoRequestDto request = new BonificoRequestDto(messageIn);
 			requestString = mapper.writeValueAsString(request);
 			log.debug("Money transfer request: {}", requestString);
 		} catch (JsonProcessingException e1) {
@@ -75,12 +122,26 @@ public class BonificoVerticle extends AbstractVerticle {
 			return;
 		}
 
-		client.requestAbs(HttpMethod.POST, indirizzo)
-				.timeout(MONEY_TRANSFER_TIMEOUT_MS)
+		long timeoutMs = Deadline.remainingMs(MONEY_TRANSFER_TIMEOUT_MS + VALIDATION_ENQUIRY_RESERVE_MS)
+				- VALIDATION_ENQUIRY_RESERVE_MS;
+		if (timeoutMs < MIN_MONEY_TRANSFER_TIMEOUT_MS) {
+			log.warn("Not enough time left for the money transfer to creditor {} ({} ms), not sent", creditorName,
+					timeoutMs);
+			message.fail(ErrorCode.TIMEOUT_ERROR.getCode(), "Not enough time left to call the money transfer service - transfer not executed");
+			return;
+		}
+
+		// with the breaker open the transfer is not sent, NETWORK_ERROR at once
+		String body = requestString;
+		circuitBreakers.execute("BON", timeoutMs, MONEY_TRANSFER_TIMEOUT_MS, () -> client.requestAbs(HttpMethod.POST, indirizzo)
+				.timeout(timeoutMs)
 				.putHeader("Content-Type", "application/json")
 				.putHeader("Auth-Schema", authSchema)
 				.putHeader("Api-Key", apiKey)
-				.sendBuffer(Buffer.buffer(requestString), ar -> {
+				.sendBuffer(Buffer.buffer(body))).onComplete(ar -> {
+					// any outcome, also an error or a timeout, may come from an executed transfer
+					balanceCache.invalidate(accountId);
+
 					if (ar.succeeded()) {
 
 						HttpResponse<Buffer> response = ar.result();
@@ -94,7 +155,7 @@ public class BonificoVerticle extends AbstractVerticle {
 							// Check if this is an error that requires validation enquiry (HTTP 500 or 504)
 							if (statusCode == 500 || statusCode == 504) {
 								log.warn("Money transfer returned HTTP {} - performing validation enquiry for creditor: {}", statusCode, creditorName);
-								performValidationEnquiry(message, mappaMessageIn, mapper);
+								performValidationEnquiry(message, messageIn, mapper, false);
 								return;
 							}
 
@@ -127,16 +188,20 @@ public class BonificoVerticle extends AbstractVerticle {
 							if (bonificoResponse != null && bonificoResponse.getPayload() != null && bonificoResponse.getPayload().getTransactionId() != null) {
 								String transactionId = bonificoResponse.getPayload().getTransactionId();
 								log.info("Money transfer executed successfully for creditor {} - Transaction ID: {}", creditorName, transactionId);
-								message.reply("Transfer executed - Transaction ID: " + transactionId);
+								message.reply(new OperationResult("Transfer executed - Transaction ID: " + transactionId));
 							} else {
 								log.warn("Transfer response received for creditor {} but no transaction ID found", creditorName);
-								message.reply("Transfer executed - Transaction ID not provided in response");
+								message.reply(new OperationResult("Transfer executed - Transaction ID not provided in response"));
 							}
 						} catch (JsonProcessingException e) {
 							log.error("Failed to parse successful money transfer response for creditor: {}", creditorName, e);
 							message.fail(ErrorCode.PARSE_ERROR.getCode(), "Transfer executed but failed to parse response: " + e.getMessage());
 						}
 
+					} else if (ar.cause() instanceof TimeoutException) {
+						// the transfer has been sent: it may have been executed even without an answer
+						log.warn("Money transfer timed out - performing validation enquiry for creditor: {}", creditorName);
+						performValidationEnquiry(message, messageIn, mapper, true);
 					} else {
 						String errorMessage = String.format("Failed to call money transfer service for creditor %s: %s", creditorName, ar.cause().getMessage());
 						log.error(errorMessage);
@@ -146,22 +211,25 @@ public class BonificoVerticle extends AbstractVerticle {
 	}
 
 	/**
-	 * Performs a validation enquiry when receiving HTTP 500 or 504 errors.
+	 * Performs a validation enquiry when receiving HTTP 500 or 504 errors, or no answer in time.
 	 * Searches the transactions list for a matching money transfer to determine
 	 * if the transfer was executed despite the error response.
 	 * This simulates a LIS request through GestisciRequestVerticle to properly
 	 * obtain the URL from CONTO_INDIRIZZI table.
 	 *
 	 * @param originalMessage the original event bus message to reply to
-	 * @param mappaMessageIn the original request parameters
+	 * @param messageIn the original decoded request
 	 * @param mapper the Jackson object mapper for JSON parsing
+	 * @param timedOut true if the transfer got no answer: it may still be in progress, so it is never reported as
+	 *        not executed
 	 */
-	private void performValidationEnquiry(Message<Object> originalMessage, JsonObject mappaMessageIn, ObjectMapper mapper) {
+	private void performValidationEnquiry(Message<Object> originalMessage, DecodedMessage messageIn, ObjectMapper mapper,
+			boolean timedOut) {
 
-		String amountStr = mappaMessageIn.getString("amount");
-		String currency = mappaMessageIn.getString("currency");
-		String description = mappaMessageIn.getString("description");
-		String creditorName = mappaMessageIn.getString("creditor-name");
+		String amountStr = messageIn.getString("amount");
+		String currency = messageIn.getString("currency");
+		String description = messageIn.getString("description");
+		String creditorName = messageIn.getString("creditor-name");
 
 		log.info("Starting validation enquiry for transfer to creditor: {} (amount: {} {})", creditorName, amountStr, currency);
 
@@ -183,25 +251,27 @@ public class BonificoVerticle extends AbstractVerticle {
 		// Format: LIS + 10 chars for start-date + 10 chars for end-date
 		// Based on CONTO_CONFIGURATION: 'OPERAZIONE=3;start-date=10;end-date=10;'
 		String lisMessage = MessageParserUtil.OPERATION_LIS +
-				String.format("%-10s", todayStr) +
-				String.format("%-10s", todayStr);
+				MessageParserUtil.padRight(todayStr, 10) +
+				MessageParserUtil.padRight(todayStr, 10);
 
 		log.debug("Sending LIS message for validation enquiry: {}", lisMessage);
 
 		// Send to GestisciRequestVerticle which will route to ListaTransazioniVerticle
 		vertx.eventBus().request("gestisci-chiamata-bus", lisMessage,
 				ContoDemoApplication.getDefaultDeliverOptions()
-						.setSendTimeout(30000), // 30 seconds timeout for validation enquiry
+						.setSendTimeout(Deadline.timeoutMs(VALIDATION_ENQUIRY_TIMEOUT_MS)),
 				ar -> {
 			if (ar.succeeded()) {
-				String responseString = (String) ar.result().body();
+				String responseString = ((OperationResult) ar.result().body()).getPayload();
 				log.debug("Validation enquiry response received for creditor: {}", creditorName);
 
 				// Parse transactions and search for matching transfer
 				try {
 					com.fasterxml.jackson.core.type.TypeReference<java.util.List<ListaTransactionDto>> typeRef =
 							new com.fasterxml.jackson.core.type.TypeReference<java.util.List<ListaTransactionDto>>() {};
-					java.util.List<ListaTransactionDto> transactions = mapper.readValue(responseString, typeRef);
+					// the list is copied as sent by Fabrick, fields not in ListaTransactionDto are ignored
+					java.util.List<ListaTransactionDto> transactions = mapper.readerFor(typeRef)
+							.without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).readValue(responseString);
 
 					if (transactions == null || transactions.isEmpty()) {
 						log.warn("No transactions found in validation enquiry response for creditor: {}", creditorName);
@@ -216,7 +286,10 @@ public class BonificoVerticle extends AbstractVerticle {
 
 					if (matchingTransaction != null) {
 						log.info("Validation enquiry successful - transfer executed for creditor {} - Transaction ID: {}", creditorName, matchingTransaction.getTransactionId());
-						originalMessage.reply("Transfer executed - Transaction ID: " + matchingTransaction.getTransactionId());
+						originalMessage.reply(new OperationResult("Transfer executed - Transaction ID: " + matchingTransaction.getTransactionId()));
+					} else if (timedOut) {
+						log.warn("Validation enquiry complete - no matching transfer found yet for creditor: {}", creditorName);
+						originalMessage.fail(ErrorCode.TIMEOUT_ERROR.getCode(), "Transfer execution uncertain - no answer in time and no matching transfer found yet. Please verify before retrying.");
 					} else {
 						log.info("Validation enquiry complete - no matching transfer found for creditor: {}", creditorName);
 						originalMessage.fail(ErrorCode.API_ERROR.getCode(), "Transfer not executed. You may safely retry.");
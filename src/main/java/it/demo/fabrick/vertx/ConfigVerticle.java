@@ -1,19 +1,46 @@
 package it.demo.fabrick.vertx;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.eventbus.Message;
-import io.vertx.core.json.JsonArray;
-import io.vertx.core.json.JsonObject;
-import io.vertx.ext.jdbc.JDBCClient;
-import io.vertx.ext.sql.SQLConnection;
+import io.vertx.jdbcclient.JDBCPool;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.Tuple;
+import it.demo.fabrick.config.ConfigurationHolder;
+import it.demo.fabrick.config.ConfigurationSnapshot;
+import it.demo.fabrick.config.OperationConfig;
+import it.demo.fabrick.dto.ConfigurazioneDto;
 import it.demo.fabrick.dto.ErrorCode;
 
+/**
+ * Configuration of the operations.
+ * At startup the whole configuration of the environment is loaded into a ConfigurationSnapshot read by
+ * GestisciRequestVerticle from memory; get-configurazione-bus remains as a fallback for the operations
+ * not in the snapshot.
+ * The snapshot is reloaded when the VERSION of the configuration changes on database (polled every
+ * configuration.pollIntervalMs) and when requested from the actuator endpoint (ConfigurationEndpoint).
+ * Meant to be deployed with a single instance (the default): every instance would poll the database.
+ */
 @Component
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
+@DependsOnDatabaseInitialization
 public class ConfigVerticle extends AbstractVerticle {
 
 	private static Logger log = LoggerFactory.getLogger(ConfigVerticle.class);
@@ -21,13 +48,31 @@ public class ConfigVerticle extends AbstractVerticle {
 	@Value("${amb.lavoro:SVIL}")
 	private String ambiente;
 
-	@Value("${spring.datasource.username}")
-	private String username;
+	@Value("${fabrick.accountId}")
+	private String accountId;
+
+	@Autowired
+	private ConfigurationHolder configurationHolder;
+
+	// 0 = no polling, the configuration is reloaded only from the actuator endpoint
+	@Value("${configuration.pollIntervalMs:30000}")
+	private long pollIntervalMs;
+
+	// max(VERSION) and number of rows of the snapshot published, compared with QUERY_VERSION
+	private long loadedVersion = -1;
+	private long loadedRowCount = -1;
 
-	@Value("${spring.datasource.password}")
-	private String pass;
+	// reload in progress and whether it is forced, only accessed on the context of this verticle
+	private Future<ConfigurationSnapshot> reloading;
+	private boolean reloadingForced;
+	// forced reload waiting for the one in progress to complete
+	private Future<ConfigurationSnapshot> forcedAfterReloading;
 
-	private JDBCClient client = null;
+	// Spring data source (Hikari): pool size and metrics come from spring.datasource.hikari.*
+	@Autowired
+	private DataSource dataSource;
+
+	private JDBCPool pool = null;
 
 	//@f:off
 	private static final String QUERY = " select "
@@ -36,25 +81,126 @@ public class ConfigVerticle extends AbstractVerticle {
 						+ "      con.MESSAGE_IN, "  
 						+ "      con.MESSAGE_OUT_BUS," 
 						+ "      ind.INDIRIZZO, " 
+						+ "      con.MAX_CONCURRENT, " 
+						+ "      con.MAX_QUEUED, "
+						+ "      ind.CB_FAILURE_RATE, "
+						+ "      ind.CB_SLOW_CALL_MS, "
+						+ "      ind.CB_SLOW_CALL_RATE, "
+						+ "      ind.CB_OPEN_MS "
 						+ " from CONTO_CONFIGURATION con" 
 						+ " inner join CONTO_INDIRIZZI ind on (con.OPERATION = ind.OPERATION)"
 						+ " where ind.OPERATION = ? and ind.AMBIENTE = ? ";
+
+	private static final String QUERY_ALL = " select "
+						+ "      con.OPERATION, "
+						+ "      ind.AMBIENTE, "
+						+ "      con.MESSAGE_IN, "
+						+ "      con.MESSAGE_OUT_BUS, "
+						+ "      ind.INDIRIZZO, "
+						+ "      con.MAX_CONCURRENT, "
+						+ "      con.MAX_QUEUED, "
+						+ "      ind.CB_FAILURE_RATE, "
+						+ "      ind.CB_SLOW_CALL_MS, "
+						+ "      ind.CB_SLOW_CALL_RATE, "
+						+ "      ind.CB_OPEN_MS "
+						+ " from CONTO_CONFIGURATION con"
+						+ " inner join CONTO_INDIRIZZI ind on (con.OPERATION = ind.OPERATION)"
+						+ " where ind.AMBIENTE = ? ";
+
+	private static final String QUERY_VERSION = " select "
+						+ "      max(VERSION), "
+						+ "      count(*) "
+						+ " from ("
+						+ "      select VERSION from CONTO_CONFIGURATION"
+						+ "      union all"
+						+ "      select VERSION from CONTO_INDIRIZZI where AMBIENTE = ?"
+						+ " ) v ";
 	//@f:on
 
 	@Override
-	public void start(io.vertx.core.Promise<Void> startFuture) throws Exception {
+	public void start(Promise<Void> startFuture) throws Exception {
 
 		log.debug("Configuration environment: {}", ambiente);
 
-		client = JDBCClient.createShared(vertx,
-				new JsonObject().put("url", "jdbc:h2:mem:db1").put("driver_class", "org.h2.Driver").put("max_pool_size", 30).put("user", username)
-						.put("password", pass));
+		// the JDBC calls run on worker threads, every query borrows a connection and returns it when completed
+		pool = JDBCPool.pool(vertx, dataSource);
 
 		log.debug("Subscribing to event bus: get-configurazione-bus");
-		vertx.eventBus().consumer("get-configurazione-bus", message -> {
+		vertx.eventBus().localConsumer("get-configurazione-bus", message -> {
 
 			leggiConfigurazione(message);
 		});
+
+		// the actuator endpoint runs outside Vert.x: the reload is moved on the context of this verticle
+		configurationHolder.setReloader(() -> {
+			Promise<ConfigurationSnapshot> reloaded = Promise.promise();
+			context.runOnContext(v -> ricaricaConfigurazione(true).onComplete(reloaded));
+			return reloaded.future().toCompletionStage();
+		});
+
+		if (pollIntervalMs > 0) {
+			vertx.setPeriodic(pollIntervalMs, id -> ricaricaConfigurazione(false));
+		}
+
+		// a failure is not fatal: requests fall back to get-configurazione-bus until a reload succeeds
+		ricaricaConfigurazione(true).onComplete(done -> startFuture.complete());
+	}
+
+	/**
+	 * Reload the whole configuration of the environment and publish it as a new snapshot.
+	 * The cheap QUERY_VERSION is run first: unless forced, the configuration is read only when
+	 * max(VERSION) or the number of rows has changed. The layouts and the URL templates are compiled on a
+	 * worker thread, then the snapshot is published with a single reference swap.
+	 * Runs on the context of this verticle, a reload requested while another one is running gets its result;
+	 * a forced reload requested while an unforced one is running starts when it completes, not to get its
+	 * "version unchanged" result.
+	 *
+	 * @param force reload even if the version has not changed
+	 * @return completed with the current snapshot
+	 */
+	private Future<ConfigurationSnapshot> ricaricaConfigurazione(boolean force) {
+
+		if (reloading != null) {
+			if (!force || reloadingForced) {
+				return reloading;
+			}
+			if (forcedAfterReloading == null) {
+				// reloading is reset by a listener registered before this one
+				forcedAfterReloading = reloading.transform(done -> {
+					forcedAfterReloading = null;
+					return ricaricaConfigurazione(true);
+				});
+			}
+			return forcedAfterReloading;
+		}
+
+		Future<ConfigurationSnapshot> reload = pool.preparedQuery(QUERY_VERSION).execute(Tuple.of(ambiente)).compose(versionRows -> {
+
+			Row versionRow = versionRows.iterator().next();
+			long version = versionRow.getLong(0) == null ? 0 : versionRow.getLong(0);
+			long rowCount = versionRow.getLong(1);
+			if (!force && version == loadedVersion && rowCount == loadedRowCount) {
+				return Future.succeededFuture(configurationHolder.get());
+			}
+
+			return pool.preparedQuery(QUERY_ALL).execute(Tuple.of(ambiente))
+					.compose(rows -> vertx.executeBlocking(() -> ConfigurationSnapshot.build(version,
+							toConfigurazioni(rows), Map.of("account-number", accountId))))
+					.map(snapshot -> {
+						ConfigurationSnapshot previous = configurationHolder.publish(snapshot);
+						loadedVersion = version;
+						loadedRowCount = rowCount;
+						log.info("Configuration snapshot {} loaded (previous: {}) - environment: {}, operations: {}",
+								snapshot.getVersion(), previous == null ? "none" : previous.getVersion(), ambiente,
+								snapshot.getOperations());
+						return snapshot;
+					});
+		}).onFailure(e -> log.error("Cannot load configuration snapshot, keeping the current one", e));
+
+		reloading = reload;
+		reloadingForced = force;
+		reload.onComplete(done -> reloading = null);
+		return reload;
 	}
 
 	public void leggiConfigurazione(Message<Object> message) {
@@ -64,17 +210,8 @@ public class ConfigVerticle extends AbstractVerticle {
 
 		log.debug("Retrieving configuration for operation: {}", operazioneInEntrata);
 
-		client.getConnection(conn -> {
-
-			if (conn.failed()) {
-			log.error("Failed to get database connection", conn.cause());
-			message.fail(ErrorCode.CONFIGURATION_ERROR.getCode(), "Failed to get database connection: " + conn.cause().getMessage());
-			return;
-		}
-
-		final SQLConnection connection = conn.result();
-
-		connection.queryWithParams(QUERY, new JsonArray().add(operazioneInEntrata).add(ambiente), rs -> {
+		// the pool returns the connection whatever the outcome of the query
+		pool.preparedQuery(QUERY).execute(Tuple.of(operazioneInEntrata, ambiente)).onComplete(rs -> {
 
 			if (rs.failed()) {
 				String errorMessage = "Cannot retrieve configuration from database";
@@ -83,12 +220,12 @@ public class ConfigVerticle extends AbstractVerticle {
 				return;
 			}
 
-			if (rs.result().getResults().isEmpty()) {
+			if (rs.result().size() == 0) {
 				String errorMessage = "No configuration found for operation: " + operazioneInEntrata;
 				log.error(errorMessage);
 				message.fail(ErrorCode.CONFIGURATION_ERROR.getCode(), errorMessage);
 				return;
-			} else if (rs.result().getResults().size() > 1) {
+			} else if (rs.result().size() > 1) {
 
 				String errorMessage = "Multiple configurations found for operation: " + operazioneInEntrata;
 				log.error(errorMessage);
@@ -96,23 +233,26 @@ public class ConfigVerticle extends AbstractVerticle {
 				return;
 			}
 
-				for (JsonArray line : rs.result().getResults()) {
-
-					log.debug("Configuration retrieved for operation: {}", operazioneInEntrata);
-					message.reply(line);
-				}
-
-				// and close the connection
-				connection.close(done -> {
-
-					if (done.failed()) {
-						log.error("Failed to close database connection", done.cause());
-						throw new RuntimeException(done.cause());
-					}
-				});
+			OperationConfig operationConfig;
+			try {
+				operationConfig = ConfigurationSnapshot.compile(new ConfigurazioneDto(rs.result().iterator().next()),
+						Map.of("account-number", accountId));
+			} catch (IllegalArgumentException e) {
+				log.error("Invalid message configuration for operation: {}", operazioneInEntrata, e);
+				message.fail(ErrorCode.CONFIGURATION_ERROR.getCode(), e.getMessage());
+				return;
+			}
 
-			});
+			log.debug("Configuration retrieved for operation: {}", operazioneInEntrata);
+			message.reply(operationConfig);
 		});
 	}
 
-}
\ No newline at end of file
+	private static List<ConfigurazioneDto> toConfigurazioni(RowSet<Row> rows) {
+		List<ConfigurazioneDto> configurazioni = new ArrayList<>(rows.size());
+		for (Row row : rows) {
+			configurazioni.add(new ConfigurazioneDto(row));
+		}
+		return configurazioni;
+	}
+}
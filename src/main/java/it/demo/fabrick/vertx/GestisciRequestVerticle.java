@@ -1,35 +1,43 @@
 package it.demo.fabrick.vertx;
 
-import java.util.Map;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.eventbus.Message;
-import io.vertx.core.json.JsonArray;
-import io.vertx.core.json.JsonObject;
 import it.demo.fabrick.ContoDemoApplication;
-import it.demo.fabrick.dto.ConfigurazioneDto;
+import it.demo.fabrick.config.ConfigurationHolder;
+import it.demo.fabrick.config.OperationConfig;
 import it.demo.fabrick.dto.ErrorCode;
+import it.demo.fabrick.dto.OperationRequest;
+import it.demo.fabrick.dto.OperationResult;
 import it.demo.fabrick.exception.ExceptionMessageIn;
-import it.demo.fabrick.utils.MessageParserUtil;
+import it.demo.fabrick.resilience.Bulkhead;
+import it.demo.fabrick.resilience.Bulkheads;
+import it.demo.fabrick.utils.Deadline;
+import it.demo.fabrick.utils.DecodedMessage;
 
 @Component
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class GestisciRequestVerticle extends AbstractVerticle {
 
 	private static Logger log = LoggerFactory.getLogger(GestisciRequestVerticle.class);
 
-	@Value("${fabrick.accountId}")
-	private String accountId;
+	@Autowired
+	private ConfigurationHolder configurationHolder;
+
+	@Autowired
+	private Bulkheads bulkheads;
 
 	@Override
 	public void start(io.vertx.core.Promise<Void> startFuture) throws Exception {
 
 		log.debug("Subscribing to event bus: gestisci-chiamata-bus");
-		vertx.eventBus().consumer("gestisci-chiamata-bus", message -> {
+		vertx.eventBus().localConsumer("gestisci-chiamata-bus", message -> {
 
 			gestisciChiamata(message);
 		});
@@ -37,34 +45,39 @@ public class GestisciRequestVerticle extends AbstractVerticle {
 
 	public void gestisciChiamata(Message<Object> message) {
 
-		Object body = message.body();
-		String messageIn = body.toString();
-		String operazioneInEntrata = messageIn.substring(0, 3);
+		// a String, or a view on the socket frame sent with the local codec
+		CharSequence messageIn = (CharSequence) message.body();
+		if (messageIn.length() < 3) {
+			log.error("Message too short to contain the operation: {}", messageIn);
+			message.fail(ErrorCode.VALIDATION_ERROR.getCode(), new ExceptionMessageIn().getMessage());
+			return;
+		}
+		String operazioneInEntrata = messageIn.subSequence(0, 3).toString();
+
+		if (Deadline.isExpired()) {
+			log.warn("Request expired before processing, dropped - operation: {}", operazioneInEntrata);
+			message.fail(ErrorCode.TIMEOUT_ERROR.getCode(), "Request expired before processing");
+			return;
+		}
 
 		log.info("Processing request for operation: {}", operazioneInEntrata);
 
+		OperationConfig operationConfig = configurationHolder.getOperation(operazioneInEntrata);
+		if (operationConfig != null) {
+			elaboraRichiesta(operationConfig, message, messageIn);
+			return;
+		}
+
+		// not in the configuration snapshot (not loaded yet, or not valid): read it from database
 		vertx.eventBus().request("get-configurazione-bus", operazioneInEntrata, ContoDemoApplication.getDefaultDeliverOptions(), asyncResult -> {
 
 			if (asyncResult.succeeded()) {
 
-				JsonArray line = (JsonArray) asyncResult.result().body();
+				// compiled by ConfigVerticle, received by reference
+				OperationConfig configurazione = (OperationConfig) asyncResult.result().body();
 				log.debug("Configuration received for operation: {}", operazioneInEntrata);
 
-				ConfigurazioneDto configurazione = new ConfigurazioneDto(line);
-
-				Map<String, String> mappaInput = MessageParserUtil.parseConfiguration(configurazione.getMessageIn());
-				Map<String, String> mappaMessageIn;
-				try {
-					mappaMessageIn = MessageParserUtil.decodeMessage(messageIn, mappaInput);
-
-					log.debug("Message parsed for operation: {}", operazioneInEntrata);
-
-					lanciaChiamateEsterne(configurazione, message, mappaMessageIn);
-
-				} catch (ExceptionMessageIn e) {
-					log.error("Message parsing failed for operation: {}", operazioneInEntrata, e);
-					message.fail(ErrorCode.VALIDATION_ERROR.getCode(), e.getMessage());
-				}
+				elaboraRichiesta(configurazione, message, messageIn);
 
 			} else {
 				log.error("Failed to get configuration for operation: {}", operazioneInEntrata, asyncResult.cause());
@@ -74,28 +87,66 @@ public class GestisciRequestVerticle extends AbstractVerticle {
 
 	}
 
-	private void lanciaChiamateEsterne(ConfigurazioneDto configurazione, Message<Object> message,
-			Map<String, String> mappaMessageIn) {
+	private void elaboraRichiesta(OperationConfig operationConfig, Message<Object> message, CharSequence messageIn) {
 
-		JsonObject json = new JsonObject();
+		DecodedMessage decodedMessage;
+		try {
+			decodedMessage = operationConfig.getLayout().wrap(messageIn);
+		} catch (ExceptionMessageIn e) {
+			log.error("Message parsing failed for operation: {}", operationConfig.getOperation(), e);
+			message.fail(ErrorCode.VALIDATION_ERROR.getCode(), e.getMessage());
+			return;
+		}
 
-		String indirizzo = substituteAccountId(configurazione.getIndirizzo());
-		indirizzo = MessageParserUtil.substituteUrlParameters(mappaMessageIn, indirizzo);
-		json.put("indirizzo", indirizzo);
-		json.put("mappaMessageIn", mappaMessageIn);
+		log.debug("Message parsed for operation: {}", operationConfig.getOperation());
+
+		lanciaChiamateEsterne(operationConfig, message, decodedMessage);
+	}
+
+	private void lanciaChiamateEsterne(OperationConfig configurazione, Message<Object> message,
+			DecodedMessage decodedMessage) {
+
+		String indirizzo = configurazione.getUrlTemplate().expand(decodedMessage);
+		OperationRequest request = new OperationRequest(indirizzo, decodedMessage, configurazione.getUrlTemplate());
+
+		// one bulkhead per operation: slow BON or LIS calls cannot take the capacity reserved for SAL
+		Bulkhead bulkhead = bulkheads.get(configurazione);
+		boolean accepted = bulkhead.submit(vertx.getOrCreateContext(),
+				() -> inoltraRichiesta(configurazione, message, request, bulkhead));
+		if (!accepted) {
+			String errorMessage = String.format("Operation %s busy (max concurrent: %d, max queued: %d)",
+					configurazione.getOperation(), bulkhead.getMaxConcurrent(), bulkhead.getMaxQueued());
+			log.warn(errorMessage);
+			message.fail(ErrorCode.OVERLOAD_ERROR.getCode(), errorMessage);
+		}
+	}
+
+	private void inoltraRichiesta(OperationConfig configurazione, Message<Object> message, OperationRequest request,
+			Bulkhead bulkhead) {
+
+		// the call may have waited in the bulkhead queue
+		if (Deadline.isExpired()) {
+			bulkhead.release();
+			log.warn("Request expired waiting for the {} bulkhead, dropped", configurazione.getOperation());
+			message.fail(ErrorCode.TIMEOUT_ERROR.getCode(), "Request expired waiting for operation " + configurazione.getOperation());
+			return;
+		}
 
 		log.debug("Routing to bus: {}", configurazione.getMessageOutFromBus());
 
-		vertx.eventBus().request(configurazione.getMessageOutFromBus(), json, ContoDemoApplication.getDefaultDeliverOptions(), asyncResult -> {
+		vertx.eventBus().request(configurazione.getMessageOutFromBus(), request,
+				ContoDemoApplication.getDefaultDeliverOptions(), asyncResult -> {
+
+			bulkhead.release();
 
 			try {
 				if (asyncResult.succeeded()) {
 
-					String responseString = (String) asyncResult.result().body();
+					OperationResult result = (OperationResult) asyncResult.result().body();
 
-					log.debug("Response received from {}: {}", configurazione.getMessageOutFromBus(), responseString);
+					log.debug("Response received from {}: {}", configurazione.getMessageOutFromBus(), result.getPayload());
 
-					message.reply(responseString);
+					message.reply(result);
 				} else {
 					log.error("Request to {} failed", configurazione.getMessageOutFromBus(), asyncResult.cause());
 					// Propagate the error code from the downstream verticle, or use UNKNOWN_ERROR if not available
@@ -112,14 +163,4 @@ public class GestisciRequestVerticle extends AbstractVerticle {
 
 	}
 
-	/**
-	 * Substitute {account-number} placeholder with actual accountId from application properties.
-	 *
-	 * @param indirizzo URL with {account-number} placeholder
-	 * @return URL with account number substituted
-	 */
-	private String substituteAccountId(String indirizzo) {
-		return indirizzo.replace("{account-number}", accountId);
-	}
-
 }
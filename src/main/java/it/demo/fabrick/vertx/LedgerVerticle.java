@@ -0,0 +1,161 @@
+package it.demo.fabrick.vertx;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.client.WebClient;
+import it.demo.fabrick.cache.TransactionCache;
+import it.demo.fabrick.client.FabrickClients;
+import it.demo.fabrick.config.ConfigurationHolder;
+import it.demo.fabrick.config.OperationConfig;
+import it.demo.fabrick.dto.ListaTransactionDto;
+import it.demo.fabrick.ledger.TransactionLedger;
+import it.demo.fabrick.resilience.CircuitBreakers;
+import it.demo.fabrick.utils.TransactionListReader;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Background synchronization of the local ledger (CONTO_TRANSACTION) from the Fabrick transactions API.
+ * Every ledger.syncIntervalMs the transactions from the day after the last complete one up to today are read with
+ * the LIS address of the configuration and replace those days in the ledger: the first run reads the last
+ * ledger.initialDays days, the following ones only the open days. A day becomes complete once it has been synchronized after being
+ * closed (see TransactionCache), from then on LIS requests read it from the ledger.
+ * Meant to be deployed with a single instance (the default); ledger.syncIntervalMs 0 disables the ledger.
+ */
+@Component
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
+@DependsOnDatabaseInitialization
+@Slf4j
+public class LedgerVerticle extends AbstractVerticle {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private static final long SYNC_TIMEOUT_MS = 120000;
+
+	// first run after the configuration snapshot has been loaded, at most after one interval
+	private static final long FIRST_SYNC_DELAY_MS = 10000;
+
+	@Value("${fabrick.apiKey}")
+	private String apiKey;
+
+	@Value("${fabrick.authSchema}")
+	private String authSchema;
+
+	@Value("${fabrick.accountId}")
+	private String accountId;
+
+	@Value("${ledger.syncIntervalMs:300000}")
+	private long syncIntervalMs;
+
+	@Value("${ledger.initialDays:90}")
+	private int initialDays;
+
+	@Autowired
+	private FabrickClients fabrickClients;
+
+	@Autowired
+	private ConfigurationHolder configurationHolder;
+
+	@Autowired
+	private TransactionCache transactionCache;
+
+	@Autowired
+	private TransactionLedger transactionLedger;
+
+	@Autowired
+	private CircuitBreakers circuitBreakers;
+
+	private WebClient client;
+
+	// synchronization in progress, only accessed on the context of this verticle
+	private boolean syncing;
+
+	@Override
+	public void start() throws Exception {
+
+		if (syncIntervalMs <= 0) {
+			log.info("Ledger synchronization disabled, LIS requests are served by Fabrick");
+			return;
+		}
+
+		client = fabrickClients.create(vertx);
+		transactionLedger.open(vertx);
+		vertx.setPeriodic(Math.min(FIRST_SYNC_DELAY_MS, syncIntervalMs), syncIntervalMs, id -> sincronizza());
+	}
+
+	@Override
+	public void stop() throws Exception {
+		if (client != null) {
+			client.close();
+		}
+	}
+
+	private void sincronizza() {
+
+		if (syncing) {
+			return;
+		}
+		OperationConfig lis = configurationHolder.getOperation("LIS");
+		if (lis == null) {
+			log.debug("LIS configuration not loaded yet, ledger synchronization postponed");
+			return;
+		}
+
+		LocalDate completeUntil = transactionLedger.getCompleteUntil();
+		LocalDate today = transactionCache.today();
+		LocalDate from = completeUntil == null ? today.minusDays(initialDays) : completeUntil.plusDays(1);
+		// the days closed when the read starts are complete once written
+		LocalDate lastClosedDay = transactionCache.firstOpenDay().minusDays(1);
+		String fromDate = from.toString();
+		String toDate = today.toString();
+		String indirizzo = lis.getUrlTemplate().expand(name -> switch (name) {
+			case "start-date" -> fromDate;
+			case "end-date" -> toDate;
+			default -> null;
+		});
+
+		syncing = true;
+		log.debug("Ledger synchronization from {} to {}", fromDate, toDate);
+		leggiTransazioni(indirizzo)
+				.compose(transactions -> transactionLedger
+						.synchronize(accountId, from, today, lastClosedDay, transactions)
+						.map(rejected -> {
+							log.info("Ledger synchronized from {} to {} - transactions: {}, rejected: {}, "
+									+ "complete until: {}", fromDate, toDate, transactions.size(), rejected,
+									transactionLedger.getCompleteUntil());
+							return null;
+						}))
+				.onFailure(e -> log.warn("Ledger synchronization failed: {}", e.getMessage()))
+				.onComplete(done -> syncing = false);
+	}
+
+	private Future<List<ListaTransactionDto>> leggiTransazioni(String indirizzo) {
+		// same breaker as the LIS requests: no synchronization while the upstream is down
+		return circuitBreakers.execute("LIS", () -> client.requestAbs(HttpMethod.GET, indirizzo)
+				.timeout(SYNC_TIMEOUT_MS)
+				.putHeader("Content-Type", "application/json")
+				.putHeader("Auth-Schema", authSchema)
+				.putHeader("Api-Key", apiKey)
+				.sendBuffer(Buffer.buffer("")))
+				.compose(response -> {
+					if (response.statusCode() >= 300) {
+						return Future.failedFuture("API error response: " + response.bodyAsString());
+					}
+					Buffer body = response.body() == null ? Buffer.buffer() : response.body();
+					return vertx.executeBlocking(() -> TransactionListReader.read(MAPPER, body), false);
+				});
+	}
+}
@@ -1,24 +1,50 @@
 package it.demo.fabrick.vertx;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import io.vertx.codegen.annotations.Nullable;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.http.HttpMethod;
-import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.HttpResponse;
 import io.vertx.ext.web.client.WebClient;
+import it.demo.fabrick.cache.TransactionCache;
+import it.demo.fabrick.client.FabrickClients;
 import it.demo.fabrick.dto.ErrorCode;
-import it.demo.fabrick.dto.TransactionDto;
+import it.demo.fabrick.dto.ListaTransactionDto;
+import it.demo.fabrick.dto.OperationRequest;
+import it.demo.fabrick.dto.OperationResult;
+import it.demo.fabrick.ledger.TransactionLedger;
+import it.demo.fabrick.resilience.CircuitBreakers;
+import it.demo.fabrick.resilience.SingleFlight;
+import it.demo.fabrick.utils.ChunkedReply;
+import it.demo.fabrick.utils.Deadline;
+import it.demo.fabrick.utils.DecodedMessage;
+import it.demo.fabrick.utils.TransactionListReader;
+import it.demo.fabrick.utils.TransactionPages;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 @Slf4j
 public class ListaTransazioniVerticle extends AbstractVerticle {
 
@@ -28,70 +54,373 @@ public class ListaTransazioniVerticle extends AbstractVerticle {
 	@Value("${fabrick.authSchema}")
 	private String authSchema;
 
+	@Value("${fabrick.accountId}")
+	private String accountId;
+
+	@Autowired
+	private FabrickClients fabrickClients;
+
+	// pooled keep-alive client of this instance, created in start()
+	private WebClient client;
+
+	@Autowired
+	private CircuitBreakers circuitBreakers;
+
+	@Autowired
+	private SingleFlight singleFlight;
+
+	@Autowired
+	private TransactionCache transactionCache;
+
+	@Autowired
+	private TransactionLedger transactionLedger;
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private static final String START_DATE = "start-date";
+	private static final String END_DATE = "end-date";
+	private static final int ISO_DATE_LENGTH = 10;
+
+	// responses larger than this are parsed on a worker thread, not to block the event loop
+	private static final int OFFLOAD_BYTES = 256 * 1024;
+
+	// upper bound of the Fabrick call, the remaining budget of the request is used when shorter
+	private static final long API_TIMEOUT_MS = 120000;
+
 	@Override
 	public void start(io.vertx.core.Promise<Void> startFuture) throws Exception {
 
+		client = fabrickClients.create(vertx);
+
 		String bus = "lista_bus";
 		log.debug("Subscribing to event bus: {}", bus);
-		vertx.eventBus().consumer(bus, message -> {
+		vertx.eventBus().localConsumer(bus, message -> {
 
 			lanciaChiamataEsterna(message);
 		});
 	}
 
+	@Override
+	public void stop() throws Exception {
+		client.close();
+	}
+
 	public void lanciaChiamataEsterna(Message<Object> message) {
 
-		JsonObject json = (JsonObject) message.body();
-		String indirizzo = json.getString("indirizzo");
+		OperationRequest request = (OperationRequest) message.body();
+		String indirizzo = request.getIndirizzo();
+		DecodedMessage messageIn = request.getMessageIn();
 
 		log.info("Processing transactions list request");
 
-		WebClient client = WebClient.create(vertx);
-
-		client.requestAbs(HttpMethod.GET, indirizzo)
-				.putHeader("Content-Type", "application/json")
-				.putHeader("Auth-Schema", authSchema)
-				.putHeader("Api-Key", apiKey)
-				.putHeader("Content-Type", "application/json")
-				.sendBuffer(Buffer.buffer(""), ar -> {
-					if (ar.succeeded()) {
-
-						HttpResponse<Buffer> response = ar.result();
-						int statusCode = response.statusCode();
-						@Nullable
-						String bodyAsString = response.bodyAsString();
-
-						log.debug("Transactions API response status: {}", statusCode);
-
-						if (statusCode >= 300) {
-							String errorMessage = "API error response: " + bodyAsString;
-							log.error(errorMessage);
-							message.fail(ErrorCode.API_ERROR.getCode(), errorMessage);
-							return;
-						}
-
-						TransactionDto transaction = null;
-						ObjectMapper mapper = new ObjectMapper();
-						String listaTransazioni = null;
-						try {
-							transaction = mapper.readValue(bodyAsString, TransactionDto.class);
-							int transactionCount = transaction.getPayload().getList() != null ? transaction.getPayload().getList().size() : 0;
-							listaTransazioni = mapper.writeValueAsString(transaction.getPayload().getList());
-							log.info("Transactions retrieved successfully - count: {}", transactionCount);
-						} catch (JsonProcessingException e) {
-							log.error("Failed to parse transactions response", e);
-							message.fail(ErrorCode.PARSE_ERROR.getCode(), "Failed to parse transactions response: " + e.getMessage());
-							return;
-						}
-
-						message.reply(listaTransazioni);
-
-					} else {
-						String errorMessage = String.format("Failed to connect to transactions service: %s", ar.cause().getMessage());
-						log.error(errorMessage);
-						message.fail(ErrorCode.NETWORK_ERROR.getCode(), errorMessage);
-					}
-				});
+		if (Deadline.isExpired()) {
+			log.warn("Request expired, transactions service not called");
+			message.fail(ErrorCode.TIMEOUT_ERROR.getCode(), "Request expired before calling the transactions service");
+			return;
+		}
+
+		// read on the context of the request: a coalesced Fabrick call completes on the context of the first one
+		int pageSize = ChunkedReply.pageSize();
+		LocalDate from = parseDate(messageIn, START_DATE);
+		LocalDate to = parseDate(messageIn, END_DATE);
+		if (from == null || to == null || from.isAfter(to) || request.getUrlTemplate() == null) {
+			// not a range that can be split by day: the whole request goes to Fabrick, which validates it
+			chiamaFabrick(indirizzo).onComplete(ar -> rispondi(message, ar, null, pageSize));
+			return;
+		}
+
+		DayRange range = new DayRange(from, to, pageSize);
+		LocalDate completeUntil = transactionLedger.getCompleteUntil();
+		if (!transactionLedger.covers(from)) {
+			leggiDaCache(message, request, range, from);
+			return;
+		}
+
+		// the complete days of the local ledger with a single indexed query, then the cache and Fabrick
+		LocalDate ledgerTo = to.isAfter(completeUntil) ? completeUntil : to;
+		transactionLedger.read(accountId, from, ledgerTo).onComplete(ar -> {
+			if (ar.failed()) {
+				log.warn("Cannot read the transactions from the ledger: {}", ar.cause().getMessage());
+				leggiDaCache(message, request, range, from);
+				return;
+			}
+			for (LocalDate day = from; !day.isAfter(ledgerTo); day = day.plusDays(1)) {
+				range.days.put(day, new ArrayList<>());
+			}
+			for (ListaTransactionDto dto : ar.result()) {
+				LocalDate day = parseDate(dto.getAccountingDate());
+				List<ListaTransactionDto> ofTheDay = day == null ? null : range.days.get(day);
+				(ofTheDay == null ? range.undated : ofTheDay).add(dto);
+			}
+			log.debug("Transactions read from the ledger from {} to {} - count: {}", from, ledgerTo, ar.result().size());
+			leggiDaCache(message, request, range, ledgerTo.plusDays(1));
+		});
+	}
+
+	/**
+	 * @param start first day not read yet: closed days served from the cache, from the first day not cached on
+	 *            read from Fabrick
+	 */
+	private void leggiDaCache(Message<Object> message, OperationRequest request, DayRange range, LocalDate start) {
+
+		LocalDate from = range.from;
+		LocalDate to = range.to;
+		String indirizzo = request.getIndirizzo();
+		DecodedMessage messageIn = request.getMessageIn();
+		LocalDate firstOpenDay = transactionCache.firstOpenDay();
+		LocalDate fetchFrom = start;
+		while (!fetchFrom.isAfter(to) && fetchFrom.isBefore(firstOpenDay)) {
+			List<ListaTransactionDto> cached = transactionCache.get(accountId, fetchFrom);
+			if (cached == null) {
+				break;
+			}
+			range.days.put(fetchFrom, cached);
+			fetchFrom = fetchFrom.plusDays(1);
+		}
+
+		if (fetchFrom.isAfter(to)) {
+			log.info("Transactions served locally - days: {}", range.days.size());
+			rispondi(message, range);
+			return;
+		}
+
+		String fetchFromDate = fetchFrom.toString();
+		String indirizzoDaLeggere = fetchFrom.equals(from) ? indirizzo
+				: request.getUrlTemplate().expand(name -> START_DATE.equals(name) ? fetchFromDate : messageIn.get(name));
+		log.debug("Transactions read from Fabrick from {} - days served locally: {}", fetchFromDate, range.days.size());
+		range.fetchFrom = fetchFrom;
+
+		chiamaFabrick(indirizzoDaLeggere).onComplete(ar -> rispondi(message, ar, range, range.pageSize));
+	}
+
+	private Future<HttpResponse<Buffer>> chiamaFabrick(String indirizzo) {
+
+		// identical GETs in flight (same resolved URL) share a single Fabrick call, made only if the breaker is closed
+		// the call is shared with the requests joining it: the deadline of this request bounds only its own wait
+		return singleFlight.execute("LIS", indirizzo, Deadline.timeoutMs(API_TIMEOUT_MS),
+				() -> circuitBreakers.execute("LIS", () -> client
+						.requestAbs(HttpMethod.GET, indirizzo)
+						.timeout(API_TIMEOUT_MS)
+						.putHeader("Content-Type", "application/json")
+						.putHeader("Auth-Schema", authSchema)
+						.putHeader("Api-Key", apiKey)
+						.putHeader("Content-Type", "application/json")
+						.sendBuffer(Buffer.buffer(""))));
+	}
+
+	/**
+	 * @param range days requested with the ones read from the cache, null if the response is replied as it is
+	 * @param pageSize transactions a chunk, 0 for a single reply
+	 */
+	private void rispondi(Message<Object> message, AsyncResult<HttpResponse<Buffer>> ar, DayRange range, int pageSize) {
+
+		if (ar.failed()) {
+			String errorMessage = String.format("Failed to connect to transactions service: %s", ar.cause().getMessage());
+			log.error(errorMessage);
+			message.fail(ErrorCode.NETWORK_ERROR.getCode(), errorMessage);
+			return;
+		}
+
+		HttpResponse<Buffer> response = ar.result();
+		int statusCode = response.statusCode();
+
+		log.debug("Transactions API response status: {}", statusCode);
+
+		if (statusCode >= 300) {
+			String errorMessage = "API error response: " + response.bodyAsString();
+			log.error(errorMessage);
+			message.fail(ErrorCode.API_ERROR.getCode(), errorMessage);
+			return;
+		}
+
+		Buffer body = response.body() == null ? Buffer.buffer() : response.body();
+		// the transactions are bound to objects only when the response has closed days to cache
+		boolean materialize = range != null && range.fetchFrom.isBefore(transactionCache.firstOpenDay());
+		Callable<OperationResult> writer = () -> materialize ? scriviConCache(body, range, pageSize)
+				: scriviInStreaming(body, range, pageSize);
+
+		Future<OperationResult> listaTransazioni;
+		if (body.length() > OFFLOAD_BYTES) {
+			listaTransazioni = vertx.executeBlocking(writer, false);
+		} else {
+			try {
+				listaTransazioni = Future.succeededFuture(writer.call());
+			} catch (Exception e) {
+				listaTransazioni = Future.failedFuture(e);
+			}
+		}
+
+		listaTransazioni.onComplete(written -> {
+			if (written.failed()) {
+				log.error("Failed to parse transactions response", written.cause());
+				message.fail(ErrorCode.PARSE_ERROR.getCode(), "Failed to parse transactions response: " + written.cause().getMessage());
+				return;
+			}
+			message.reply(written.result());
+		});
+	}
+
+	/**
+	 * The elements of payload.list are copied one at a time into the reply, followed by the days served locally.
+	 * A chunked reply copies them page by page, while the socket takes them.
+	 */
+	private OperationResult scriviInStreaming(Buffer body, DayRange range, int pageSize) throws IOException {
+
+		if (pageSize > 0) {
+			List<ListaTransactionDto> local = range == null ? List.of() : giorniLocali(range, range.fetchFrom.minusDays(1));
+			TransactionPages pages = TransactionPages.of(MAPPER, body, local, pageSize);
+			log.info("Transactions retrieved successfully - count: {}, chunked by: {}", pages.total(), pageSize);
+			return new OperationResult(pages);
+		}
+
+		StringWriter out = new StringWriter(body.length());
+		try (JsonGenerator generator = MAPPER.getFactory().createGenerator(out)) {
+			generator.writeStartArray();
+			int count = TransactionListReader.copy(MAPPER, body, generator);
+			if (range != null) {
+				count += scriviGiorniLocali(generator, range, range.fetchFrom.minusDays(1));
+			}
+			generator.writeEndArray();
+			log.info("Transactions retrieved successfully - count: {}", count);
+		}
+		return new OperationResult(out.toString());
+	}
+
+	/**
+	 * The transactions read from Fabrick are bound to objects, the closed days are cached.
+	 */
+	private OperationResult scriviConCache(Buffer body, DayRange range, int pageSize) throws IOException {
+
+		List<ListaTransactionDto> list = TransactionListReader.read(MAPPER, body);
+
+		// the response covers every day from fetchFrom to the end of the range, also the days with no transactions
+		Map<LocalDate, List<ListaTransactionDto>> fetched = new HashMap<>();
+		for (LocalDate day = range.fetchFrom; !day.isAfter(range.to); day = day.plusDays(1)) {
+			fetched.put(day, new ArrayList<>());
+		}
+		int outside = 0;
+		for (ListaTransactionDto dto : list) {
+			LocalDate day = parseDate(dto.getAccountingDate());
+			List<ListaTransactionDto> ofTheDay = day == null ? null : fetched.get(day);
+			if (ofTheDay == null) {
+				outside++;
+			} else {
+				ofTheDay.add(dto);
+			}
+		}
+		if (outside == 0) {
+			LocalDate firstOpenDay = transactionCache.firstOpenDay();
+			for (LocalDate day = range.fetchFrom; !day.isAfter(range.to) && day.isBefore(firstOpenDay); day = day.plusDays(1)) {
+				transactionCache.put(accountId, day, fetched.get(day));
+			}
+		} else {
+			log.warn("Transactions outside the requested days, not cached: {}", outside);
+		}
+
+		if (pageSize > 0) {
+			list.addAll(giorniLocali(range, range.fetchFrom.minusDays(1)));
+			log.info("Transactions retrieved successfully - count: {}, chunked by: {}", list.size(), pageSize);
+			return new OperationResult(TransactionPages.of(MAPPER, list, pageSize));
+		}
+
+		StringWriter out = new StringWriter();
+		try (JsonGenerator generator = MAPPER.getFactory().createGenerator(out)) {
+			generator.writeStartArray();
+			for (ListaTransactionDto dto : list) {
+				MAPPER.writeValue(generator, dto);
+			}
+			int count = list.size() + scriviGiorniLocali(generator, range, range.fetchFrom.minusDays(1));
+			generator.writeEndArray();
+			log.info("Transactions retrieved successfully - count: {}", count);
+		}
+		return new OperationResult(out.toString());
+	}
+
+	private void rispondi(Message<Object> message, DayRange range) {
+
+		if (range.pageSize > 0) {
+			List<ListaTransactionDto> local = giorniLocali(range, range.to);
+			log.info("Transactions retrieved successfully - count: {}, chunked by: {}", local.size(), range.pageSize);
+			message.reply(new OperationResult(TransactionPages.of(MAPPER, local, range.pageSize)));
+			return;
+		}
+
+		StringWriter out = new StringWriter();
+		try (JsonGenerator generator = MAPPER.getFactory().createGenerator(out)) {
+			generator.writeStartArray();
+			int count = scriviGiorniLocali(generator, range, range.to);
+			generator.writeEndArray();
+			log.info("Transactions retrieved successfully - count: {}", count);
+		} catch (IOException e) {
+			log.error("Failed to serialize transactions", e);
+			message.fail(ErrorCode.PARSE_ERROR.getCode(), "Failed to parse transactions response: " + e.getMessage());
+			return;
+		}
+		message.reply(new OperationResult(out.toString()));
+	}
+
+	/**
+	 * Days served from the ledger and the cache, newest day first as listed by Fabrick (after the days read from it).
+	 *
+	 * @param lastDay last day served locally
+	 * @return the number of transactions written
+	 */
+	private static int scriviGiorniLocali(JsonGenerator generator, DayRange range, LocalDate lastDay) throws IOException {
+
+		List<ListaTransactionDto> local = giorniLocali(range, lastDay);
+		for (ListaTransactionDto dto : local) {
+			MAPPER.writeValue(generator, dto);
+		}
+		return local.size();
+	}
+
+	/**
+	 * @param lastDay last day served locally
+	 * @return the transactions of the days served locally, newest day first, then the undated ones
+	 */
+	private static List<ListaTransactionDto> giorniLocali(DayRange range, LocalDate lastDay) {
+
+		List<ListaTransactionDto> local = new ArrayList<>();
+		for (LocalDate day = lastDay; !day.isBefore(range.from); day = day.minusDays(1)) {
+			local.addAll(range.days.get(day));
+		}
+		local.addAll(range.undated);
+		return local;
+	}
+
+	private static LocalDate parseDate(DecodedMessage messageIn, String field) {
+		return messageIn == null ? null : parseDate(messageIn.getString(field));
+	}
+
+	private static LocalDate parseDate(String date) {
+		if (date == null || date.length() < ISO_DATE_LENGTH) {
+			return null;
+		}
+		try {
+			// accountingDate may carry a time after the date
+			return LocalDate.parse(date.substring(0, ISO_DATE_LENGTH));
+		} catch (DateTimeParseException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Transactions of the requested days: the ones from the ledger and the cache, then the ones read from Fabrick.
+	 */
+	private static final class DayRange {
+		private final LocalDate from;
+		private final LocalDate to;
+		private final Map<LocalDate, List<ListaTransactionDto>> days = new HashMap<>();
+		private final List<ListaTransactionDto> undated = new ArrayList<>();
+		// transactions a chunk, 0 for a single reply
+		private final int pageSize;
+		private LocalDate fetchFrom;
+
+		private DayRange(LocalDate from, LocalDate to, int pageSize) {
+			this.from = from;
+			this.to = to;
+			this.pageSize = pageSize;
+		}
 	}
 
 }
@@ -1,6 +1,11 @@
 package it.demo.fabrick.vertx;
 
+import java.time.Instant;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -8,17 +13,25 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.vertx.codegen.annotations.Nullable;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.http.HttpMethod;
-import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.HttpResponse;
 import io.vertx.ext.web.client.WebClient;
+import it.demo.fabrick.cache.BalanceCache;
+import it.demo.fabrick.client.FabrickClients;
 import it.demo.fabrick.dto.BalanceDto;
 import it.demo.fabrick.dto.ErrorCode;
+import it.demo.fabrick.dto.OperationRequest;
+import it.demo.fabrick.dto.OperationResult;
+import it.demo.fabrick.resilience.CircuitBreakers;
+import it.demo.fabrick.resilience.SingleFlight;
+import it.demo.fabrick.utils.Deadline;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 @Slf4j
 public class SaldoVerticle extends AbstractVerticle {
 
@@ -28,32 +41,77 @@ public class SaldoVerticle extends AbstractVerticle {
 	@Value("${fabrick.authSchema}")
 	private String authSchema;
 
+	@Value("${fabrick.accountId}")
+	private String accountId;
+
+	@Autowired
+	private FabrickClients fabrickClients;
+
+	// pooled keep-alive client of this instance, created in start()
+	private WebClient client;
+
+	@Autowired
+	private CircuitBreakers circuitBreakers;
+
+	@Autowired
+	private SingleFlight singleFlight;
+
+	@Autowired
+	private BalanceCache balanceCache;
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	// upper bound of the Fabrick call, the remaining budget of the request is used when shorter
+	private static final long API_TIMEOUT_MS = 120000;
+
 	@Override
 	public void start(io.vertx.core.Promise<Void> startFuture) throws Exception {
 
+		client = fabrickClients.create(vertx);
+
 		String bus = "saldo_bus";
 		log.debug("Subscribing to event bus: {}", bus);
-		vertx.eventBus().consumer(bus, message -> {
+		vertx.eventBus().localConsumer(bus, message -> {
 
 			lanciaChiamataEsterna(message);
 		});
 	}
 
+	@Override
+	public void stop() throws Exception {
+		client.close();
+	}
+
 	public void lanciaChiamataEsterna(Message<Object> message) {
 
-		JsonObject json = (JsonObject) message.body();
-		String indirizzo = json.getString("indirizzo");
+		OperationRequest request = (OperationRequest) message.body();
+		String indirizzo = request.getIndirizzo();
 
 		log.info("Processing balance request");
 
-		WebClient client = WebClient.create(vertx);
-
-		client.requestAbs(HttpMethod.GET, indirizzo)
-				.putHeader("Content-Type", "application/json")
-				.putHeader("Auth-Schema", authSchema)
-				.putHeader("Api-Key", apiKey)
-				.putHeader("Content-Type", "application/json")
-				.sendBuffer(Buffer.buffer(""), ar -> {
+		if (Deadline.isExpired()) {
+			log.warn("Request expired, balance service not called");
+			message.fail(ErrorCode.TIMEOUT_ERROR.getCode(), "Request expired before calling the balance service");
+			return;
+		}
+
+		BalanceCache.Lookup cached = balanceCache.lookup(accountId);
+		if (cached.isRefresh()) {
+			aggiornaSaldo(indirizzo, cached.getGeneration());
+		}
+		if (cached.getStatus() == BalanceCache.Status.HIT) {
+			log.debug("Balance served from cache");
+			message.reply(new OperationResult(formatta(cached.getBalance(), null)));
+			return;
+		}
+		if (cached.getStatus() == BalanceCache.Status.STALE) {
+			Instant loadedAt = Instant.ofEpochMilli(cached.getLoadedAt());
+			log.info("Stale balance served from cache, retrieved at {}", loadedAt);
+			message.reply(new OperationResult(formatta(cached.getBalance(), loadedAt)));
+			return;
+		}
+
+		chiamaFabrick(indirizzo, Deadline.timeoutMs(API_TIMEOUT_MS)).onComplete(ar -> {
 					if (ar.succeeded()) {
 
 						HttpResponse<Buffer> response = ar.result();
@@ -71,28 +129,21 @@ public class SaldoVerticle extends AbstractVerticle {
 						}
 
 						BalanceDto balance = null;
-						ObjectMapper mapper = new ObjectMapper();
 						try {
-							balance = mapper.readValue(bodyAsString, BalanceDto.class);
+							balance = MAPPER.readValue(bodyAsString, BalanceDto.class);
 						} catch (JsonProcessingException e) {
 							log.error("Failed to parse balance response", e);
 							message.fail(ErrorCode.PARSE_ERROR.getCode(), "Failed to parse balance response: " + e.getMessage());
 							return;
 						}
-
-						StringBuilder finalResponse = new StringBuilder();
-						finalResponse.append("balance: ")
-								.append(balance.getPayload().getBalance()).append(" ")
-								.append(balance.getPayload().getCurrency())
-								.append(", availableBalance: ").append(balance.getPayload().getAvailableBalance())
-								.append(" ").append(balance.getPayload().getCurrency());
+						balanceCache.put(accountId, balance, cached.getGeneration());
 
 						log.info("Balance retrieved successfully - balance: {} {}, available: {} {}",
 								balance.getPayload().getBalance(),
 								balance.getPayload().getCurrency(),
 								balance.getPayload().getAvailableBalance(),
 								balance.getPayload().getCurrency());
-						message.reply(finalResponse.toString());
+						message.reply(new OperationResult(formatta(balance, null)));
 
 					} else {
 						String errorMessage = String.format("Failed to connect to balance service: %s", ar.cause().getMessage());
@@ -102,4 +153,61 @@ public class SaldoVerticle extends AbstractVerticle {
 				});
 	}
 
+	/**
+	 * Background refresh of the cached balance, the request has already been answered from the cache.
+	 */
+	private void aggiornaSaldo(String indirizzo, long generation) {
+
+		log.debug("Refreshing the cached balance");
+		// the request has been answered already: its deadline does not bound the refresh
+		chiamaFabrick(indirizzo, API_TIMEOUT_MS).onComplete(ar -> {
+			try {
+				if (ar.failed() || ar.result().statusCode() >= 300) {
+					log.warn("Balance refresh failed: {}", ar.failed() ? ar.cause().getMessage() : ar.result().bodyAsString());
+					balanceCache.refreshFailed(accountId);
+					return;
+				}
+				balanceCache.put(accountId, MAPPER.readValue(ar.result().bodyAsString(), BalanceDto.class), generation);
+			} catch (JsonProcessingException e) {
+				log.warn("Failed to parse refreshed balance: {}", e.getMessage());
+				balanceCache.refreshFailed(accountId);
+			}
+		});
+	}
+
+	/**
+	 * @param waitMs how long the caller waits for the result, the shared Fabrick call has its own timeout
+	 */
+	private Future<HttpResponse<Buffer>> chiamaFabrick(String indirizzo, long waitMs) {
+
+		// identical GETs in flight (same resolved URL) share a single Fabrick call, made only if the breaker is closed
+		return singleFlight.execute("SAL", indirizzo, waitMs, () -> circuitBreakers.execute("SAL", () -> client
+				.requestAbs(HttpMethod.GET, indirizzo)
+				.timeout(API_TIMEOUT_MS)
+				.putHeader("Content-Type", "application/json")
+				.putHeader("Auth-Schema", authSchema)
+				.putHeader("Api-Key", apiKey)
+				.putHeader("Content-Type", "application/json")
+				.sendBuffer(Buffer.buffer(""))));
+	}
+
+	/**
+	 * @param balance balance to format
+	 * @param staleSince time of the Fabrick response for a stale balance, null for a fresh one
+	 * @return the reply message
+	 */
+	private static String formatta(BalanceDto balance, Instant staleSince) {
+
+		StringBuilder finalResponse = new StringBuilder();
+		finalResponse.append("balance: ")
+				.append(balance.getPayload().getBalance()).append(" ")
+				.append(balance.getPayload().getCurrency())
+				.append(", availableBalance: ").append(balance.getPayload().getAvailableBalance())
+				.append(" ").append(balance.getPayload().getCurrency());
+		if (staleSince != null) {
+			finalResponse.append(", stale: retrieved at ").append(staleSince);
+		}
+		return finalResponse.toString();
+	}
+
 }
@@ -4,83 +4,249 @@ import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import io.reactiverse.contextual.logging.ContextualData;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.ReplyException;
 import io.vertx.core.net.NetServer;
 import io.vertx.core.net.NetServerOptions;
+import io.vertx.core.net.NetSocket;
+import io.vertx.core.parsetools.RecordParser;
 import it.demo.fabrick.ContoDemoApplication;
 import it.demo.fabrick.dto.ErrorCode;
-
+import it.demo.fabrick.dto.OperationResult;
+import it.demo.fabrick.resilience.AdmissionControl;
+import it.demo.fabrick.utils.ChunkedReply;
+import it.demo.fabrick.utils.ChunkedReplyWriter;
+import it.demo.fabrick.utils.Deadline;
+import it.demo.fabrick.utils.InFlightRequests;
+import it.demo.fabrick.utils.LocalMessageCodec;
+import it.demo.fabrick.utils.MessageParserUtil;
+import it.demo.fabrick.utils.ResponseEncoder;
+import it.demo.fabrick.utils.SocketFraming;
+import it.demo.fabrick.utils.WireCodec;
+
+/**
+ * TCP socket server. Prototype scoped so that it can be deployed with several instances:
+ * Vert.x shares the listening port among them and spreads the connections over the event loops.
+ */
 @Component
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class SocketServerVerticle extends AbstractVerticle {
 
 	private Logger log = LoggerFactory.getLogger(getClass());
 
-	private static final String CHARSET = "cp280";
-//	private static final String charset = "UTF-8";
+	// cp280 (EBCDIC, table driven codec) or any other charset, e.g. UTF-8
+	@Value("${socket.charset:cp280}")
+	private String charset;
+
+	@Value("${socket.framing:DELIMITER}")
+	private String framing;
+
+	@Value("${socket.delimiter:" + SocketFraming.DEFAULT_DELIMITER + "}")
+	private String delimiter;
+
+	@Value("${socket.maxFrameSize:65536}")
+	private int maxFrameSize;
+
+	// 0 = no correlation id, otherwise every frame starts with a fixed width client correlation id echoed in the reply
+	@Value("${socket.correlationIdLength:0}")
+	private int correlationIdLength;
+
+	@Value("${socket.maxInFlightPerConnection:1000}")
+	private int maxInFlightPerConnection;
+
+	// with the native transport every instance binds its own socket and the kernel balances the connections
+	@Value("${socket.reusePort:true}")
+	private boolean reusePort;
+
+	// time budget of a request, from its arrival to the reply: the stages downstream share the remaining part
+	@Value("${socket.requestTimeoutMs:120000}")
+	private long requestTimeoutMs;
+
+	// 0 = single LIS reply, otherwise the LIS replies are chunked with at most this number of transactions a frame
+	@Value("${socket.chunkPageSize:0}")
+	private int chunkPageSize;
+
+	@Autowired
+	private AdmissionControl admissionControl;
+
+	private WireCodec wireCodec;
+
+	private SocketFraming socketFraming;
+
+	private ResponseEncoder responseEncoder;
 
 	@Override
 	public void start() throws Exception {
 
-
+		wireCodec = WireCodec.forName(charset);
+		socketFraming = new SocketFraming(SocketFraming.Mode.valueOf(framing), delimiter, wireCodec.charset(),
+				maxFrameSize);
+		responseEncoder = new ResponseEncoder(wireCodec, socketFraming, ResponseEncoder.DEFAULT_MIN_LENGTH);
 
 		NetServerOptions options = new NetServerOptions().setPort(9221);
 		options.setIdleTimeout(55);
+		options.setReusePort(reusePort);
 		NetServer server = vertx.createNetServer(options);
 
 		server.connectHandler(socket -> {
 
-			socket.handler(bufferIn -> {
-				String requestId = UUID.randomUUID().toString();
-				ContextualData.put("requestId", requestId);
-				String messageInMessage = bufferIn.toString(CHARSET);
-				log.info("Request received - requestId: {}, operation: {}", requestId, messageInMessage.substring(0, 3));
-
-				vertx.eventBus().request("gestisci-chiamata-bus", messageInMessage,
-						ContoDemoApplication.getDefaultDeliverOptions(), asyncResult -> {
-
-					if (asyncResult.succeeded()) {
-
-						String messageOut = (String) asyncResult.result().body();
-						log.info("Request completed successfully - requestId: {}", requestId);
-
-						int stringLen = 500;
-
-						String stringOut = "0" + messageOut;
-						String stringFill = String.format("%-" + (stringLen) + "s", stringOut);
-
-						socket.write(stringFill, CHARSET);
-						log.debug("Response sent for requestId: {} - {} bytes", requestId, stringFill.length());
-					} else {
-						// Include error code in response format
-						int errorCode = asyncResult.cause() instanceof io.vertx.core.eventbus.ReplyException
-								? ((io.vertx.core.eventbus.ReplyException) asyncResult.cause()).failureCode()
-								: ErrorCode.UNKNOWN_ERROR.getCode();
-						String errorMessage = asyncResult.cause().getMessage();
-						String errorResponse = String.format("1[%s] %s", requestId, errorMessage);
-						log.error("Request failed - requestId: {}, code: {}, message: {}", requestId, errorCode, errorMessage);
-						socket.write(errorResponse, CHARSET);
-					}
-					socket.end();
-				});
+			// the connection stays open: every complete frame is a request, replies are written as soon as each
+			// request completes, so a slow request does not hold up the ones pipelined behind it
+			InFlightRequests inFlight = new InFlightRequests(maxInFlightPerConnection);
+			ChunkedReplyWriter chunkedReplies = new ChunkedReplyWriter(socket, responseEncoder);
 
+			RecordParser parser = socketFraming.newParser(frame -> gestisciFrame(socket, inFlight, chunkedReplies, frame), e -> {
+				log.error("Invalid frame received, closing connection", e);
+				socket.close();
 			});
+			socket.handler(parser);
 
 			log.debug("Socket connection opened");
 
-			socket.closeHandler(v -> log.debug("Socket connection closed") );
+			socket.closeHandler(v -> {
+				log.debug("Socket connection closed - {} requests in flight dropped", inFlight.size());
+				inFlight.close();
+				chunkedReplies.close();
+			});
 
 		});
 
 		server.listen(res -> {
 			if (res.succeeded()) {
-				log.info("TCP server listening on port 9221");
+				log.info("TCP server listening on port 9221 - charset: {}, framing: {}, correlation id length: {}",
+						wireCodec.charset(), socketFraming.getMode(), correlationIdLength);
 			} else {
 				log.error("Failed to start TCP server", res.cause());
 			}
 		});
 	}
 
+	private void gestisciFrame(NetSocket socket, InFlightRequests inFlight, ChunkedReplyWriter chunkedReplies,
+			Buffer bufferIn) {
+
+		String requestId = UUID.randomUUID().toString();
+		ContextualData.put("requestId", requestId);
+		Deadline.start(requestTimeoutMs);
+		CharSequence frame = wireCodec.decode(bufferIn);
+
+		if (frame.length() < correlationIdLength) {
+			log.error("Frame shorter than the correlation id, closing connection - requestId: {}", requestId);
+			socket.close();
+			return;
+		}
+
+		String correlationId = frame.subSequence(0, correlationIdLength).toString();
+		// a view on the frame buffer, fields are decoded only when the operation reads them
+		CharSequence messageInMessage = frame.subSequence(correlationIdLength, frame.length());
+		// without client correlation ids the request id keeps the in-flight entries unique
+		String inFlightKey = correlationIdLength > 0 ? correlationId : requestId;
+		// set on every frame: the context is the one of the connection, shared by all its requests
+		boolean lista = messageInMessage.length() >= 3
+				&& MessageParserUtil.OPERATION_LIS.contentEquals(messageInMessage.subSequence(0, 3));
+		ChunkedReply.request(lista ? chunkPageSize : 0);
+
+		log.info("Request received - requestId: {}, correlationId: {}, operation: {}", requestId, correlationId,
+				messageInMessage.length() >= 3 ? messageInMessage.subSequence(0, 3) : messageInMessage);
+
+		if (inFlight.contains(inFlightKey)) {
+			replyError(socket, correlationId, requestId, ErrorCode.VALIDATION_ERROR,
+					"Correlation id already in flight: " + correlationId);
+			return;
+		}
+		// over the limits the request is rejected at once, before any configuration lookup or upstream call
+		if (inFlight.isFull()) {
+			admissionControl.rejectedByConnection();
+			replyBusy(socket, correlationId, requestId,
+					"Too many requests in flight on this connection (max: " + maxInFlightPerConnection + ")");
+			return;
+		}
+		if (!admissionControl.tryAcquire()) {
+			replyBusy(socket, correlationId, requestId,
+					"Server busy, too many requests in flight (max: " + admissionControl.getMaxInFlight() + ")");
+			return;
+		}
+		inFlight.register(inFlightKey, requestId);
+
+		vertx.eventBus().request("gestisci-chiamata-bus", messageInMessage,
+				ContoDemoApplication.getDefaultDeliverOptions().setCodecName(LocalMessageCodec.NAME), asyncResult -> {
+
+			if (asyncResult.succeeded() && ((OperationResult) asyncResult.result().body()).isChunked()) {
+				OperationResult result = (OperationResult) asyncResult.result().body();
+				log.info("Request completed successfully - requestId: {}", requestId);
+				// written page by page as the socket takes them; the queued reply holds the whole response, so the
+				// request stays in flight until it has been written, or dropped by the closing connection
+				chunkedReplies.write(correlationId, requestId, result.getPages(), v -> {
+					admissionControl.release();
+					inFlight.complete(inFlightKey);
+				});
+				return;
+			}
+
+			// released on every reply, also when the connection has been closed in the meantime
+			admissionControl.release();
+
+			if (!inFlight.complete(inFlightKey)) {
+				log.warn("Connection closed before the reply was ready, reply dropped - requestId: {}", requestId);
+				return;
+			}
+
+			if (asyncResult.succeeded()) {
+
+				OperationResult result = (OperationResult) asyncResult.result().body();
+				log.info("Request completed successfully - requestId: {}", requestId);
+
+				String messageOut = result.getPayload();
+				Buffer reply = responseEncoder.success(correlationId, messageOut);
+				socket.write(reply);
+				log.debug("Response sent for requestId: {} - {} bytes", requestId, reply.length());
+			} else {
+				replyError(socket, correlationId, requestId, toErrorCode(asyncResult.cause()),
+						asyncResult.cause().getMessage());
+			}
+		});
+	}
+
+	/**
+	 * Map an event bus failure to the error code of the reply:
+	 * failures of the downstream verticles carry their own code, timeouts and missing consumers are mapped here.
+	 */
+	private static ErrorCode toErrorCode(Throwable cause) {
+
+		if (!(cause instanceof ReplyException replyException)) {
+			return ErrorCode.UNKNOWN_ERROR;
+		}
+		switch (replyException.failureType()) {
+		case TIMEOUT:
+			return ErrorCode.TIMEOUT_ERROR;
+		case NO_HANDLERS:
+			return ErrorCode.CONFIGURATION_ERROR;
+		default:
+			return ErrorCode.fromCode(replyException.failureCode());
+		}
+	}
+
+	private void replyError(NetSocket socket, String correlationId, String requestId, ErrorCode errorCode,
+			String errorMessage) {
+
+		log.error("Request failed - requestId: {}, code: {}, message: {}", requestId, errorCode, errorMessage);
+		socket.write(responseEncoder.error(correlationId, requestId, errorCode, errorMessage));
+	}
+
+	/**
+	 * Overload reply: logged at debug level, under overload a log line per rejected request would add to the load.
+	 */
+	private void replyBusy(NetSocket socket, String correlationId, String requestId, String errorMessage) {
+
+		log.debug("Request rejected - requestId: {}, message: {}", requestId, errorMessage);
+		socket.write(responseEncoder.error(correlationId, requestId, ErrorCode.OVERLOAD_ERROR, errorMessage));
+	}
+
 }
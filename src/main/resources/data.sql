@@ -2,24 +2,30 @@
 --- **********     CONFIGURAZIONI                 **********
 --- ********************************************************
  
-INSERT INTO CONTO_CONFIGURATION (OPERATION, MESSAGE_IN, MESSAGE_OUT_BUS)
+INSERT INTO CONTO_CONFIGURATION (OPERATION, MESSAGE_IN, MESSAGE_OUT_BUS, MAX_CONCURRENT, MAX_QUEUED)
 VALUES (
 	'SAL',
 	'OPERAZIONE=3;',
-	'saldo_bus'
+	'saldo_bus',
+	100,
+	200
 );
 
-INSERT INTO CONTO_CONFIGURATION (OPERATION, MESSAGE_IN, MESSAGE_OUT_BUS)
+INSERT INTO CONTO_CONFIGURATION (OPERATION, MESSAGE_IN, MESSAGE_OUT_BUS, MAX_CONCURRENT, MAX_QUEUED)
 VALUES (
 	'LIS',
 	'OPERAZIONE=3;start-date=10;end-date=10;',
-	'lista_bus'
+	'lista_bus',
+	20,
+	50
 );
 
-INSERT INTO CONTO_CONFIGURATION (OPERATION, MESSAGE_IN, MESSAGE_OUT_BUS)
+INSERT INTO CONTO_CONFIGURATION (OPERATION, MESSAGE_IN, MESSAGE_OUT_BUS, MAX_CONCURRENT, MAX_QUEUED)
 VALUES (
 	'BON', 'OPERAZIONE=3;creditor-name=50;accountCode=27;bicCode=11;description=500;amount=NUM20;currency=3;feeType=3;',
-	'bonifico_bus'
+	'bonifico_bus',
+	10,
+	20
 );
 
 --- ********************************************************
@@ -27,23 +33,23 @@ VALUES (
 --- ********************************************************
 
 
-INSERT INTO CONTO_INDIRIZZI (OPERATION, AMBIENTE, INDIRIZZO) 
+INSERT INTO CONTO_INDIRIZZI (OPERATION, AMBIENTE, INDIRIZZO, CB_FAILURE_RATE, CB_SLOW_CALL_MS, CB_SLOW_CALL_RATE, CB_OPEN_MS)
 VALUES 
-	('SAL', 'SVIL', 'https://sandbox.platfr.io/api/gbs/banking/v4.0/accounts/{account-number}/balance'),
-	('SAL', 'PRE-PROD', 'N.D.'),
-	('SAL', 'PROD', 'N.D.');
+	('SAL', 'SVIL', 'https://sandbox.platfr.io/api/gbs/banking/v4.0/accounts/{account-number}/balance', 50, 3000, 80, 30000),
+	('SAL', 'PRE-PROD', 'N.D.', 50, 3000, 80, 30000),
+	('SAL', 'PROD', 'N.D.', 50, 3000, 80, 30000);
 
-INSERT INTO CONTO_INDIRIZZI (OPERATION, AMBIENTE, INDIRIZZO) 
+INSERT INTO CONTO_INDIRIZZI (OPERATION, AMBIENTE, INDIRIZZO, CB_FAILURE_RATE, CB_SLOW_CALL_MS, CB_SLOW_CALL_RATE, CB_OPEN_MS)
 VALUES 
-	('LIS', 'SVIL', 'https://sandbox.platfr.io/api/gbs/banking/v4.0/accounts/{account-number}/transactions?fromAccountingDate={start-date}&toAccountingDate={end-date}'),
-	('LIS', 'PRE-PROD', 'N.D.'),
-	('LIS', 'PROD', 'N.D.');
+	('LIS', 'SVIL', 'https://sandbox.platfr.io/api/gbs/banking/v4.0/accounts/{account-number}/transactions?fromAccountingDate={start-date}&toAccountingDate={end-date}', 50, 10000, 80, 30000),
+	('LIS', 'PRE-PROD', 'N.D.', 50, 10000, 80, 30000),
+	('LIS', 'PROD', 'N.D.', 50, 10000, 80, 30000);
 
-INSERT INTO CONTO_INDIRIZZI (OPERATION, AMBIENTE, INDIRIZZO) 
+INSERT INTO CONTO_INDIRIZZI (OPERATION, AMBIENTE, INDIRIZZO, CB_FAILURE_RATE, CB_SLOW_CALL_MS, CB_SLOW_CALL_RATE, CB_OPEN_MS)
 VALUES 
-	('BON', 'SVIL', 'https://sandbox.platfr.io/api/gbs/banking/v4.0/accounts/{account-number}/payments/money-transfers'),
-	('BON', 'PRE-PROD', 'N.D.'),
-	('BON', 'PROD', 'N.D.');
+	('BON', 'SVIL', 'https://sandbox.platfr.io/api/gbs/banking/v4.0/accounts/{account-number}/payments/money-transfers', 50, 30000, 80, 60000),
+	('BON', 'PRE-PROD', 'N.D.', 50, 30000, 80, 60000),
+	('BON', 'PROD', 'N.D.', 50, 30000, 80, 60000);
 	
 	
 	 
\ No newline at end of file
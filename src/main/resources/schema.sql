@@ -1,11 +1,20 @@
 ----  CREAZIONE TABELLA
 
+--- VERSION va incrementata ad ogni modifica di CONTO_CONFIGURATION e CONTO_INDIRIZZI:
+--- la configurazione viene ricaricata quando cambia max(VERSION) (o il numero di righe)
+--- MAX_CONCURRENT / MAX_QUEUED: bulkhead dell'operazione, chiamate contemporanee e in attesa (MAX_CONCURRENT 0 = nessun limite)
+--- CB_*: circuit breaker dell'indirizzo, sulle ultime chiamate si apre oltre CB_FAILURE_RATE % di errori (0 = disabilitato)
+---       o oltre CB_SLOW_CALL_RATE % di chiamate più lente di CB_SLOW_CALL_MS (0 = disabilitato), resta aperto CB_OPEN_MS
+
 DROP TABLE IF EXISTS CONTO_CONFIGURATION;
  
 CREATE TABLE CONTO_CONFIGURATION (
   OPERATION VARCHAR(3) NOT NULL,
   MESSAGE_IN VARCHAR(2000) NOT NULL,
-  MESSAGE_OUT_BUS VARCHAR(2000) NOT NULL
+  MESSAGE_OUT_BUS VARCHAR(2000) NOT NULL,
+  MAX_CONCURRENT INT NOT NULL DEFAULT 0,
+  MAX_QUEUED INT NOT NULL DEFAULT 0,
+  VERSION BIGINT NOT NULL DEFAULT 1
 );
 
 DROP TABLE IF EXISTS CONTO_INDIRIZZI;
@@ -14,18 +23,35 @@ CREATE TABLE CONTO_INDIRIZZI (
   OPERATION VARCHAR(3) NOT NULL,
   AMBIENTE VARCHAR(10) NOT NULL,
   INDIRIZZO VARCHAR(1000) NOT NULL,
-  HTTP_METHOD  VARCHAR(10) NOT NULL DEFAULT 'POST'
+  HTTP_METHOD  VARCHAR(10) NOT NULL DEFAULT 'POST',
+  CB_FAILURE_RATE INT NOT NULL DEFAULT 50,
+  CB_SLOW_CALL_MS INT NOT NULL DEFAULT 0,
+  CB_SLOW_CALL_RATE INT NOT NULL DEFAULT 100,
+  CB_OPEN_MS INT NOT NULL DEFAULT 30000,
+  VERSION BIGINT NOT NULL DEFAULT 1
 );
 
 DROP TABLE IF EXISTS CONTO_TRANSACTION;
 
+--- copia locale dei movimenti, scritta da LedgerVerticle (upsert per transactionId) e letta per le richieste LIS
 CREATE TABLE CONTO_TRANSACTION (
   id INT AUTO_INCREMENT  PRIMARY KEY,
+  accountId VARCHAR(20) NOT NULL,
   transactionId VARCHAR(20) NOT NULL,
-  operationId VARCHAR(20) NOT NULL,
+  operationId VARCHAR(20) DEFAULT NULL,
   accountingDate DATE NOT NULL,
-  valueDate DATE NOT NULL,
-  amount NUMERIC NOT NULL,
+  valueDate DATE DEFAULT NULL,
+  typeEnumeration VARCHAR(20) DEFAULT NULL,
+  typeValue VARCHAR(200) DEFAULT NULL,
+  amount NUMERIC(18,2) NOT NULL,
   currency VARCHAR(3) NOT NULL,
-  description VARCHAR(3000) DEFAULT NULL
-);
\ No newline at end of file
+  description VARCHAR(3000) DEFAULT NULL,
+  --- posizione nella risposta Fabrick: ordine dei movimenti dello stesso giorno
+  listPosition INT NOT NULL,
+  CONSTRAINT CONTO_TRANSACTION_UK UNIQUE (transactionId)
+);
+
+--- liste per conto e intervallo di date contabili
+CREATE INDEX CONTO_TRANSACTION_DATE_IX ON CONTO_TRANSACTION (accountId, accountingDate);
+--- ricerca di un bonifico per importo e divisa (validation enquiry)
+CREATE INDEX CONTO_TRANSACTION_AMOUNT_IX ON CONTO_TRANSACTION (amount, currency);
@@ -0,0 +1,118 @@
+package it.demo.fabrick.unit.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.demo.fabrick.cache.BalanceCache;
+import it.demo.fabrick.dto.BalanceDto;
+
+/**
+ * Unit tests for BalanceCache.
+ */
+@DisplayName("BalanceCache Tests")
+class BalanceCacheTest {
+
+	private static final String ACCOUNT = "14537780";
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AtomicLong now = new AtomicLong(1_000_000);
+	// fresh for 4 s, refreshed ahead in the last second, stale for 10 s more
+	private final BalanceCache cache = new BalanceCache(meterRegistry, 5000, 1000, 10000, now::get);
+	private final BalanceDto balance = new BalanceDto();
+
+	@Test
+	@DisplayName("lookup - miss, then hit once the balance is cached")
+	void testLookup_missThenHit() {
+		BalanceCache.Lookup miss = cache.lookup(ACCOUNT);
+		assertEquals(BalanceCache.Status.MISS, miss.getStatus());
+		assertNull(miss.getBalance());
+
+		cache.put(ACCOUNT, balance, miss.getGeneration());
+		now.addAndGet(3000);
+
+		BalanceCache.Lookup hit = cache.lookup(ACCOUNT);
+		assertEquals(BalanceCache.Status.HIT, hit.getStatus());
+		assertSame(balance, hit.getBalance());
+		assertFalse(hit.isRefresh());
+		assertEquals(1.0, count("miss"));
+		assertEquals(1.0, count("hit"));
+	}
+
+	@Test
+	@DisplayName("lookup - close to expiry the balance is served and a single caller refreshes it")
+	void testLookup_refreshAhead() {
+		cache.put(ACCOUNT, balance, cache.lookup(ACCOUNT).getGeneration());
+		now.addAndGet(4500);
+
+		BalanceCache.Lookup first = cache.lookup(ACCOUNT);
+		BalanceCache.Lookup second = cache.lookup(ACCOUNT);
+
+		assertEquals(BalanceCache.Status.HIT, first.getStatus());
+		assertTrue(first.isRefresh());
+		assertFalse(second.isRefresh());
+	}
+
+	@Test
+	@DisplayName("lookup - an expired balance is served as stale, a failed refresh is retried by the next caller")
+	void testLookup_stale() {
+		cache.put(ACCOUNT, balance, cache.lookup(ACCOUNT).getGeneration());
+		long loadedAt = now.get();
+		now.addAndGet(8000);
+
+		BalanceCache.Lookup stale = cache.lookup(ACCOUNT);
+		assertEquals(BalanceCache.Status.STALE, stale.getStatus());
+		assertSame(balance, stale.getBalance());
+		assertEquals(loadedAt, stale.getLoadedAt());
+		assertTrue(stale.isRefresh());
+
+		cache.refreshFailed(ACCOUNT);
+
+		assertTrue(cache.lookup(ACCOUNT).isRefresh());
+		assertEquals(2.0, count("stale"));
+	}
+
+	@Test
+	@DisplayName("lookup - not served beyond the stale window")
+	void testLookup_tooOld() {
+		cache.put(ACCOUNT, balance, cache.lookup(ACCOUNT).getGeneration());
+		now.addAndGet(15000);
+
+		assertEquals(BalanceCache.Status.MISS, cache.lookup(ACCOUNT).getStatus());
+	}
+
+	@Test
+	@DisplayName("invalidate - the entry is removed and a read started before is not cached")
+	void testInvalidate() {
+		cache.put(ACCOUNT, balance, cache.lookup(ACCOUNT).getGeneration());
+		long generation = cache.lookup(ACCOUNT).getGeneration();
+
+		cache.invalidate(ACCOUNT);
+		assertEquals(BalanceCache.Status.MISS, cache.lookup(ACCOUNT).getStatus());
+
+		cache.put(ACCOUNT, new BalanceDto(), generation);
+		assertEquals(BalanceCache.Status.MISS, cache.lookup(ACCOUNT).getStatus());
+	}
+
+	@Test
+	@DisplayName("ttlMs 0 - the cache is disabled")
+	void testDisabled() {
+		BalanceCache disabled = new BalanceCache(new SimpleMeterRegistry(), 0, 1000, 10000, now::get);
+
+		disabled.put(ACCOUNT, balance, disabled.lookup(ACCOUNT).getGeneration());
+
+		assertEquals(BalanceCache.Status.MISS, disabled.lookup(ACCOUNT).getStatus());
+	}
+
+	private double count(String result) {
+		return meterRegistry.get("conto.cache.requests").tag("cache", "balance").tag("result", result).counter().count();
+	}
+}
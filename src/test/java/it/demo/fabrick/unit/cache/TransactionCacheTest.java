@@ -0,0 +1,101 @@
+package it.demo.fabrick.unit.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.demo.fabrick.cache.TransactionCache;
+import it.demo.fabrick.dto.ListaTransactionDto;
+
+/**
+ * Unit tests for TransactionCache.
+ */
+@DisplayName("TransactionCache Tests")
+class TransactionCacheTest {
+
+	private static final String ACCOUNT = "14537780";
+	private static final LocalDate TODAY = LocalDate.of(2024, 3, 10);
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final Clock clock = Clock.fixed(Instant.parse("2024-03-10T12:00:00Z"), ZoneOffset.UTC);
+
+	@Test
+	@DisplayName("firstOpenDay - the last closedAfterDays days are open")
+	void testFirstOpenDay() {
+		TransactionCache cache = new TransactionCache(meterRegistry, 3, 100, clock);
+
+		assertEquals(LocalDate.of(2024, 3, 8), cache.firstOpenDay());
+	}
+
+	@Test
+	@DisplayName("put - a closed day is cached, also with no transactions, an open day is not")
+	void testPut_closedDaysOnly() {
+		TransactionCache cache = new TransactionCache(meterRegistry, 3, 100, clock);
+		LocalDate closed = TODAY.minusDays(5);
+		LocalDate open = TODAY.minusDays(1);
+
+		cache.put(ACCOUNT, closed, List.of());
+		cache.put(ACCOUNT, open, List.of(transaction("1")));
+
+		assertNotNull(cache.get(ACCOUNT, closed));
+		assertTrue(cache.get(ACCOUNT, closed).isEmpty());
+		assertNull(cache.get(ACCOUNT, open));
+		assertNull(cache.get("other", closed));
+		assertEquals(2.0, count("hit"));
+		assertEquals(2.0, count("miss"));
+	}
+
+	@Test
+	@DisplayName("put - the least recently used days are evicted beyond maxTransactions")
+	void testPut_eviction() {
+		TransactionCache cache = new TransactionCache(meterRegistry, 3, 4, clock);
+		LocalDate first = TODAY.minusDays(30);
+		LocalDate second = TODAY.minusDays(29);
+		LocalDate third = TODAY.minusDays(28);
+
+		cache.put(ACCOUNT, first, List.of(transaction("1"), transaction("2")));
+		cache.put(ACCOUNT, second, List.of(transaction("3")));
+		// first is now the most recently used
+		cache.get(ACCOUNT, first);
+		cache.put(ACCOUNT, third, List.of(transaction("4"), transaction("5")));
+
+		assertNull(cache.get(ACCOUNT, second));
+		assertNotNull(cache.get(ACCOUNT, first));
+		assertNotNull(cache.get(ACCOUNT, third));
+		assertEquals(4, cache.size());
+		assertEquals(4.0, meterRegistry.get("conto.cache.size").tag("cache", "transactions").gauge().value());
+	}
+
+	@Test
+	@DisplayName("maxTransactions 0 - the cache is disabled")
+	void testDisabled() {
+		TransactionCache cache = new TransactionCache(meterRegistry, 3, 0, clock);
+		LocalDate closed = TODAY.minusDays(5);
+
+		cache.put(ACCOUNT, closed, List.of(transaction("1")));
+
+		assertNull(cache.get(ACCOUNT, closed));
+		assertEquals(0, cache.size());
+	}
+
+	private double count(String result) {
+		return meterRegistry.get("conto.cache.requests").tag("cache", "transactions").tag("result", result).counter().count();
+	}
+
+	private static ListaTransactionDto transaction(String id) {
+		ListaTransactionDto transaction = new ListaTransactionDto();
+		transaction.setTransactionId(id);
+		return transaction;
+	}
+}
@@ -0,0 +1,113 @@
+package it.demo.fabrick.unit.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import it.demo.fabrick.client.FabrickClients;
+
+/**
+ * Unit tests for FabrickClients.
+ */
+@DisplayName("FabrickClients Tests")
+class FabrickClientsTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final FabrickClients fabrickClients = new FabrickClients(meterRegistry);
+	private Vertx vertx;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		// @Value injected
+		set("maxPoolSize", 32);
+		set("maxWaitQueueSize", 100);
+		set("http2", true);
+		set("http2MaxPoolSize", 2);
+		set("keepAlive", true);
+		set("keepAliveTimeoutSeconds", 45);
+		set("connectTimeoutMs", 3000);
+		set("pipelining", false);
+		set("pipeliningLimit", 10);
+
+		Method registerMetrics = FabrickClients.class.getDeclaredMethod("registerMetrics");
+		registerMetrics.setAccessible(true);
+		registerMetrics.invoke(fabrickClients);
+	}
+
+	@AfterEach
+	void tearDown() {
+		if (vertx != null) {
+			vertx.close();
+		}
+	}
+
+	@Test
+	@DisplayName("options - keep-alive, HTTP/2 over ALPN and connect timeout from the properties")
+	void testOptions() {
+		WebClientOptions options = fabrickClients.options();
+
+		assertTrue(options.isKeepAlive());
+		assertEquals(45, options.getKeepAliveTimeout());
+		assertEquals(3000, options.getConnectTimeout());
+		assertEquals(HttpVersion.HTTP_2, options.getProtocolVersion());
+		assertTrue(options.isUseAlpn());
+		assertFalse(options.isPipelining());
+	}
+
+	@Test
+	@DisplayName("options - HTTP/1.1 with pipelining when HTTP/2 is disabled")
+	void testOptions_http11() throws Exception {
+		set("http2", false);
+		set("pipelining", true);
+
+		WebClientOptions options = fabrickClients.options();
+
+		assertEquals(HttpVersion.HTTP_1_1, options.getProtocolVersion());
+		assertTrue(options.isPipelining());
+		assertEquals(10, options.getPipeliningLimit());
+	}
+
+	@Test
+	@DisplayName("poolOptions - pool sizes and wait queue from the properties")
+	void testPoolOptions() {
+		PoolOptions poolOptions = fabrickClients.poolOptions();
+
+		assertEquals(32, poolOptions.getHttp1MaxSize());
+		assertEquals(2, poolOptions.getHttp2MaxSize());
+		assertEquals(100, poolOptions.getMaxWaitQueueSize());
+	}
+
+	@Test
+	@DisplayName("create - builds a client, the connection metrics start at zero")
+	void testCreate() {
+		vertx = Vertx.vertx();
+
+		WebClient client = fabrickClients.create(vertx);
+
+		assertNotNull(client);
+		assertEquals(0.0, meterRegistry.get("conto.http.client.connections.open").tag("upstream", "fabrick").gauge().value());
+		assertEquals(0.0, meterRegistry.get("conto.http.client.connections.created").counter().count());
+		client.close();
+	}
+
+	private void set(String name, Object value) throws Exception {
+		Field field = FabrickClients.class.getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(fabrickClients, value);
+	}
+}
@@ -0,0 +1,71 @@
+package it.demo.fabrick.unit.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.json.JsonArray;
+import it.demo.fabrick.config.ConfigurationHolder;
+import it.demo.fabrick.config.ConfigurationSnapshot;
+import it.demo.fabrick.config.OperationConfig;
+import it.demo.fabrick.dto.ConfigurazioneDto;
+
+/**
+ * Unit tests for ConfigurationHolder.
+ */
+@DisplayName("ConfigurationHolder Tests")
+class ConfigurationHolderTest {
+
+	private final ConfigurationHolder holder = new ConfigurationHolder();
+
+	@Test
+	@DisplayName("publish - the snapshot is swapped, a config already read is not affected")
+	void testPublish_swap() {
+		ConfigurationSnapshot first = snapshot(1, "saldo_bus");
+		ConfigurationSnapshot second = snapshot(2, "saldo_v2_bus");
+
+		assertNull(holder.publish(first));
+		OperationConfig inFlight = holder.getOperation("SAL");
+
+		assertSame(first, holder.publish(second));
+		assertSame(second, holder.get());
+		assertEquals("saldo_v2_bus", holder.getOperation("SAL").getMessageOutFromBus());
+		assertEquals("saldo_bus", inFlight.getMessageOutFromBus());
+	}
+
+	@Test
+	@DisplayName("getOperation - null before the first snapshot")
+	void testGetOperation_notLoaded() {
+		assertNull(holder.get());
+		assertNull(holder.getOperation("SAL"));
+	}
+
+	@Test
+	@DisplayName("reload - fails until the reloader is registered")
+	void testReload_notAvailable() {
+		assertThrows(IllegalStateException.class, holder::reload);
+	}
+
+	@Test
+	@DisplayName("reload - delegates to the registered reloader")
+	void testReload_delegates() throws Exception {
+		ConfigurationSnapshot reloaded = snapshot(5, "saldo_bus");
+		holder.setReloader(() -> CompletableFuture.completedFuture(reloaded));
+
+		assertSame(reloaded, holder.reload().toCompletableFuture().get());
+	}
+
+	private static ConfigurationSnapshot snapshot(long version, String bus) {
+		ConfigurazioneDto row = new ConfigurazioneDto(new JsonArray().add("SAL").add("SVIL").add("OPERAZIONE=3;")
+				.add(bus).add("https://api.example.com/balance"));
+		return ConfigurationSnapshot.build(version, List.of(row), Map.of());
+	}
+}
@@ -0,0 +1,64 @@
+package it.demo.fabrick.unit.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.json.JsonArray;
+import it.demo.fabrick.config.ConfigurationSnapshot;
+import it.demo.fabrick.config.OperationConfig;
+import it.demo.fabrick.dto.ConfigurazioneDto;
+
+/**
+ * Unit tests for ConfigurationSnapshot.
+ */
+@DisplayName("ConfigurationSnapshot Tests")
+class ConfigurationSnapshotTest {
+
+	private static final Map<String, String> URL_CONSTANTS = Map.of("account-number", "14537780");
+
+	@Test
+	@DisplayName("build - operations are compiled with layout and URL template")
+	void testBuild_compiledOperations() {
+		ConfigurationSnapshot snapshot = ConfigurationSnapshot.build(3, List.of(
+				row("SAL", "OPERAZIONE=3;", "saldo_bus", "https://api.example.com/accounts/{account-number}/balance"),
+				row("LIS", "OPERAZIONE=3;start-date=10;end-date=10;", "lista_bus",
+						"https://api.example.com/accounts/{account-number}/transactions?from={start-date}")),
+				URL_CONSTANTS);
+
+		assertEquals(3, snapshot.getVersion());
+		assertEquals(List.of("LIS", "SAL"), snapshot.getOperations());
+
+		OperationConfig lis = snapshot.getOperation("LIS");
+		assertEquals("lista_bus", lis.getMessageOutFromBus());
+		assertEquals(23, lis.getLayout().getLength());
+		assertEquals(List.of("start-date"), lis.getUrlTemplate().getParameters());
+		assertEquals("https://api.example.com/accounts/14537780/balance",
+				snapshot.getOperation("SAL").getUrlTemplate().expand(name -> null));
+	}
+
+	@Test
+	@DisplayName("build - duplicated and invalid operations are left out")
+	void testBuild_invalidOperationsLeftOut() {
+		ConfigurationSnapshot snapshot = ConfigurationSnapshot.build(1, List.of(
+				row("SAL", "OPERAZIONE=3;", "saldo_bus", "https://api.example.com/balance"),
+				row("SAL", "OPERAZIONE=3;", "saldo_bus", "https://api.example.com/balance2"),
+				row("BON", "OPERAZIONE=3;amount=NUMX", "bonifico_bus", "https://api.example.com/transfers"),
+				row("LIS", "OPERAZIONE=3;", "lista_bus", "https://api.example.com/transactions")),
+				URL_CONSTANTS);
+
+		assertNull(snapshot.getOperation("SAL"));
+		assertNull(snapshot.getOperation("BON"));
+		assertNotNull(snapshot.getOperation("LIS"));
+	}
+
+	private static ConfigurazioneDto row(String operation, String messageIn, String bus, String indirizzo) {
+		return new ConfigurazioneDto(new JsonArray().add(operation).add("SVIL").add(messageIn).add(bus).add(indirizzo));
+	}
+}
@@ -2,6 +2,8 @@ package it.demo.fabrick.unit.dto;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import java.math.BigDecimal;
 
@@ -13,9 +15,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Row;
 import it.demo.fabrick.dto.BalanceDto;
+import it.demo.fabrick.dto.BonificoRequestDto;
 import it.demo.fabrick.dto.ConfigurazioneDto;
 import it.demo.fabrick.dto.TransactionDto;
+import it.demo.fabrick.exception.ExceptionMessageIn;
+import it.demo.fabrick.utils.MessageLayout;
 
 /**
  * Unit tests for DTO serialization/deserialization.
@@ -47,6 +53,25 @@ class DtoSerializationTest {
 		assertEquals("https://api.example.com/accounts/{accountNumber}/transactions", dto.getIndirizzo());
 	}
 
+	@Test
+	@DisplayName("ConfigurazioneDto - constructor from SQL client row")
+	void testConfigurazioneDto_fromRow() {
+		Row row = mock(Row.class);
+		when(row.getString(0)).thenReturn("SAL");
+		when(row.getString(1)).thenReturn("SVIL");
+		when(row.getString(2)).thenReturn("OPERAZIONE=3;");
+		when(row.getString(3)).thenReturn("saldo_bus");
+		when(row.getString(4)).thenReturn("https://api.example.com/balance");
+
+		ConfigurazioneDto dto = new ConfigurazioneDto(row);
+
+		assertEquals("SAL", dto.getOperation());
+		assertEquals("SVIL", dto.getAmbiente());
+		assertEquals("OPERAZIONE=3;", dto.getMessageIn());
+		assertEquals("saldo_bus", dto.getMessageOutFromBus());
+		assertEquals("https://api.example.com/balance", dto.getIndirizzo());
+	}
+
 	@Test
 	@DisplayName("ConfigurazioneDto - toJsonArray conversion")
 	void testConfigurazioneDto_toJsonArray() {
@@ -156,4 +181,25 @@ class DtoSerializationTest {
 		assertEquals("OK", dto.getStatus());
 		assertEquals(0, dto.getPayload().getList().size());
 	}
+
+	// ==================== BonificoRequestDto Tests ====================
+
+	@Test
+	@DisplayName("BonificoRequestDto - built from a decoded BON message")
+	void testBonificoRequestDto_fromDecodedMessage() throws ExceptionMessageIn {
+		MessageLayout layout = MessageLayout.compile(
+				"OPERAZIONE=3;creditor-name=20;accountCode=27;bicCode=11;description=30;amount=NUM20;currency=3;feeType=3;");
+		String message = "BON" + String.format("%-20s", "John Doe") + "IT23A0336844430152923804660"
+				+ "SELBIT2BXXX" + String.format("%-30s", "Payment invoice 75/2017")
+				+ "00000000000000100.50" + "EUR" + "SHA";
+
+		BonificoRequestDto dto = new BonificoRequestDto(layout.wrap(message));
+
+		assertEquals("John Doe", dto.getCreditor().getName());
+		assertEquals("IT23A0336844430152923804660", dto.getCreditor().getAccount().getAccountCode());
+		assertEquals(new BigDecimal("100.50"), dto.getAmount());
+		assertEquals("EUR", dto.getCurrency());
+		assertEquals("SHA", dto.getFeeType());
+		assertEquals(null, dto.getFeeAccountId());
+	}
 }
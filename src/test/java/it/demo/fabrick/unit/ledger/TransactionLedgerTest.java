@@ -0,0 +1,246 @@
+package it.demo.fabrick.unit.ledger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Vertx;
+import it.demo.fabrick.dto.ListaTransactionDto;
+import it.demo.fabrick.ledger.TransactionLedger;
+
+/**
+ * Unit tests for TransactionLedger, on an in-memory H2 database created with schema.sql.
+ */
+@DisplayName("TransactionLedger Tests")
+class TransactionLedgerTest {
+
+	private static final String ACCOUNT = "14537780";
+	private static final LocalDate FROM = LocalDate.of(2024, 3, 1);
+	private static final LocalDate LAST_CLOSED_DAY = LocalDate.of(2024, 3, 5);
+	private static final LocalDate TO = LocalDate.of(2024, 3, 7);
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private Vertx vertx;
+	private TransactionLedger ledger;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:ledger;DB_CLOSE_DELAY=-1");
+		try (InputStream schema = getClass().getResourceAsStream("/schema.sql");
+				Connection connection = dataSource.getConnection();
+				Statement statement = connection.createStatement()) {
+			statement.execute(new String(schema.readAllBytes(), StandardCharsets.UTF_8));
+		}
+
+		vertx = Vertx.vertx();
+		// batches of 2 transactions
+		ledger = new TransactionLedger(dataSource, meterRegistry, 2);
+		ledger.open(vertx);
+	}
+
+	@AfterEach
+	void tearDown() {
+		vertx.close();
+	}
+
+	@Test
+	@DisplayName("synchronize - batched and idempotent on transactionId, read by accounting date range")
+	void testSynchronize_idempotent() throws Exception {
+		List<ListaTransactionDto> transactions = List.of(
+				transaction("T1", "2024-03-01", "-10.50"),
+				transaction("T2", "2024-03-02", "100.00"),
+				transaction("T3", "2024-03-05", "-3.20"));
+
+		assertEquals(0, synchronize(transactions));
+		// synchronized again, with a corrected amount
+		synchronize(List.of(
+				transaction("T1", "2024-03-01", "-10.50"),
+				transaction("T2", "2024-03-02", "99.00"),
+				transaction("T3", "2024-03-05", "-3.20")));
+
+		List<ListaTransactionDto> read = await(ledger.read(ACCOUNT, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 2))
+				.toCompletionStage().toCompletableFuture());
+
+		assertEquals(2, read.size());
+		assertEquals("T2", read.get(0).getTransactionId());
+		assertEquals(new BigDecimal("99.00"), read.get(0).getAmount());
+		assertEquals("EUR", read.get(0).getCurrency());
+		assertEquals("BONIFICO", read.get(0).getType().getEnumeration());
+		assertEquals("T1", read.get(1).getTransactionId());
+		assertEquals("2024-03-01", read.get(1).getAccountingDate());
+		assertEquals(6.0, meterRegistry.get("conto.ledger.synced").counter().count());
+	}
+
+	@Test
+	@DisplayName("synchronize - the transactions no longer returned by Fabrick are removed from the days read")
+	void testSynchronize_removed() throws Exception {
+		synchronize(List.of(
+				transaction("T3", "2024-03-02", "3.00"),
+				transaction("T2", "2024-03-02", "2.00"),
+				transaction("T1", "2024-03-01", "1.00")));
+		// T2 cancelled
+		synchronize(List.of(
+				transaction("T3", "2024-03-02", "3.00"),
+				transaction("T1", "2024-03-01", "1.00")));
+
+		List<ListaTransactionDto> read = await(ledger.read(ACCOUNT, FROM, TO)
+				.toCompletionStage().toCompletableFuture());
+
+		assertEquals(List.of("T3", "T1"), read.stream().map(ListaTransactionDto::getTransactionId).toList());
+	}
+
+	@Test
+	@DisplayName("synchronize - the days before the synchronization are kept")
+	void testSynchronize_keepsPreviousDays() throws Exception {
+		await(ledger.synchronize(ACCOUNT, LocalDate.of(2024, 2, 28), TO, LAST_CLOSED_DAY,
+				List.of(transaction("T0", "2024-02-28", "1.00"))).toCompletionStage().toCompletableFuture());
+		synchronize(List.of(transaction("T1", "2024-03-01", "1.00")));
+
+		List<ListaTransactionDto> read = await(ledger.read(ACCOUNT, LocalDate.of(2024, 2, 28), TO)
+				.toCompletionStage().toCompletableFuture());
+
+		assertEquals(List.of("T1", "T0"), read.stream().map(ListaTransactionDto::getTransactionId).toList());
+	}
+
+	@Test
+	@DisplayName("read - the transactions of a day keep the order of the last Fabrick response")
+	void testRead_fabrickOrder() throws Exception {
+		synchronize(List.of(
+				transaction("T3", "2024-03-01", "3.00"),
+				transaction("T1", "2024-03-01", "1.00")));
+		// newest first: the new transaction is inserted last but comes first in the response
+		synchronize(List.of(
+				transaction("T5", "2024-03-01", "5.00"),
+				transaction("T3", "2024-03-01", "3.00"),
+				transaction("T1", "2024-03-01", "1.00")));
+
+		List<ListaTransactionDto> read = await(ledger.read(ACCOUNT, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 1))
+				.toCompletionStage().toCompletableFuture());
+
+		assertEquals(List.of("T5", "T3", "T1"), read.stream().map(ListaTransactionDto::getTransactionId).toList());
+	}
+
+	@Test
+	@DisplayName("synchronize - transactions without accounting date are counted as not written, no day is complete")
+	void testSynchronize_skipped() throws Exception {
+		ListaTransactionDto undated = transaction("T4", null, "1.00");
+
+		assertEquals(1, synchronize(List.of(undated, transaction("T1", "2024-03-01", "1.00"))));
+		assertNull(ledger.getCompleteUntil());
+		assertFalse(ledger.covers(FROM));
+	}
+
+	@Test
+	@DisplayName("synchronize - transactions not fitting the table are rejected, the rest of their batch is written")
+	void testSynchronize_rejected() throws Exception {
+		ListaTransactionDto noAmount = transaction("T5", "2024-03-01", "1.00");
+		noAmount.setAmount(null);
+		ListaTransactionDto noCurrency = transaction("T6", "2024-03-01", "1.00");
+		noCurrency.setCurrency(null);
+		ListaTransactionDto longDescription = transaction("T7", "2024-03-01", "1.00");
+		longDescription.setDescription("x".repeat(3001));
+		List<ListaTransactionDto> transactions = List.of(
+				transaction("T1", "2024-03-01", "1.00"),
+				noAmount,
+				noCurrency,
+				transaction("ID-LONGER-THAN-20-CHARS", "2024-03-01", "1.00"),
+				transaction("T8", "2024-03-01", "1.005"),
+				transaction("T9", "2024-03-01", "12345678901234567.00"),
+				longDescription,
+				transaction("T2", "2024-03-01", "2.00"));
+
+		assertEquals(6, synchronize(transactions));
+
+		List<ListaTransactionDto> read = await(ledger.read(ACCOUNT, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 1))
+				.toCompletionStage().toCompletableFuture());
+		assertEquals(2, read.size());
+		assertEquals(6.0, meterRegistry.get("conto.ledger.rejected").counter().count());
+	}
+
+	@Test
+	@DisplayName("synchronize - complete up to the last closed day, without rejected transactions")
+	void testSynchronize_coverage() throws Exception {
+		synchronize(List.of(
+				transaction("T3", "2024-03-07", "3.00"),
+				transaction("T2", "2024-03-03", "2.00"),
+				transaction("T1", "2024-03-01", "1.00")));
+
+		assertEquals(LAST_CLOSED_DAY, ledger.getCompleteUntil());
+		assertTrue(ledger.covers(FROM));
+	}
+
+	@Test
+	@DisplayName("synchronize - the coverage stops before the day of a rejected transaction")
+	void testSynchronize_coverageRejected() throws Exception {
+		ListaTransactionDto oversized = transaction("T2", "2024-03-03", "2.00");
+		oversized.setDescription("x".repeat(3001));
+
+		assertEquals(1, synchronize(List.of(
+				transaction("T3", "2024-03-04", "3.00"),
+				oversized,
+				transaction("T1", "2024-03-01", "1.00"))));
+
+		// the 3rd is missing a transaction: read from Fabrick
+		assertEquals(LocalDate.of(2024, 3, 2), ledger.getCompleteUntil());
+		assertTrue(ledger.covers(LocalDate.of(2024, 3, 2)));
+		assertFalse(ledger.covers(LocalDate.of(2024, 3, 3)));
+	}
+
+	@Test
+	@DisplayName("covers - only from the first synchronized day to the last complete one")
+	void testCovers() {
+		assertFalse(ledger.covers(LocalDate.of(2024, 3, 1)));
+
+		ledger.setCoverage(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 7));
+		ledger.setCoverage(LocalDate.of(2024, 3, 8), LocalDate.of(2024, 3, 8));
+
+		assertTrue(ledger.covers(LocalDate.of(2024, 1, 1)));
+		assertTrue(ledger.covers(LocalDate.of(2024, 3, 8)));
+		assertFalse(ledger.covers(LocalDate.of(2023, 12, 31)));
+		assertFalse(ledger.covers(LocalDate.of(2024, 3, 9)));
+	}
+
+	private int synchronize(List<ListaTransactionDto> transactions) throws Exception {
+		return await(ledger.synchronize(ACCOUNT, FROM, TO, LAST_CLOSED_DAY, transactions)
+				.toCompletionStage().toCompletableFuture());
+	}
+
+	private static <T> T await(CompletableFuture<T> future) throws Exception {
+		return future.get(10, TimeUnit.SECONDS);
+	}
+
+	private static ListaTransactionDto transaction(String id, String accountingDate, String amount) {
+		ListaTransactionDto transaction = new ListaTransactionDto();
+		transaction.setTransactionId(id);
+		transaction.setOperationId("OP" + id);
+		transaction.setAccountingDate(accountingDate);
+		transaction.setValueDate(accountingDate);
+		transaction.setAmount(new BigDecimal(amount));
+		transaction.setCurrency("EUR");
+		transaction.setDescription("Transaction " + id);
+		ListaTransactionDto.Type type = transaction.new Type();
+		type.setEnumeration("BONIFICO");
+		type.setValue("BONIFICO");
+		transaction.setType(type);
+		return transaction;
+	}
+}
@@ -0,0 +1,68 @@
+package it.demo.fabrick.unit.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.demo.fabrick.resilience.AdmissionControl;
+
+/**
+ * Unit tests for AdmissionControl.
+ */
+@DisplayName("AdmissionControl Tests")
+class AdmissionControlTest {
+
+	private SimpleMeterRegistry meterRegistry;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+	}
+
+	@Test
+	@DisplayName("tryAcquire - requests are admitted up to the limit")
+	void testTryAcquire_upToLimit() {
+		AdmissionControl admissionControl = new AdmissionControl(2, meterRegistry);
+
+		assertTrue(admissionControl.tryAcquire());
+		assertTrue(admissionControl.tryAcquire());
+		assertFalse(admissionControl.tryAcquire());
+		assertEquals(2, admissionControl.getInFlight());
+		assertEquals(1.0, meterRegistry.get("conto.socket.rejected").tag("scope", "global").counter().count());
+	}
+
+	@Test
+	@DisplayName("release - frees a slot for a new request")
+	void testRelease_freesSlot() {
+		AdmissionControl admissionControl = new AdmissionControl(1, meterRegistry);
+
+		assertTrue(admissionControl.tryAcquire());
+		admissionControl.release();
+
+		assertTrue(admissionControl.tryAcquire());
+		assertEquals(1.0, meterRegistry.get("conto.socket.inflight").gauge().value());
+	}
+
+	@Test
+	@DisplayName("rejectedByConnection - counted with connection scope")
+	void testRejectedByConnection() {
+		AdmissionControl admissionControl = new AdmissionControl(1, meterRegistry);
+
+		admissionControl.rejectedByConnection();
+
+		assertEquals(1.0, meterRegistry.get("conto.socket.rejected").tag("scope", "connection").counter().count());
+		assertEquals(0.0, meterRegistry.get("conto.socket.rejected").tag("scope", "global").counter().count());
+	}
+
+	@Test
+	@DisplayName("constructor - non positive limit is rejected")
+	void testConstructor_invalidLimit() {
+		assertThrows(IllegalArgumentException.class, () -> new AdmissionControl(0, meterRegistry));
+	}
+}
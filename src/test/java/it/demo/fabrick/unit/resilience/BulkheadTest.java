@@ -0,0 +1,147 @@
+package it.demo.fabrick.unit.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import it.demo.fabrick.config.OperationConfig;
+import it.demo.fabrick.resilience.Bulkhead;
+import it.demo.fabrick.resilience.Bulkheads;
+import it.demo.fabrick.utils.MessageLayout;
+import it.demo.fabrick.utils.UrlTemplate;
+
+/**
+ * Unit tests for Bulkhead and Bulkheads.
+ */
+@DisplayName("Bulkhead Tests")
+class BulkheadTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final Bulkheads bulkheads = new Bulkheads(meterRegistry);
+	private final List<String> started = new ArrayList<>();
+	private Context context;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		// runs the resumed tasks at once
+		context = mock(Context.class);
+		doAnswer(invocation -> {
+			((Handler<Void>) invocation.getArgument(0)).handle(null);
+			return null;
+		}).when(context).runOnContext(any());
+	}
+
+	@Test
+	@DisplayName("submit - calls beyond the limit wait, then start when a slot is released")
+	void testSubmit_queuedUntilRelease() {
+		Bulkhead bulkhead = bulkheads.get(config("LIS", 2, 1));
+
+		assertTrue(bulkhead.submit(context, () -> started.add("1")));
+		assertTrue(bulkhead.submit(context, () -> started.add("2")));
+		assertTrue(bulkhead.submit(context, () -> started.add("3")));
+		assertEquals(List.of("1", "2"), started);
+		assertEquals(2, bulkhead.getActive());
+		assertEquals(1, bulkhead.getQueued());
+
+		bulkhead.release();
+
+		assertEquals(List.of("1", "2", "3"), started);
+		assertEquals(2, bulkhead.getActive());
+		assertEquals(0, bulkhead.getQueued());
+	}
+
+	@Test
+	@DisplayName("submit - a task throwing synchronously releases its slot")
+	void testSubmit_taskThrows() {
+		Bulkhead bulkhead = bulkheads.get(config("SAL", 1, 1));
+
+		assertThrows(IllegalStateException.class, () -> bulkhead.submit(context, () -> {
+			throw new IllegalStateException("decode failed");
+		}));
+		assertEquals(0, bulkhead.getActive());
+
+		// a queued task throwing when resumed releases its slot too, the next one takes it
+		assertTrue(bulkhead.submit(context, () -> started.add("1")));
+		assertTrue(bulkhead.submit(context, () -> {
+			throw new IllegalStateException("decode failed");
+		}));
+		assertThrows(IllegalStateException.class, bulkhead::release);
+		assertEquals(0, bulkhead.getActive());
+		assertTrue(bulkhead.submit(context, () -> started.add("2")));
+		assertEquals(List.of("1", "2"), started);
+		assertEquals(1, bulkhead.getActive());
+	}
+
+	@Test
+	@DisplayName("submit - calls beyond limit and queue are rejected and counted")
+	void testSubmit_rejected() {
+		Bulkhead bulkhead = bulkheads.get(config("BON", 1, 1));
+
+		assertTrue(bulkhead.submit(context, () -> started.add("1")));
+		assertTrue(bulkhead.submit(context, () -> started.add("2")));
+		assertFalse(bulkhead.submit(context, () -> started.add("3")));
+
+		assertEquals(List.of("1"), started);
+		assertEquals(1.0, meterRegistry.get("conto.bulkhead.rejected").tag("operation", "BON").counter().count());
+		assertEquals(1.0, meterRegistry.get("conto.bulkhead.active").tag("operation", "BON").gauge().value());
+		assertEquals(1.0, meterRegistry.get("conto.bulkhead.queued").tag("operation", "BON").gauge().value());
+	}
+
+	@Test
+	@DisplayName("get - operations are isolated, a full bulkhead does not affect the others")
+	void testGet_isolated() {
+		Bulkhead bon = bulkheads.get(config("BON", 1, 0));
+		Bulkhead sal = bulkheads.get(config("SAL", 1, 0));
+
+		assertTrue(bon.submit(context, () -> started.add("BON")));
+		assertFalse(bon.submit(context, () -> started.add("BON")));
+		assertTrue(sal.submit(context, () -> started.add("SAL")));
+		assertSame(bon, bulkheads.get(config("BON", 1, 0)));
+	}
+
+	@Test
+	@DisplayName("get - new limits from a reload are applied to the same bulkhead, waiting calls start")
+	void testGet_resized() {
+		Bulkhead bulkhead = bulkheads.get(config("LIS", 1, 5));
+		bulkhead.submit(context, () -> started.add("1"));
+		bulkhead.submit(context, () -> started.add("2"));
+		bulkhead.submit(context, () -> started.add("3"));
+
+		assertSame(bulkhead, bulkheads.get(config("LIS", 3, 5)));
+
+		assertEquals(List.of("1", "2", "3"), started);
+		assertEquals(3, bulkhead.getActive());
+	}
+
+	@Test
+	@DisplayName("get - max concurrent 0 means no limit")
+	void testGet_unlimited() {
+		Bulkhead bulkhead = bulkheads.get(config("SAL", 0, 0));
+
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(bulkhead.submit(context, () -> started.add("x")));
+		}
+		assertEquals(1000, bulkhead.getActive());
+	}
+
+	private static OperationConfig config(String operation, int maxConcurrent, int maxQueued) {
+		return new OperationConfig(operation, "bus", MessageLayout.compile("OPERAZIONE=3;"),
+				UrlTemplate.compile("https://api.example.com"), maxConcurrent, maxQueued);
+	}
+}
@@ -0,0 +1,205 @@
+package it.demo.fabrick.unit.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.ext.web.client.HttpResponse;
+import it.demo.fabrick.config.ConfigurationHolder;
+import it.demo.fabrick.config.ConfigurationSnapshot;
+import it.demo.fabrick.dto.ConfigurazioneDto;
+import it.demo.fabrick.exception.CircuitBreakerOpenException;
+import it.demo.fabrick.resilience.CircuitBreaker;
+import it.demo.fabrick.resilience.CircuitBreakerHealthIndicator;
+import it.demo.fabrick.resilience.CircuitBreakers;
+
+/**
+ * Unit tests for CircuitBreakers and CircuitBreaker.
+ * Window of 4 calls, 2 calls before the rates are checked, 2 half-open probes.
+ */
+@DisplayName("CircuitBreakers Tests")
+class CircuitBreakersTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final ConfigurationHolder configurationHolder = new ConfigurationHolder();
+	private final AtomicLong now = new AtomicLong(1000);
+	private final AtomicInteger calls = new AtomicInteger();
+	private CircuitBreakers circuitBreakers;
+
+	@BeforeEach
+	void setUp() {
+		// failure rate 50 %, slow over 100 ms at 100 %, open 5 s
+		configurationHolder.publish(snapshot(1, 50, 100, 100, 5000));
+		circuitBreakers = new CircuitBreakers(meterRegistry, configurationHolder, 4, 2, 2, now::get);
+	}
+
+	@Test
+	@DisplayName("execute - the breaker opens on the failure rate and rejects at once")
+	void testExecute_opensOnFailureRate() {
+		call(200, 0);
+		call(500, 0);
+
+		assertEquals(CircuitBreaker.State.OPEN, circuitBreakers.get("SAL").getState());
+		Future<HttpResponse<Buffer>> rejected = call(200, 0);
+		assertTrue(rejected.failed());
+		assertInstanceOf(CircuitBreakerOpenException.class, rejected.cause());
+		assertEquals(2, calls.get());
+		assertEquals(1.0, meterRegistry.get("conto.circuitbreaker.rejected").tag("upstream", "SAL").counter().count());
+		assertEquals(2.0, meterRegistry.get("conto.circuitbreaker.state").tag("upstream", "SAL").gauge().value());
+	}
+
+	@Test
+	@DisplayName("execute - client errors are not failures, network errors are")
+	void testExecute_failures() {
+		call(404, 0);
+		call(400, 0);
+		call(200, 0);
+		assertEquals(CircuitBreaker.State.CLOSED, circuitBreakers.get("SAL").getState());
+
+		circuitBreakers.execute("SAL", () -> Future.failedFuture("Connection refused"));
+		circuitBreakers.execute("SAL", () -> Future.failedFuture("Timeout"));
+		assertEquals(CircuitBreaker.State.OPEN, circuitBreakers.get("SAL").getState());
+	}
+
+	@Test
+	@DisplayName("execute - the breaker opens on the slow call rate")
+	void testExecute_opensOnSlowCalls() {
+		call(200, 150);
+		assertEquals(CircuitBreaker.State.CLOSED, circuitBreakers.get("SAL").getState());
+		call(200, 100);
+
+		assertEquals(CircuitBreaker.State.OPEN, circuitBreakers.get("SAL").getState());
+	}
+
+	@Test
+	@DisplayName("execute - after the open time the probes close the breaker")
+	void testExecute_halfOpenCloses() {
+		call(500, 0);
+		call(500, 0);
+		now.addAndGet(5000);
+		assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreakers.get("SAL").getState());
+
+		call(200, 0);
+		call(200, 0);
+
+		assertEquals(CircuitBreaker.State.CLOSED, circuitBreakers.get("SAL").getState());
+		assertEquals(4, calls.get());
+	}
+
+	@Test
+	@DisplayName("execute - a failed probe opens the breaker again")
+	void testExecute_halfOpenFails() {
+		call(500, 0);
+		call(500, 0);
+		now.addAndGet(5000);
+
+		call(503, 0);
+
+		assertEquals(CircuitBreaker.State.OPEN, circuitBreakers.get("SAL").getState());
+		assertTrue(call(200, 0).failed());
+		assertEquals(3, calls.get());
+	}
+
+	@Test
+	@DisplayName("execute - probes beyond the half-open calls are rejected while the others are in flight")
+	void testExecute_halfOpenLimit() {
+		call(500, 0);
+		call(500, 0);
+		now.addAndGet(5000);
+
+		circuitBreakers.execute("SAL", () -> Promise.<HttpResponse<Buffer>>promise().future());
+		circuitBreakers.execute("SAL", () -> Promise.<HttpResponse<Buffer>>promise().future());
+
+		assertTrue(call(200, 0).failed());
+	}
+
+	@Test
+	@DisplayName("get - thresholds 0 disable the breaker, a reload applies new thresholds in place")
+	void testGet_reconfigured() {
+		configurationHolder.publish(snapshot(2, 0, 0, 0, 0));
+		for (int i = 0; i < 10; i++) {
+			call(500, 0);
+		}
+		assertEquals(CircuitBreaker.State.CLOSED, circuitBreakers.get("SAL").getState());
+
+		configurationHolder.publish(snapshot(3, 50, 0, 0, 5000));
+		call(500, 0);
+		call(500, 0);
+		assertEquals(CircuitBreaker.State.OPEN, circuitBreakers.get("SAL").getState());
+	}
+
+	@Test
+	@DisplayName("execute - timeouts of calls cut short by the request deadline do not open the breaker")
+	void testExecute_deadlineTimeouts() {
+		for (int i = 0; i < 10; i++) {
+			circuitBreakers.execute("SAL", 1, 120000,
+					() -> Future.failedFuture(new TimeoutException("The timeout period of 1ms has been exceeded")));
+		}
+		assertEquals(CircuitBreaker.State.CLOSED, circuitBreakers.get("SAL").getState());
+
+		// with the whole configured timeout, or a cut one past the slow call threshold, a timeout is a failure
+		circuitBreakers.execute("SAL", 120000, 120000, () -> Future.failedFuture(new TimeoutException("Timeout")));
+		circuitBreakers.execute("SAL", 100, 120000, () -> Future.failedFuture(new TimeoutException("Timeout")));
+		assertEquals(CircuitBreaker.State.OPEN, circuitBreakers.get("SAL").getState());
+
+		// a cut probe is given back: the next call probes the upstream
+		now.addAndGet(5000);
+		circuitBreakers.execute("SAL", 1, 120000, () -> Future.failedFuture(new TimeoutException("Timeout")));
+		circuitBreakers.execute("SAL", 1, 120000, () -> Future.failedFuture(new TimeoutException("Timeout")));
+		call(200, 0);
+		call(200, 0);
+		assertEquals(CircuitBreaker.State.CLOSED, circuitBreakers.get("SAL").getState());
+	}
+
+	@Test
+	@DisplayName("health - out of service while a breaker is open")
+	void testHealth() {
+		CircuitBreakerHealthIndicator health = new CircuitBreakerHealthIndicator(circuitBreakers);
+		call(200, 0);
+		assertEquals(Status.UP, health.health().getStatus());
+
+		call(500, 0);
+		assertEquals(Status.OUT_OF_SERVICE, health.health().getStatus());
+		assertEquals(Map.of("SAL", CircuitBreaker.State.OPEN), health.health().getDetails());
+
+		now.addAndGet(5000);
+		assertEquals(Status.UP, health.health().getStatus());
+	}
+
+	@SuppressWarnings("unchecked")
+	private Future<HttpResponse<Buffer>> call(int statusCode, long durationMs) {
+		return circuitBreakers.execute("SAL", () -> {
+			calls.incrementAndGet();
+			now.addAndGet(durationMs);
+			HttpResponse<Buffer> response = mock(HttpResponse.class);
+			when(response.statusCode()).thenReturn(statusCode);
+			return Future.succeededFuture(response);
+		});
+	}
+
+	private static ConfigurationSnapshot snapshot(long version, int failureRate, int slowCallMs, int slowCallRate,
+			int openMs) {
+		ConfigurazioneDto row = new ConfigurazioneDto(new JsonArray().add("SAL").add("SVIL").add("OPERAZIONE=3;")
+				.add("saldo_bus").add("https://api.example.com/balance").add(0).add(0)
+				.add(failureRate).add(slowCallMs).add(slowCallRate).add(openMs));
+		return ConfigurationSnapshot.build(version, List.of(row), Map.of());
+	}
+}
@@ -0,0 +1,135 @@
+package it.demo.fabrick.unit.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import it.demo.fabrick.resilience.SingleFlight;
+
+/**
+ * Unit tests for SingleFlight.
+ */
+@DisplayName("SingleFlight Tests")
+class SingleFlightTest {
+
+	private static final String URL = "https://api.example.com/accounts/123/balance";
+	private static final long WAIT_MS = 120000;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final SingleFlight singleFlight = new SingleFlight(meterRegistry);
+	private final AtomicInteger calls = new AtomicInteger();
+
+	@Test
+	@DisplayName("execute - callers arriving while the call is in flight share its result")
+	void testExecute_coalesced() {
+		Promise<String> upstream = Promise.promise();
+
+		Future<String> first = singleFlight.execute("SAL", URL, WAIT_MS, () -> call(upstream));
+		Future<String> second = singleFlight.execute("SAL", URL, WAIT_MS, () -> call(Promise.promise()));
+		assertEquals(1, calls.get());
+		assertEquals(1, singleFlight.size());
+
+		upstream.complete("balance");
+
+		assertEquals("balance", first.result());
+		assertEquals("balance", second.result());
+		assertEquals(0, singleFlight.size());
+		assertEquals(1.0, meterRegistry.get("conto.singleflight.saved").tag("operation", "SAL").counter().count());
+	}
+
+	@Test
+	@DisplayName("execute - a caller arriving after the completion makes a new call")
+	void testExecute_newCallAfterCompletion() {
+		singleFlight.execute("SAL", URL, WAIT_MS, () -> call(completed("first")));
+		Future<String> second = singleFlight.execute("SAL", URL, WAIT_MS, () -> call(completed("second")));
+
+		assertEquals(2, calls.get());
+		assertEquals("second", second.result());
+	}
+
+	@Test
+	@DisplayName("execute - different keys are not coalesced")
+	void testExecute_differentKeys() {
+		singleFlight.execute("LIS", URL + "?from=2024-01-01", WAIT_MS, () -> call(Promise.promise()));
+		singleFlight.execute("LIS", URL + "?from=2024-02-01", WAIT_MS, () -> call(Promise.promise()));
+
+		assertEquals(2, calls.get());
+		assertEquals(2, singleFlight.size());
+	}
+
+	@Test
+	@DisplayName("execute - a failure is shared by the callers in flight and the key is released")
+	void testExecute_failure() {
+		Promise<String> upstream = Promise.promise();
+		RuntimeException error = new RuntimeException("connection refused");
+
+		Future<String> first = singleFlight.execute("LIS", URL, WAIT_MS, () -> call(upstream));
+		Future<String> second = singleFlight.execute("LIS", URL, WAIT_MS, () -> call(Promise.promise()));
+		upstream.fail(error);
+
+		assertSame(error, first.cause());
+		assertSame(error, second.cause());
+		assertEquals(0, singleFlight.size());
+	}
+
+	@Test
+	@DisplayName("execute - an exception thrown by the call fails the future and releases the key")
+	void testExecute_callThrows() {
+		Future<String> result = singleFlight.execute("SAL", URL, WAIT_MS, () -> {
+			throw new IllegalStateException("client closed");
+		});
+
+		assertTrue(result.failed());
+		assertEquals(0, singleFlight.size());
+	}
+
+	@Test
+	@DisplayName("execute - every caller waits at most its own time, the shared call goes on for the others")
+	void testExecute_callerWait() throws Exception {
+		Vertx vertx = Vertx.vertx();
+		try {
+			Promise<String> upstream = Promise.promise();
+			CompletableFuture<Future<String>> leader = new CompletableFuture<>();
+			CompletableFuture<Future<String>> follower = new CompletableFuture<>();
+			vertx.runOnContext(v -> leader.complete(singleFlight.execute("SAL", URL, WAIT_MS, () -> call(upstream))));
+			leader.get(10, TimeUnit.SECONDS);
+			// a follower with a short budget
+			vertx.runOnContext(v -> follower.complete(singleFlight.execute("SAL", URL, 50, () -> call(Promise.promise()))));
+
+			Throwable expired = follower.get(10, TimeUnit.SECONDS).toCompletionStage().toCompletableFuture()
+					.handle((result, e) -> e).get(10, TimeUnit.SECONDS);
+			assertInstanceOf(TimeoutException.class, expired);
+			assertEquals(1, singleFlight.size());
+
+			upstream.complete("balance");
+			assertEquals("balance", leader.get().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS));
+			assertEquals(1, calls.get());
+		} finally {
+			vertx.close();
+		}
+	}
+
+	private Future<String> call(Promise<String> promise) {
+		calls.incrementAndGet();
+		return promise.future();
+	}
+
+	private static Promise<String> completed(String value) {
+		Promise<String> promise = Promise.promise();
+		promise.complete(value);
+		return promise;
+	}
+}
@@ -0,0 +1,162 @@
+package it.demo.fabrick.unit.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+import it.demo.fabrick.utils.ChunkedReplyWriter;
+import it.demo.fabrick.utils.ResponseEncoder;
+import it.demo.fabrick.utils.SocketFraming;
+import it.demo.fabrick.utils.TransactionPages;
+import it.demo.fabrick.utils.WireCodec;
+
+/**
+ * Unit tests for ChunkedReplyWriter.
+ * Tests the frames of a chunked reply, the backpressure of the write queue and the completion of the replies.
+ */
+@DisplayName("ChunkedReplyWriter Tests")
+class ChunkedReplyWriterTest {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String DELIMITER = "|";
+	private static final String RESPONSE = "{\"payload\":{\"list\":[{\"transactionId\":\"1\"},{\"transactionId\":\"2\"},"
+			+ "{\"transactionId\":\"3\"}]}}";
+	// an element as replied, with the JSON of ListaTransactionDto
+	private static final String ELEMENT = "{\"transactionId\":\"%s\",\"operationId\":null,\"accountingDate\":null,"
+			+ "\"valueDate\":null,\"type\":null,\"amount\":null,\"currency\":null,\"description\":null}";
+	private static final String E1 = ELEMENT.formatted("1");
+	private static final String E2 = ELEMENT.formatted("2");
+	private static final String E3 = ELEMENT.formatted("3");
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final List<String> written = new ArrayList<>();
+	private final List<String> done = new ArrayList<>();
+	private WriteStream<Buffer> socket;
+	private Handler<Void> drainHandler;
+	private boolean queueFull;
+	private ChunkedReplyWriter writer;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		socket = mock(WriteStream.class);
+		when(socket.drainHandler(any())).thenAnswer(invocation -> {
+			drainHandler = invocation.getArgument(0);
+			return socket;
+		});
+		when(socket.writeQueueFull()).thenAnswer(invocation -> queueFull);
+		when(socket.write(any(Buffer.class))).thenAnswer(invocation -> {
+			written.add(invocation.<Buffer>getArgument(0).toString(UTF8));
+			return null;
+		});
+
+		SocketFraming framing = new SocketFraming(SocketFraming.Mode.DELIMITER, DELIMITER, UTF8, 65536);
+		writer = new ChunkedReplyWriter(socket, new ResponseEncoder(WireCodec.forName("UTF-8"), framing, 500));
+	}
+
+	@Test
+	@DisplayName("write - header, a frame per page and the terminator")
+	void testWrite_frames() throws Exception {
+		writer.write("AB", "req-1", pages(2), v -> done.add("req-1"));
+
+		assertEquals(List.of("AB23|", "AB3[" + E1 + "," + E2 + "]|", "AB3[" + E3 + "]|", "AB4|"), written);
+		assertEquals(0, writer.size());
+		assertEquals(List.of("req-1"), done);
+	}
+
+	@Test
+	@DisplayName("write - stops when the write queue is full, goes on when it drains")
+	void testWrite_backpressure() throws Exception {
+		queueFull = true;
+		writer.write("", "req-1", pages(1), v -> done.add("req-1"));
+
+		assertEquals(0, written.size());
+		assertEquals(1, writer.size());
+
+		queueFull = false;
+		when(socket.write(any(Buffer.class))).thenAnswer(invocation -> {
+			written.add(invocation.<Buffer>getArgument(0).toString(UTF8));
+			// a frame at a time fills the queue
+			queueFull = true;
+			return null;
+		});
+		drainHandler.handle(null);
+		assertEquals(List.of("23|"), written);
+		assertEquals(0, done.size());
+
+		for (int i = 0; i < 10 && writer.size() > 0; i++) {
+			queueFull = false;
+			drainHandler.handle(null);
+		}
+		assertEquals(List.of("23|", "3[" + E1 + "]|", "3[" + E2 + "]|", "3[" + E3 + "]|", "4|"), written);
+		assertEquals(0, writer.size());
+		assertEquals(List.of("req-1"), done);
+	}
+
+	@Test
+	@DisplayName("write - chunked replies of a connection are not interleaved")
+	void testWrite_serialized() throws Exception {
+		queueFull = true;
+		writer.write("A", "req-1", pages(3), v -> done.add("req-1"));
+		writer.write("B", "req-2", pages(3), v -> done.add("req-2"));
+		assertEquals(2, writer.size());
+
+		queueFull = false;
+		drainHandler.handle(null);
+
+		assertEquals(List.of("A23|", "A3[" + E1 + "," + E2 + "," + E3 + "]|", "A4|",
+				"B23|", "B3[" + E1 + "," + E2 + "," + E3 + "]|", "B4|"), written);
+		assertEquals(List.of("req-1", "req-2"), done);
+	}
+
+	@Test
+	@DisplayName("close - the replies not written are dropped and completed")
+	void testClose_dropsReplies() throws Exception {
+		queueFull = true;
+		writer.write("", "req-1", pages(1), v -> done.add("req-1"));
+		writer.write("", "req-2", pages(1), v -> done.add("req-2"));
+		writer.close();
+		assertEquals(List.of("req-1", "req-2"), done);
+		writer.write("", "req-3", pages(1), v -> done.add("req-3"));
+
+		queueFull = false;
+		drainHandler.handle(null);
+
+		assertEquals(0, written.size());
+		assertEquals(0, writer.size());
+		assertEquals(List.of("req-1", "req-2", "req-3"), done);
+	}
+
+	@Test
+	@DisplayName("write - an invalid response ends the reply with an error frame")
+	void testWrite_error() throws Exception {
+		TransactionPages pages = TransactionPages.of(mapper,
+				Buffer.buffer("{\"payload\":{\"list\":[{\"id\":1},{\"id\":2}]}}"), List.of(), 1);
+		// the list is counted on the whole response: it cannot shrink, unless the pages are closed under it
+		pages.close();
+		writer.write("", "req-1", pages, v -> done.add("req-1"));
+
+		assertEquals(2, written.size());
+		assertEquals("22|", written.get(0));
+		assertEquals("1[req-1][PARSE_ERROR] ", written.get(1).substring(0, 22));
+		assertEquals(List.of("req-1"), done);
+	}
+
+	private TransactionPages pages(int pageSize) throws Exception {
+		return TransactionPages.of(mapper, Buffer.buffer(RESPONSE), List.of(), pageSize);
+	}
+}
@@ -0,0 +1,79 @@
+package it.demo.fabrick.unit.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.reactiverse.contextual.logging.ContextualData;
+import io.vertx.core.Vertx;
+import io.vertx.core.impl.ContextInternal;
+import it.demo.fabrick.utils.Deadline;
+
+/**
+ * Unit tests for Deadline.
+ */
+@DisplayName("Deadline Tests")
+class DeadlineTest {
+
+	private final Vertx vertx = Vertx.vertx();
+
+	@AfterEach
+	void tearDown() {
+		vertx.close();
+	}
+
+	@Test
+	@DisplayName("no deadline - the default timeout applies and nothing expires")
+	void testNoDeadline() throws Exception {
+		assertEquals(5000L, onRequestContext(() -> Deadline.remainingMs(5000)));
+		assertFalse(onRequestContext(Deadline::isExpired));
+		// outside of Vert.x as well
+		assertEquals(5000L, Deadline.timeoutMs(5000));
+	}
+
+	@Test
+	@DisplayName("deadline - the remaining budget is used when shorter than the default")
+	void testRemaining() throws Exception {
+		long remaining = onRequestContext(() -> {
+			Deadline.start(1000);
+			return Deadline.remainingMs(120000);
+		});
+		assertTrue(remaining > 0 && remaining <= 1000, "remaining: " + remaining);
+
+		assertEquals(500L, onRequestContext(() -> {
+			Deadline.start(60000);
+			return Deadline.remainingMs(500);
+		}));
+	}
+
+	@Test
+	@DisplayName("expired deadline - the work is dropped, the timeout is never 0")
+	void testExpired() throws Exception {
+		assertTrue(onRequestContext(() -> {
+			ContextualData.put(Deadline.KEY, Long.toString(System.currentTimeMillis() - 1));
+			return Deadline.isExpired() && Deadline.remainingMs(1000) == 0 && Deadline.timeoutMs(1000) == 1;
+		}));
+	}
+
+	// every request runs on its own duplicated context, like the socket and event bus handlers
+	private <T> T onRequestContext(Callable<T> task) throws Exception {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		ContextInternal context = ((ContextInternal) vertx.getOrCreateContext()).duplicate();
+		context.runOnContext(v -> {
+			try {
+				result.complete(task.call());
+			} catch (Exception e) {
+				result.completeExceptionally(e);
+			}
+		});
+		return result.get(5, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,65 @@
+package it.demo.fabrick.unit.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.Charset;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.buffer.Buffer;
+import it.demo.fabrick.exception.ExceptionMessageIn;
+import it.demo.fabrick.utils.DecodedMessage;
+import it.demo.fabrick.utils.MessageLayout;
+import it.demo.fabrick.utils.WireCodec;
+
+/**
+ * Unit tests for DecodedMessage.
+ * Tests the flyweight view over a socket frame decoded on access.
+ */
+@DisplayName("DecodedMessage Tests")
+class DecodedMessageTest {
+
+	private static final String CONFIGURATION = "OPERAZIONE=3;creditor-name=20;amount=NUM10;note=NULLIFEMTPY5;raw=NOTRIM4";
+	private static final String MESSAGE = "BON" + "  John Doe          " + "0000100.50" + "     " + " ab ";
+
+	private final MessageLayout layout = MessageLayout.compile(CONFIGURATION);
+
+	@Test
+	@DisplayName("get - fields by index and by name over a cp280 frame")
+	void testGet_overFrame() throws ExceptionMessageIn {
+		WireCodec codec = WireCodec.forName("cp280");
+		Buffer frame = Buffer.buffer(MESSAGE.getBytes(Charset.forName("cp280")));
+
+		DecodedMessage decoded = layout.wrap(codec.decode(frame));
+
+		assertEquals("BON", decoded.get(0).toString());
+		assertEquals("John Doe", decoded.getString("creditor-name"));
+		assertEquals("100.50", decoded.getString("amount"));
+		assertNull(decoded.get("note"));
+		assertEquals(" ab ", decoded.getString("raw"));
+	}
+
+	@Test
+	@DisplayName("get - unknown field returns null")
+	void testGet_unknownField() throws ExceptionMessageIn {
+		DecodedMessage decoded = layout.wrap(MESSAGE);
+
+		assertNull(decoded.get("feeAccountId"));
+		assertNull(decoded.getString("feeAccountId"));
+	}
+
+	@Test
+	@DisplayName("toMap - same result as MessageLayout.decode")
+	void testToMap_sameAsDecode() throws ExceptionMessageIn {
+		assertEquals(layout.decode(MESSAGE), layout.wrap(MESSAGE).toMap());
+	}
+
+	@Test
+	@DisplayName("wrap - message shorter than the layout throws ExceptionMessageIn")
+	void testWrap_shortMessage() {
+		assertThrows(ExceptionMessageIn.class, () -> layout.wrap("BON  John Doe"));
+	}
+}
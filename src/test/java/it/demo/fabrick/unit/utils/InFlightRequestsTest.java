@@ -0,0 +1,75 @@
+package it.demo.fabrick.unit.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import it.demo.fabrick.utils.InFlightRequests;
+
+/**
+ * Unit tests for InFlightRequests.
+ * Tests the per-connection bound, duplicate detection and close behaviour.
+ */
+@DisplayName("InFlightRequests Tests")
+class InFlightRequestsTest {
+
+	@Test
+	@DisplayName("register - requests are tracked until completed")
+	void testRegister_trackedUntilCompleted() {
+		InFlightRequests inFlight = new InFlightRequests(10);
+
+		assertTrue(inFlight.register("0001", "req-1"));
+		assertTrue(inFlight.register("0002", "req-2"));
+		assertEquals(2, inFlight.size());
+
+		assertTrue(inFlight.complete("0002"));
+		assertTrue(inFlight.complete("0001"));
+		assertEquals(0, inFlight.size());
+	}
+
+	@Test
+	@DisplayName("register - duplicate correlation id is rejected")
+	void testRegister_duplicateRejected() {
+		InFlightRequests inFlight = new InFlightRequests(10);
+
+		assertTrue(inFlight.register("0001", "req-1"));
+		assertFalse(inFlight.register("0001", "req-2"));
+		assertEquals(1, inFlight.size());
+	}
+
+	@Test
+	@DisplayName("register - bound is enforced")
+	void testRegister_boundEnforced() {
+		InFlightRequests inFlight = new InFlightRequests(2);
+
+		assertTrue(inFlight.register("0001", "req-1"));
+		assertTrue(inFlight.register("0002", "req-2"));
+		assertTrue(inFlight.isFull());
+		assertFalse(inFlight.register("0003", "req-3"));
+
+		inFlight.complete("0001");
+		assertTrue(inFlight.register("0003", "req-3"));
+	}
+
+	@Test
+	@DisplayName("close - late replies are dropped and new requests rejected")
+	void testClose_dropsRequests() {
+		InFlightRequests inFlight = new InFlightRequests(10);
+		inFlight.register("0001", "req-1");
+
+		inFlight.close();
+
+		assertFalse(inFlight.complete("0001"));
+		assertFalse(inFlight.register("0002", "req-2"));
+	}
+
+	@Test
+	@DisplayName("constructor - bound must be positive")
+	void testConstructor_invalidBound() {
+		assertThrows(IllegalArgumentException.class, () -> new InFlightRequests(0));
+	}
+}
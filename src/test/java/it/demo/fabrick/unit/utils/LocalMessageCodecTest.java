@@ -0,0 +1,56 @@
+package it.demo.fabrick.unit.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import it.demo.fabrick.dto.OperationResult;
+import it.demo.fabrick.utils.LocalMessageCodec;
+
+/**
+ * Unit tests for LocalMessageCodec.
+ */
+@DisplayName("LocalMessageCodec Tests")
+class LocalMessageCodecTest {
+
+	private final Vertx vertx = Vertx.vertx();
+
+	@AfterEach
+	void tearDown() {
+		vertx.close();
+	}
+
+	@Test
+	@DisplayName("forType - codec named after the type, wire encoding not supported")
+	void testForType() {
+		LocalMessageCodec<OperationResult> codec = LocalMessageCodec.forType(OperationResult.class);
+
+		assertEquals("local-" + OperationResult.class.getName(), codec.name());
+		assertNotEquals(LocalMessageCodec.NAME, codec.name());
+		OperationResult result = new OperationResult("payload");
+		assertSame(result, codec.transform(result));
+		assertThrows(UnsupportedOperationException.class, () -> codec.encodeToWire(Buffer.buffer(), result));
+	}
+
+	@Test
+	@DisplayName("default codec - request and reply are delivered by reference")
+	void testDefaultCodec_byReference() throws Exception {
+		vertx.eventBus().registerDefaultCodec(OperationResult.class, LocalMessageCodec.forType(OperationResult.class));
+		OperationResult result = new OperationResult("balance: 10 EUR");
+		vertx.eventBus().<OperationResult>localConsumer("test_bus", message -> message.reply(message.body()));
+
+		Object reply = vertx.eventBus().request("test_bus", result).toCompletionStage().toCompletableFuture()
+				.get(5, TimeUnit.SECONDS).body();
+
+		assertSame(result, reply);
+	}
+}
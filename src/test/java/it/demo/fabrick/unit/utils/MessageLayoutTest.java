@@ -0,0 +1,104 @@
+package it.demo.fabrick.unit.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import it.demo.fabrick.exception.ExceptionMessageIn;
+import it.demo.fabrick.utils.MessageLayout;
+
+/**
+ * Unit tests for MessageLayout.
+ * Tests that the compiled layouts decode messages as the regex based parser did.
+ */
+@DisplayName("MessageLayout Tests")
+class MessageLayoutTest {
+
+	private static final String BON_CONFIGURATION = "OPERAZIONE=3;creditor-name=50;accountCode=27;bicCode=11;"
+			+ "description=500;amount=NUM20;currency=3;feeType=3;";
+
+	@Test
+	@DisplayName("compile - offsets, widths and modes are computed once")
+	void testCompile_offsetsAndModes() {
+		MessageLayout layout = MessageLayout.compile("OPERAZIONE=3;name=NOTRIM10;code=NULLIFEMTPY5;amount=NUM20");
+
+		assertEquals(4, layout.size());
+		assertEquals(38, layout.getLength());
+		assertEquals("name", layout.getName(1));
+		assertEquals(3, layout.getOffset(1));
+		assertEquals(10, layout.getWidth(1));
+		assertEquals(MessageLayout.FieldMode.NOTRIM, layout.getMode(1));
+		assertEquals(MessageLayout.FieldMode.NULLIFEMPTY, layout.getMode(2));
+		assertEquals(MessageLayout.FieldMode.STRIP_ZEROS, layout.getMode(3));
+		assertEquals(MessageLayout.FieldMode.TRIM, layout.getMode(0));
+		assertEquals(3, layout.indexOf("amount"));
+		assertEquals(-1, layout.indexOf("missing"));
+	}
+
+	@Test
+	@DisplayName("compile - invalid width is rejected")
+	void testCompile_invalidWidth() {
+		assertThrows(IllegalArgumentException.class, () -> MessageLayout.compile("OPERAZIONE=3;amount=ABCD5"));
+		assertThrows(IllegalArgumentException.class, () -> MessageLayout.compile("OPERAZIONE=-3"));
+	}
+
+	@Test
+	@DisplayName("decode - BON message")
+	void testDecode_bonMessage() throws ExceptionMessageIn {
+		MessageLayout layout = MessageLayout.compile(BON_CONFIGURATION);
+		String message = "BON" + pad("John Doe", 50) + pad("IT23A0336844430152923804660", 27) + pad("SELBIT2BXXX", 11)
+				+ pad("Payment invoice 75/2017", 500) + "00000000000000100.50" + "EUR" + "SHA";
+
+		Map<String, String> result = layout.decode(message);
+
+		assertEquals("BON", result.get("OPERAZIONE"));
+		assertEquals("John Doe", result.get("creditor-name"));
+		assertEquals("IT23A0336844430152923804660", result.get("accountCode"));
+		assertEquals("Payment invoice 75/2017", result.get("description"));
+		assertEquals("100.50", result.get("amount"));
+		assertEquals("SHA", result.get("feeType"));
+	}
+
+	@Test
+	@DisplayName("decode - leading zeros stripped as replaceFirst(^0+(?!$)) followed by trim")
+	void testDecode_stripZeros() throws ExceptionMessageIn {
+		MessageLayout layout = MessageLayout.compile("value=NUM5");
+
+		assertEquals("0", layout.decode("00000").get("value"));
+		assertEquals("12", layout.decode("00012").get("value"));
+		assertEquals("", layout.decode("00   ").get("value"));
+		assertEquals("0012", layout.decode(" 0012").get("value"));
+		assertEquals("0", layout.decode("0 0  ").get("value"));
+	}
+
+	@Test
+	@DisplayName("decode - trim, no trim and null if empty")
+	void testDecode_trimModes() throws ExceptionMessageIn {
+		MessageLayout layout = MessageLayout.compile("a=5;b=NOTRIM5;c=NULLIFEMTPY5;d=5");
+
+		Map<String, String> result = layout.decode(" x   " + " y   " + "  z  " + "     ");
+
+		assertEquals("x", result.get("a"));
+		assertEquals(" y   ", result.get("b"));
+		assertEquals("z", result.get("c"));
+		assertEquals("", result.get("d"));
+		assertNull(layout.decode("                    ").get("c"));
+	}
+
+	@Test
+	@DisplayName("decode - message shorter than the layout throws ExceptionMessageIn")
+	void testDecode_shortMessage() {
+		MessageLayout layout = MessageLayout.compile("OPERAZIONE=3;start-date=10;end-date=10;");
+
+		assertThrows(ExceptionMessageIn.class, () -> layout.decode("LIS2024-01-01"));
+	}
+
+	private static String pad(String value, int width) {
+		return String.format("%-" + width + "s", value);
+	}
+}
@@ -0,0 +1,122 @@
+package it.demo.fabrick.unit.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.Charset;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.buffer.Buffer;
+import it.demo.fabrick.dto.ErrorCode;
+import it.demo.fabrick.utils.ResponseEncoder;
+import it.demo.fabrick.utils.SocketFraming;
+import it.demo.fabrick.utils.WireCodec;
+
+/**
+ * Unit tests for ResponseEncoder.
+ * Tests that the encoded replies match the historical String.format based format.
+ */
+@DisplayName("ResponseEncoder Tests")
+class ResponseEncoderTest {
+
+	private static final Charset CP280 = Charset.forName("cp280");
+	private static final String DELIMITER = "END-OF-BUFFER";
+
+	private final WireCodec codec = WireCodec.forName("cp280");
+
+	@Test
+	@DisplayName("success - short payload is padded to the minimum length")
+	void testSuccess_padded() {
+		ResponseEncoder encoder = newEncoder(SocketFraming.Mode.DELIMITER);
+
+		Buffer reply = encoder.success("", "balance: 10.00 EUR");
+
+		assertEquals(String.format("%-500s", "0balance: 10.00 EUR") + DELIMITER, reply.toString(CP280));
+	}
+
+	@Test
+	@DisplayName("success - long payload is not padded")
+	void testSuccess_longPayload() {
+		ResponseEncoder encoder = newEncoder(SocketFraming.Mode.DELIMITER);
+		String payload = "x".repeat(700);
+
+		Buffer reply = encoder.success("", payload);
+
+		assertEquals("0" + payload + DELIMITER, reply.toString(CP280));
+	}
+
+	@Test
+	@DisplayName("success - correlation id prefixes the padded reply")
+	void testSuccess_correlationId() {
+		ResponseEncoder encoder = newEncoder(SocketFraming.Mode.DELIMITER);
+
+		Buffer reply = encoder.success("0042", "OK");
+
+		assertEquals("0042" + String.format("%-500s", "0OK") + DELIMITER, reply.toString(CP280));
+	}
+
+	@Test
+	@DisplayName("success - length framing header matches the payload")
+	void testSuccess_lengthFraming() {
+		ResponseEncoder encoder = newEncoder(SocketFraming.Mode.LENGTH);
+
+		Buffer reply = encoder.success("", "OK");
+
+		assertEquals(500, reply.getInt(0));
+		assertEquals(SocketFraming.LENGTH_HEADER_SIZE + 500, reply.length());
+		assertEquals(String.format("%-500s", "0OK"),
+				reply.getBuffer(SocketFraming.LENGTH_HEADER_SIZE, reply.length()).toString(CP280));
+	}
+
+	@Test
+	@DisplayName("error - reply contains request id, error code and message")
+	void testError_format() {
+		ResponseEncoder encoder = newEncoder(SocketFraming.Mode.DELIMITER);
+
+		Buffer reply = encoder.error("", "req-1", ErrorCode.CONFIGURATION_ERROR,
+				"No configuration found for operation: XXX");
+
+		assertEquals("1[req-1][CONFIGURATION_ERROR] No configuration found for operation: XXX" + DELIMITER,
+				reply.toString(CP280));
+	}
+
+	@Test
+	@DisplayName("error - overload reply with correlation id and length framing")
+	void testError_overloadLengthFraming() {
+		ResponseEncoder encoder = newEncoder(SocketFraming.Mode.LENGTH);
+
+		Buffer reply = encoder.error("0042", "req-1", ErrorCode.OVERLOAD_ERROR, "busy");
+
+		String expected = "00421[req-1][OVERLOAD_ERROR] busy";
+		assertEquals(expected.length(), reply.getInt(0));
+		assertEquals(expected, reply.getBuffer(SocketFraming.LENGTH_HEADER_SIZE, reply.length()).toString(CP280));
+	}
+
+	@Test
+	@DisplayName("chunked - header, chunk and end frames are not padded")
+	void testChunked_frames() {
+		ResponseEncoder encoder = newEncoder(SocketFraming.Mode.DELIMITER);
+
+		assertEquals("00422250" + DELIMITER, encoder.chunkedHeader("0042", 250).toString(CP280));
+		assertEquals("00423[{\"transactionId\":\"1\"}]" + DELIMITER,
+				encoder.chunk("0042", "[{\"transactionId\":\"1\"}]").toString(CP280));
+		assertEquals("00424" + DELIMITER, encoder.chunkedEnd("0042").toString(CP280));
+	}
+
+	@Test
+	@DisplayName("chunked - length framing header matches the chunk")
+	void testChunked_lengthFraming() {
+		ResponseEncoder encoder = newEncoder(SocketFraming.Mode.LENGTH);
+
+		Buffer chunk = encoder.chunk("", "[]");
+
+		assertEquals(3, chunk.getInt(0));
+		assertEquals("3[]", chunk.getBuffer(SocketFraming.LENGTH_HEADER_SIZE, chunk.length()).toString(CP280));
+	}
+
+	private ResponseEncoder newEncoder(SocketFraming.Mode mode) {
+		SocketFraming framing = new SocketFraming(mode, DELIMITER, CP280, 65536);
+		return new ResponseEncoder(codec, framing, ResponseEncoder.DEFAULT_MIN_LENGTH);
+	}
+}
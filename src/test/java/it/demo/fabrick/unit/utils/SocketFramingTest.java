@@ -0,0 +1,143 @@
+package it.demo.fabrick.unit.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.parsetools.RecordParser;
+import it.demo.fabrick.utils.SocketFraming;
+
+/**
+ * Unit tests for SocketFraming.
+ * Tests frame re-assembly over split/merged TCP buffers and reply framing.
+ */
+@DisplayName("SocketFraming Tests")
+class SocketFramingTest {
+
+	private static final Charset CP280 = Charset.forName("cp280");
+
+	private final List<String> frames = new ArrayList<>();
+	private final List<Throwable> errors = new ArrayList<>();
+
+	// ==================== DELIMITER mode Tests ====================
+
+	@Test
+	@DisplayName("delimiter - frame split across several buffers is re-assembled")
+	void testDelimiter_splitFrame() {
+		RecordParser parser = newParser(SocketFraming.Mode.DELIMITER, 1024);
+
+		parser.handle(cp280("SAL      END-OF"));
+		parser.handle(cp280("-BUFFER"));
+
+		assertEquals(List.of("SAL      "), frames);
+	}
+
+	@Test
+	@DisplayName("delimiter - several frames in one buffer are split")
+	void testDelimiter_mergedFrames() {
+		RecordParser parser = newParser(SocketFraming.Mode.DELIMITER, 1024);
+
+		parser.handle(cp280("SAL END-OF-BUFFERLIS2023-01-012023-01-31END-OF-BUFFERBON"));
+
+		assertEquals(List.of("SAL ", "LIS2023-01-012023-01-31"), frames);
+	}
+
+	@Test
+	@DisplayName("delimiter - frame exceeding max size is reported as error")
+	void testDelimiter_frameTooLarge() {
+		RecordParser parser = newParser(SocketFraming.Mode.DELIMITER, 10);
+
+		parser.handle(cp280("SAL                   END-OF-BUFFER"));
+
+		assertTrue(frames.isEmpty());
+		assertEquals(1, errors.size());
+	}
+
+	@Test
+	@DisplayName("delimiter - reply is terminated with the delimiter")
+	void testDelimiter_frameReply() {
+		SocketFraming framing = new SocketFraming(SocketFraming.Mode.DELIMITER, "END-OF-BUFFER", CP280, 1024);
+
+		Buffer framed = framing.frame(cp280("0OK"));
+
+		assertEquals("0OKEND-OF-BUFFER", framed.toString(CP280));
+	}
+
+	// ==================== LENGTH mode Tests ====================
+
+	@Test
+	@DisplayName("length - header and payload split across buffers are re-assembled")
+	void testLength_splitFrame() {
+		RecordParser parser = newParser(SocketFraming.Mode.LENGTH, 1024);
+		Buffer frame = lengthFrame("SAL   ");
+
+		parser.handle(frame.getBuffer(0, 2));
+		parser.handle(frame.getBuffer(2, 7));
+		parser.handle(frame.getBuffer(7, frame.length()));
+
+		assertEquals(List.of("SAL   "), frames);
+	}
+
+	@Test
+	@DisplayName("length - several frames in one buffer are split")
+	void testLength_mergedFrames() {
+		RecordParser parser = newParser(SocketFraming.Mode.LENGTH, 1024);
+
+		parser.handle(lengthFrame("SAL").appendBuffer(lengthFrame("LIS2023-01-012023-01-31")));
+
+		assertEquals(List.of("SAL", "LIS2023-01-012023-01-31"), frames);
+	}
+
+	@Test
+	@DisplayName("length - invalid length header is reported as error")
+	void testLength_invalidHeader() {
+		RecordParser parser = newParser(SocketFraming.Mode.LENGTH, 10);
+
+		parser.handle(Buffer.buffer().appendInt(11));
+
+		assertTrue(frames.isEmpty());
+		assertEquals(1, errors.size());
+	}
+
+	@Test
+	@DisplayName("length - reply is prefixed with its length")
+	void testLength_frameReply() {
+		SocketFraming framing = new SocketFraming(SocketFraming.Mode.LENGTH, null, CP280, 1024);
+
+		Buffer framed = framing.frame(cp280("0OK"));
+
+		assertEquals(3, framed.getInt(0));
+		assertEquals("0OK", framed.getBuffer(SocketFraming.LENGTH_HEADER_SIZE, framed.length()).toString(CP280));
+	}
+
+	// ==================== Configuration Tests ====================
+
+	@Test
+	@DisplayName("configuration - delimiter mode requires a delimiter")
+	void testConfiguration_missingDelimiter() {
+		assertThrows(IllegalArgumentException.class,
+				() -> new SocketFraming(SocketFraming.Mode.DELIMITER, "", CP280, 1024));
+	}
+
+	private RecordParser newParser(SocketFraming.Mode mode, int maxFrameSize) {
+		SocketFraming framing = new SocketFraming(mode, "END-OF-BUFFER", CP280, maxFrameSize);
+		return framing.newParser(frame -> frames.add(frame.toString(CP280)), errors::add);
+	}
+
+	private static Buffer cp280(String value) {
+		return Buffer.buffer(value.getBytes(CP280));
+	}
+
+	private static Buffer lengthFrame(String payload) {
+		Buffer body = cp280(payload);
+		return Buffer.buffer().appendInt(body.length()).appendBuffer(body);
+	}
+}
@@ -0,0 +1,95 @@
+package it.demo.fabrick.unit.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.vertx.core.buffer.Buffer;
+import it.demo.fabrick.dto.ListaTransactionDto;
+import it.demo.fabrick.utils.TransactionListReader;
+
+/**
+ * Unit tests for TransactionListReader.
+ */
+@DisplayName("TransactionListReader Tests")
+class TransactionListReaderTest {
+
+	private static final String RESPONSE = "{\"status\":\"OK\",\"error\":[],\"payload\":{\"other\":{\"list\":[1]},\"list\":["
+			+ "{\"transactionId\":\"1331714087\",\"accountingDate\":\"2019-04-01\",\"type\":{\"enumeration\":\"GBS_TRANSACTION_TYPE\","
+			+ "\"value\":\"GBS_ACCOUNT_TRANSACTION_TYPE_0034\"},\"amount\":-800,\"currency\":\"EUR\",\"description\":\"BA JOHN DOE\"},"
+			+ "{\"transactionId\":\"1331714088\",\"accountingDate\":\"2019-04-01\",\"amount\":-1.5,\"currency\":\"EUR\"}]}}";
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@Test
+	@DisplayName("copy - the elements of payload.list are copied with the JSON of ListaTransactionDto")
+	void testCopy() throws IOException {
+		StringWriter out = new StringWriter();
+		int count;
+		try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+			generator.writeStartArray();
+			count = TransactionListReader.copy(mapper, Buffer.buffer(RESPONSE), generator);
+			generator.writeEndArray();
+		}
+
+		assertEquals(2, count);
+		assertEquals("[{\"transactionId\":\"1331714087\",\"operationId\":null,\"accountingDate\":\"2019-04-01\","
+				+ "\"valueDate\":null,\"type\":{\"enumeration\":\"GBS_TRANSACTION_TYPE\","
+				+ "\"value\":\"GBS_ACCOUNT_TRANSACTION_TYPE_0034\"},\"amount\":-800.00,\"currency\":\"EUR\","
+				+ "\"description\":\"BA JOHN DOE\"},"
+				+ "{\"transactionId\":\"1331714088\",\"operationId\":null,\"accountingDate\":\"2019-04-01\","
+				+ "\"valueDate\":null,\"type\":null,\"amount\":-1.50,\"currency\":\"EUR\",\"description\":null}]",
+				out.toString());
+	}
+
+	@Test
+	@DisplayName("copy - an element has the same JSON as the transaction served from the cache or the ledger")
+	void testCopy_sameAsLocal() throws IOException {
+		StringWriter out = new StringWriter();
+		try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+			generator.writeStartArray();
+			TransactionListReader.copy(mapper, Buffer.buffer(RESPONSE), generator);
+			generator.writeEndArray();
+		}
+		// as read from the NUMERIC(18,2) column of the ledger
+		ListaTransactionDto local = TransactionListReader.read(mapper, Buffer.buffer(RESPONSE)).get(0);
+		local.setAmount(new BigDecimal("-800.00"));
+
+		assertTrue(out.toString().startsWith("[" + mapper.writeValueAsString(local) + ","), out.toString());
+	}
+
+	@Test
+	@DisplayName("read - the elements of payload.list are bound to ListaTransactionDto")
+	void testRead() throws IOException {
+		List<ListaTransactionDto> transactions = TransactionListReader.read(mapper, Buffer.buffer(RESPONSE));
+
+		assertEquals(2, transactions.size());
+		assertEquals("1331714087", transactions.get(0).getTransactionId());
+		assertEquals("GBS_ACCOUNT_TRANSACTION_TYPE_0034", transactions.get(0).getType().getValue());
+		assertEquals(new BigDecimal("-1.50"), transactions.get(1).getAmount());
+	}
+
+	@Test
+	@DisplayName("read - no payload.list, no transactions")
+	void testRead_noList() throws IOException {
+		assertEquals(0, TransactionListReader.read(mapper, Buffer.buffer("{\"status\":\"OK\",\"payload\":{}}")).size());
+	}
+
+	@Test
+	@DisplayName("read - a body that is not a JSON object fails")
+	void testRead_invalid() {
+		assertThrows(IOException.class, () -> TransactionListReader.read(mapper, Buffer.buffer("[1,2]")));
+		assertThrows(IOException.class, () -> TransactionListReader.read(mapper, Buffer.buffer("{\"payload\":{\"list\":[")));
+	}
+}
@@ -0,0 +1,77 @@
+package it.demo.fabrick.unit.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.vertx.core.buffer.Buffer;
+import it.demo.fabrick.dto.ListaTransactionDto;
+import it.demo.fabrick.utils.TransactionPages;
+
+/**
+ * Unit tests for TransactionPages.
+ */
+@DisplayName("TransactionPages Tests")
+class TransactionPagesTest {
+
+	private static final String RESPONSE = "{\"status\":\"OK\",\"payload\":{\"list\":["
+			+ "{\"transactionId\":\"1\",\"extra\":{\"a\":[1]}},{\"transactionId\":\"2\"},{\"transactionId\":\"3\"}]},\"error\":[]}";
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@Test
+	@DisplayName("of - the elements of the response are copied page by page as ListaTransactionDto, the local ones follow")
+	void testPages_responseAndLocal() throws IOException {
+		try (TransactionPages pages = TransactionPages.of(mapper, Buffer.buffer(RESPONSE), List.of(dto("4")), 2)) {
+
+			assertEquals(4, pages.total());
+			assertEquals("[" + json(dto("1")) + "," + json(dto("2")) + "]", pages.next());
+			assertTrue(pages.hasNext());
+			assertEquals("[" + json(dto("3")) + "," + json(dto("4")) + "]", pages.next());
+			assertFalse(pages.hasNext());
+		}
+	}
+
+	@Test
+	@DisplayName("of - a response with no list has only the local transactions")
+	void testPages_noList() throws IOException {
+		try (TransactionPages pages = TransactionPages.of(mapper, Buffer.buffer("{\"payload\":{}}"), List.of(), 10)) {
+
+			assertEquals(0, pages.total());
+			assertFalse(pages.hasNext());
+		}
+	}
+
+	@Test
+	@DisplayName("of - transactions already bound are paged as they are")
+	void testPages_objects() throws IOException {
+		try (TransactionPages pages = TransactionPages.of(mapper, List.of(dto("1"), dto("2"), dto("3")), 1)) {
+
+			int count = 0;
+			while (pages.hasNext()) {
+				List<?> page = mapper.readValue(pages.next(), List.class);
+				assertEquals(1, page.size());
+				count++;
+			}
+			assertEquals(3, count);
+		}
+	}
+
+	private String json(ListaTransactionDto dto) throws IOException {
+		return mapper.writeValueAsString(dto);
+	}
+
+	private static ListaTransactionDto dto(String transactionId) {
+		ListaTransactionDto dto = new ListaTransactionDto();
+		dto.setTransactionId(transactionId);
+		return dto;
+	}
+}
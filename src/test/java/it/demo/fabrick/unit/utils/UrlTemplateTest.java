@@ -0,0 +1,72 @@
+package it.demo.fabrick.unit.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import it.demo.fabrick.exception.ExceptionMessageIn;
+import it.demo.fabrick.utils.MessageLayout;
+import it.demo.fabrick.utils.UrlTemplate;
+
+/**
+ * Unit tests for UrlTemplate.
+ */
+@DisplayName("UrlTemplate Tests")
+class UrlTemplateTest {
+
+	private static final String LIS_URL = "https://sandbox.platfr.io/api/gbs/banking/v4.0/accounts/{account-number}"
+			+ "/transactions?fromAccountingDate={start-date}&toAccountingDate={end-date}";
+
+	@Test
+	@DisplayName("compile - constants are resolved once, the other placeholders kept as parameters")
+	void testCompile_constants() {
+		UrlTemplate template = UrlTemplate.compile(LIS_URL, Map.of("account-number", "14537780"));
+
+		assertEquals(List.of("start-date", "end-date"), template.getParameters());
+		assertEquals("https://sandbox.platfr.io/api/gbs/banking/v4.0/accounts/14537780/transactions"
+				+ "?fromAccountingDate=2024-01-01&toAccountingDate=2024-01-31",
+				template.expand(Map.of("start-date", "2024-01-01", "end-date", "2024-01-31")::get));
+	}
+
+	@Test
+	@DisplayName("expand - parameters from a decoded message")
+	void testExpand_decodedMessage() throws ExceptionMessageIn {
+		UrlTemplate template = UrlTemplate.compile(LIS_URL, Map.of("account-number", "14537780"));
+		MessageLayout layout = MessageLayout.compile("OPERAZIONE=3;start-date=10;end-date=10;");
+
+		String url = template.expand(layout.wrap("LIS2024-01-012024-01-31"));
+
+		assertEquals("https://sandbox.platfr.io/api/gbs/banking/v4.0/accounts/14537780/transactions"
+				+ "?fromAccountingDate=2024-01-01&toAccountingDate=2024-01-31", url);
+	}
+
+	@Test
+	@DisplayName("expand - query values and path segments are URL-encoded")
+	void testExpand_encoding() {
+		UrlTemplate template = UrlTemplate.compile("https://api.example.com/{name}/search?q={query}&x=1");
+
+		String url = template.expand(Map.of("name", "a b/c", "query", "a b&c=d")::get);
+
+		assertEquals("https://api.example.com/a%20b%2Fc/search?q=a+b%26c%3Dd&x=1", url);
+	}
+
+	@Test
+	@DisplayName("expand - missing values are expanded as empty strings")
+	void testExpand_missingValue() {
+		UrlTemplate template = UrlTemplate.compile("https://api.example.com/items?from={from}");
+
+		assertEquals("https://api.example.com/items?from=", template.expand(Map.<String, String>of()::get));
+	}
+
+	@Test
+	@DisplayName("expand - template without placeholders is returned as it is")
+	void testExpand_noPlaceholders() {
+		UrlTemplate template = UrlTemplate.compile("https://api.example.com/{}/list");
+
+		assertEquals("https://api.example.com/{}/list", template.expand(name -> "x"));
+	}
+}
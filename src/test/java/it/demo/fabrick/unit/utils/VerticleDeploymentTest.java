@@ -0,0 +1,76 @@
+package it.demo.fabrick.unit.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.ThreadingModel;
+import it.demo.fabrick.utils.VerticleDeployment;
+
+/**
+ * Unit tests for VerticleDeployment.
+ */
+@DisplayName("VerticleDeployment Tests")
+class VerticleDeploymentTest {
+
+	private final Map<String, Object> properties = new HashMap<>();
+
+	@Test
+	@DisplayName("options - defaults: given instances on the event loop")
+	void testOptions_defaults() {
+		DeploymentOptions options = VerticleDeployment.options(environment(), "saldoVerticle", 1);
+
+		assertEquals(1, options.getInstances());
+		assertEquals(ThreadingModel.EVENT_LOOP, options.getThreadingModel());
+		assertNull(options.getWorkerPoolName());
+	}
+
+	@Test
+	@DisplayName("options - 0 instances means one per core")
+	void testOptions_instancesPerCore() {
+		properties.put("verticle.saldoVerticle.instances", "0");
+
+		DeploymentOptions options = VerticleDeployment.options(environment(), "saldoVerticle", 1);
+
+		assertEquals(Runtime.getRuntime().availableProcessors(), options.getInstances());
+	}
+
+	@Test
+	@DisplayName("options - worker model with a dedicated pool")
+	void testOptions_workerPool() {
+		properties.put("verticle.bonificoVerticle.instances", "4");
+		properties.put("verticle.bonificoVerticle.threadingModel", "WORKER");
+		properties.put("verticle.bonificoVerticle.workerPoolSize", "8");
+
+		DeploymentOptions options = VerticleDeployment.options(environment(), "bonificoVerticle", 1);
+
+		assertEquals(4, options.getInstances());
+		assertEquals(ThreadingModel.WORKER, options.getThreadingModel());
+		assertEquals("bonificoVerticle-worker", options.getWorkerPoolName());
+		assertEquals(8, options.getWorkerPoolSize());
+	}
+
+	@Test
+	@DisplayName("options - unknown threading model is rejected")
+	void testOptions_invalidThreadingModel() {
+		properties.put("verticle.saldoVerticle.threadingModel", "THREAD_POOL");
+
+		assertThrows(IllegalArgumentException.class,
+				() -> VerticleDeployment.options(environment(), "saldoVerticle", 1));
+	}
+
+	private StandardEnvironment environment() {
+		StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources().addFirst(new MapPropertySource("test", properties));
+		return environment;
+	}
+}
@@ -0,0 +1,109 @@
+package it.demo.fabrick.unit.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.buffer.Buffer;
+import it.demo.fabrick.utils.WireCodec;
+
+/**
+ * Unit tests for WireCodec.
+ * Tests the table driven cp280 codec against the JDK charset and the UTF-8 fallback.
+ */
+@DisplayName("WireCodec Tests")
+class WireCodecTest {
+
+	private static final Charset CP280 = Charset.forName("cp280");
+
+	private final WireCodec cp280 = WireCodec.forName("cp280");
+	private final WireCodec utf8 = WireCodec.forName("UTF-8");
+
+	// ==================== cp280 Tests ====================
+
+	@Test
+	@DisplayName("cp280 - decoding every byte matches the JDK charset")
+	void testCp280_decodeAllBytes() {
+		byte[] bytes = new byte[256];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) i;
+		}
+		Buffer buffer = Buffer.buffer(bytes);
+
+		assertEquals(new String(bytes, CP280), cp280.decode(buffer, 0, bytes.length));
+		assertEquals(new String(bytes, CP280), cp280.decode(buffer).toString());
+	}
+
+	@Test
+	@DisplayName("cp280 - encoding matches the JDK charset")
+	void testCp280_encode() {
+		String text = "0balance: 1000.50 EUR, àèéìòù £ § [requestId] {x}";
+
+		Buffer encoded = cp280.encode(text);
+
+		assertArrayEquals(text.getBytes(CP280), encoded.getBytes());
+	}
+
+	@Test
+	@DisplayName("cp280 - unmappable characters are replaced like the JDK charset")
+	void testCp280_encodeUnmappable() {
+		String text = "price 10€ ✓";
+
+		Buffer encoded = cp280.encode(text);
+
+		assertArrayEquals(text.getBytes(CP280), encoded.getBytes());
+	}
+
+	@Test
+	@DisplayName("cp280 - fixed-width field decoded from the buffer")
+	void testCp280_decodeField() {
+		Buffer buffer = Buffer.buffer("LIS2023-01-012023-01-31".getBytes(CP280));
+
+		assertEquals("2023-01-01", cp280.decode(buffer, 3, 13));
+		assertEquals("2023-01-31", cp280.decode(buffer).subSequence(13, 23).toString());
+	}
+
+	@Test
+	@DisplayName("cp280 - decoded frame is a view on the buffer")
+	void testCp280_decodeView() {
+		Buffer buffer = Buffer.buffer("SAL   ".getBytes(CP280));
+
+		CharSequence frame = cp280.decode(buffer);
+
+		assertFalse(frame instanceof String);
+		assertEquals(6, frame.length());
+		assertEquals('S', frame.charAt(0));
+		assertEquals("AL", frame.subSequence(1, 3).toString());
+	}
+
+	@Test
+	@DisplayName("cp280 - encode appends to the given buffer")
+	void testCp280_encodeAppends() {
+		Buffer out = Buffer.buffer().appendInt(3);
+
+		cp280.encode("0OK", out);
+
+		assertEquals(7, out.length());
+		assertEquals("0OK", cp280.decode(out, 4, 7));
+	}
+
+	// ==================== UTF-8 Tests ====================
+
+	@Test
+	@DisplayName("UTF-8 - round trip with multi-byte characters")
+	void testUtf8_roundTrip() {
+		String text = "0transfer to Müller 10€";
+
+		Buffer encoded = utf8.encode(text);
+
+		assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), encoded.getBytes());
+		assertEquals(text, utf8.decode(encoded).toString());
+		assertEquals(StandardCharsets.UTF_8, utf8.charset());
+	}
+}
@@ -2,10 +2,15 @@ package it.demo.fabrick.unit.verticle;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.lang.reflect.Field;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -20,6 +25,16 @@ import org.mockito.quality.Strictness;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.impl.ContextInternal;
+import it.demo.fabrick.client.FabrickClients;
+import it.demo.fabrick.dto.ErrorCode;
+import it.demo.fabrick.dto.OperationRequest;
+import it.demo.fabrick.resilience.CircuitBreakers;
+import it.demo.fabrick.unit.testutil.VerticleTestUtils;
+import it.demo.fabrick.utils.Deadline;
+import it.demo.fabrick.utils.MessageLayout;
+import it.demo.fabrick.utils.UrlTemplate;
 import it.demo.fabrick.vertx.BonificoVerticle;
 
 @MockitoSettings(strictness = Strictness.LENIENT)
@@ -37,6 +52,12 @@ class BonificoVerticleTest {
 	@Mock
 	private EventBus eventBus;
 
+	@Mock
+	private FabrickClients fabrickClients;
+
+	@Mock
+	private CircuitBreakers circuitBreakers;
+
 	@InjectMocks
 	private BonificoVerticle verticle;
 
@@ -67,7 +88,7 @@ class BonificoVerticleTest {
 
 		verticle.start(startPromise);
 
-		verify(eventBus).consumer(any(), any());
+		verify(eventBus).localConsumer(any(), any());
 	}
 
 	@Test
@@ -80,7 +101,7 @@ class BonificoVerticleTest {
 		// If start() completes without exception, the promise should be succeeded
 		// Note: In the actual implementation, start() doesn't explicitly call startFuture.complete()
 		// but the verticle should still initialize properly
-		verify(eventBus).consumer(any(), any());
+		verify(eventBus).localConsumer(any(), any());
 	}
 
 	// ==================== Configuration Tests ====================
@@ -115,4 +136,36 @@ class BonificoVerticleTest {
 		String authSchema = (String) authSchemaField.get(verticle);
 		assertEquals(TEST_AUTH_SCHEMA, authSchema, "Auth schema should be injected correctly");
 	}
+
+	// ==================== Deadline Tests ====================
+
+	@Test
+	@DisplayName("lanciaChiamataEsterna - a budget too short for the transfer rejects it before sending")
+	void testLanciaChiamataEsterna_budgetTooShort() throws Exception {
+		String messageIn = "BON" + String.format("%-20s", "John Doe") + "IT23A0336844430152923804660"
+				+ "SELBIT2BXXX" + String.format("%-30s", "Payment invoice 75/2017")
+				+ "00000000000000100.50" + "EUR" + "SHA";
+		Message<Object> message = VerticleTestUtils.mockMessage(new OperationRequest(
+				"https://api.example.com/money-transfers",
+				MessageLayout.compile("OPERAZIONE=3;creditor-name=20;accountCode=27;bicCode=11;description=30;"
+						+ "amount=NUM20;currency=3;feeType=3;").wrap(messageIn),
+				UrlTemplate.compile("https://api.example.com/money-transfers")));
+
+		// the request runs on its own duplicated context, with 20 s left
+		Vertx realVertx = Vertx.vertx();
+		try {
+			CompletableFuture<Void> done = new CompletableFuture<>();
+			((ContextInternal) realVertx.getOrCreateContext()).duplicate().runOnContext(v -> {
+				Deadline.start(20000);
+				verticle.lanciaChiamataEsterna(message);
+				done.complete(null);
+			});
+			done.get(5, TimeUnit.SECONDS);
+		} finally {
+			realVertx.close();
+		}
+
+		verify(message).fail(eq(ErrorCode.TIMEOUT_ERROR.getCode()), startsWith("Not enough time left"));
+		verifyNoInteractions(circuitBreakers);
+	}
 }
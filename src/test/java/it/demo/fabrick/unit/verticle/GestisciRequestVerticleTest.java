@@ -1,20 +1,37 @@
 package it.demo.fabrick.unit.verticle;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Map;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import it.demo.fabrick.config.ConfigurationHolder;
+import it.demo.fabrick.config.OperationConfig;
+import it.demo.fabrick.dto.OperationRequest;
+import it.demo.fabrick.resilience.Bulkheads;
+import it.demo.fabrick.unit.testutil.VerticleTestUtils;
+import it.demo.fabrick.utils.MessageLayout;
+import it.demo.fabrick.utils.UrlTemplate;
 import it.demo.fabrick.vertx.GestisciRequestVerticle;
 
 /**
@@ -30,12 +47,18 @@ class GestisciRequestVerticleTest {
 	@Mock
 	private EventBus eventBus;
 
+	@Mock
+	private ConfigurationHolder configurationHolder;
+
+	@Spy
+	private Bulkheads bulkheads = new Bulkheads(new SimpleMeterRegistry());
+
 	@InjectMocks
 	private GestisciRequestVerticle verticle;
 
 	@BeforeEach
 	void setUp() {
-		when(vertx.eventBus()).thenReturn(eventBus);
+		lenient().when(vertx.eventBus()).thenReturn(eventBus);
 	}
 
 	// ==================== start() Tests ====================
@@ -47,6 +70,64 @@ class GestisciRequestVerticleTest {
 
 		verticle.start(startPromise);
 
-		verify(eventBus).consumer(any(), any());
+		verify(eventBus).localConsumer(any(), any());
+	}
+
+	// ==================== gestisciChiamata() Tests ====================
+
+	@Test
+	@DisplayName("gestisciChiamata - operation in the snapshot is routed with no configuration lookup")
+	void testGestisciChiamata_fromSnapshot() {
+		when(configurationHolder.getOperation("LIS")).thenReturn(new OperationConfig("LIS", "lista_bus",
+				MessageLayout.compile("OPERAZIONE=3;start-date=10;end-date=10;"),
+				UrlTemplate.compile("https://api.example.com/{account-number}/transactions?from={start-date}",
+						Map.of("account-number", "123"))));
+		Message<Object> message = VerticleTestUtils.mockMessage("LIS2024-01-012024-01-31");
+
+		verticle.gestisciChiamata(message);
+
+		verify(eventBus).request(eq("lista_bus"), any(OperationRequest.class), any(DeliveryOptions.class), any());
+		verify(eventBus, never()).request(eq("get-configurazione-bus"), any(), any(DeliveryOptions.class), any());
+	}
+
+	@Test
+	@DisplayName("gestisciChiamata - operation not in the snapshot falls back to get-configurazione-bus")
+	void testGestisciChiamata_fallback() {
+		Message<Object> message = VerticleTestUtils.mockMessage("SAL");
+
+		verticle.gestisciChiamata(message);
+
+		verify(eventBus).request(eq("get-configurazione-bus"), eq("SAL"), any(DeliveryOptions.class), any());
+	}
+
+	@Test
+	@DisplayName("gestisciChiamata - message shorter than the layout fails with VALIDATION_ERROR")
+	void testGestisciChiamata_shortMessage() {
+		when(configurationHolder.getOperation("LIS")).thenReturn(new OperationConfig("LIS", "lista_bus",
+				MessageLayout.compile("OPERAZIONE=3;start-date=10;end-date=10;"),
+				UrlTemplate.compile("https://api.example.com/transactions")));
+		Message<Object> message = VerticleTestUtils.mockMessage("LIS2024");
+
+		verticle.gestisciChiamata(message);
+
+		verify(message).fail(eq(1000), anyString());
+		verify(eventBus, never()).request(eq("lista_bus"), any(), any(DeliveryOptions.class), any());
+	}
+
+	@Test
+	@DisplayName("gestisciChiamata - operation bulkhead full fails with OVERLOAD_ERROR")
+	void testGestisciChiamata_bulkheadFull() {
+		when(configurationHolder.getOperation("LIS")).thenReturn(new OperationConfig("LIS", "lista_bus",
+				MessageLayout.compile("OPERAZIONE=3;start-date=10;end-date=10;"),
+				UrlTemplate.compile("https://api.example.com/transactions"), 1, 0));
+		Message<Object> first = VerticleTestUtils.mockMessage("LIS2024-01-012024-01-31");
+		Message<Object> second = VerticleTestUtils.mockMessage("LIS2024-02-012024-02-29");
+
+		// the first call never completes and keeps the only slot
+		verticle.gestisciChiamata(first);
+		verticle.gestisciChiamata(second);
+
+		verify(eventBus).request(eq("lista_bus"), any(OperationRequest.class), any(DeliveryOptions.class), any());
+		verify(second).fail(eq(1006), anyString());
 	}
 }
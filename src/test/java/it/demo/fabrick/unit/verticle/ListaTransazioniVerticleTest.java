@@ -1,23 +1,52 @@
 package it.demo.fabrick.unit.verticle;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.lang.reflect.Field;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import io.vertx.ext.web.client.HttpResponse;
+import it.demo.fabrick.cache.TransactionCache;
+import it.demo.fabrick.client.FabrickClients;
+import it.demo.fabrick.dto.ListaTransactionDto;
+import it.demo.fabrick.dto.OperationRequest;
+import it.demo.fabrick.dto.OperationResult;
+import it.demo.fabrick.ledger.TransactionLedger;
+import it.demo.fabrick.resilience.SingleFlight;
+import it.demo.fabrick.unit.testutil.VerticleTestUtils;
+import it.demo.fabrick.utils.DecodedMessage;
+import it.demo.fabrick.utils.MessageLayout;
+import it.demo.fabrick.utils.UrlTemplate;
 import it.demo.fabrick.vertx.ListaTransazioniVerticle;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
@@ -36,11 +65,32 @@ class ListaTransazioniVerticleTest {
 	@Mock
 	private EventBus eventBus;
 
+	@Mock
+	private FabrickClients fabrickClients;
+
+	@Mock
+	private SingleFlight singleFlight;
+
+	@Mock
+	private TransactionLedger transactionLedger;
+
+	@Spy
+	private TransactionCache transactionCache = new TransactionCache(new SimpleMeterRegistry(), 3, 1000,
+			Clock.fixed(Instant.parse("2024-03-10T12:00:00Z"), ZoneOffset.UTC));
+
 	@InjectMocks
 	private ListaTransazioniVerticle verticle;
 
 	private static final String TEST_API_KEY = "test-api-key-12345";
 	private static final String TEST_AUTH_SCHEMA = "S2S";
+	private static final String TEST_ACCOUNT_ID = "14537780";
+
+	private static ListaTransactionDto transaction(String id) {
+		ListaTransactionDto transaction = new ListaTransactionDto();
+		transaction.setTransactionId(id);
+		transaction.setAccountingDate("2024-01-01");
+		return transaction;
+	}
 
 	@BeforeEach
 	void setUp() throws Exception {
@@ -54,6 +104,10 @@ class ListaTransazioniVerticleTest {
 		authSchemaField.setAccessible(true);
 		authSchemaField.set(verticle, TEST_AUTH_SCHEMA);
 
+		Field accountIdField = ListaTransazioniVerticle.class.getDeclaredField("accountId");
+		accountIdField.setAccessible(true);
+		accountIdField.set(verticle, TEST_ACCOUNT_ID);
+
 		when(vertx.eventBus()).thenReturn(eventBus);
 	}
 
@@ -66,7 +120,100 @@ class ListaTransazioniVerticleTest {
 
 		verticle.start(startPromise);
 
-		verify(eventBus).consumer(any(), any());
+		verify(eventBus).localConsumer(any(), any());
+	}
+
+	// ==================== Transaction cache Tests ====================
+
+	@Test
+	@DisplayName("lanciaChiamataEsterna - closed days all cached are served without calling Fabrick, newest first")
+	void testLanciaChiamataEsterna_servedFromCache() throws Exception {
+		transactionCache.put(TEST_ACCOUNT_ID, LocalDate.of(2024, 1, 1), List.of(transaction("T1")));
+		transactionCache.put(TEST_ACCOUNT_ID, LocalDate.of(2024, 1, 2), List.of());
+		transactionCache.put(TEST_ACCOUNT_ID, LocalDate.of(2024, 1, 3), List.of(transaction("T3")));
+
+		DecodedMessage messageIn = MessageLayout.compile("OPERAZIONE=3;start-date=10;end-date=10;")
+				.wrap("LIS2024-01-012024-01-03");
+		Message<Object> message = VerticleTestUtils.mockMessage(new OperationRequest(
+				"https://api.example.com/transactions?fromAccountingDate=2024-01-01&toAccountingDate=2024-01-03",
+				messageIn, UrlTemplate.compile(
+						"https://api.example.com/transactions?fromAccountingDate={start-date}&toAccountingDate={end-date}")));
+
+		verticle.lanciaChiamataEsterna(message);
+
+		ArgumentCaptor<Object> reply = ArgumentCaptor.forClass(Object.class);
+		verify(message).reply(reply.capture());
+		String payload = ((OperationResult) reply.getValue()).getPayload();
+		assertTrue(payload.indexOf("T3") < payload.indexOf("T1"), payload);
+		verifyNoInteractions(fabrickClients);
+	}
+
+	@Test
+	@DisplayName("lanciaChiamataEsterna - only the days not cached are read from Fabrick, the closed ones are cached")
+	@SuppressWarnings("unchecked")
+	void testLanciaChiamataEsterna_incrementalFetch() throws Exception {
+		transactionCache.put(TEST_ACCOUNT_ID, LocalDate.of(2024, 3, 1), List.of(transaction("T1")));
+
+		HttpResponse<Buffer> response = mock(HttpResponse.class);
+		when(response.statusCode()).thenReturn(200);
+		when(response.body()).thenReturn(Buffer.buffer("{\"status\":\"OK\",\"payload\":{\"list\":["
+				+ "{\"transactionId\":\"T9\",\"accountingDate\":\"2024-03-09\"},"
+				+ "{\"transactionId\":\"T2\",\"accountingDate\":\"2024-03-02\"}]}}"));
+		when(singleFlight.execute(any(), any(), anyLong(), any())).thenReturn(Future.succeededFuture(response));
+
+		DecodedMessage messageIn = MessageLayout.compile("OPERAZIONE=3;start-date=10;end-date=10;")
+				.wrap("LIS2024-03-012024-03-10");
+		Message<Object> message = VerticleTestUtils.mockMessage(new OperationRequest(
+				"https://api.example.com/transactions?fromAccountingDate=2024-03-01&toAccountingDate=2024-03-10",
+				messageIn, UrlTemplate.compile(
+						"https://api.example.com/transactions?fromAccountingDate={start-date}&toAccountingDate={end-date}")));
+
+		verticle.lanciaChiamataEsterna(message);
+
+		verify(singleFlight).execute(eq("LIS"),
+				eq("https://api.example.com/transactions?fromAccountingDate=2024-03-02&toAccountingDate=2024-03-10"), anyLong(), any());
+		ArgumentCaptor<Object> reply = ArgumentCaptor.forClass(Object.class);
+		verify(message).reply(reply.capture());
+		String payload = ((OperationResult) reply.getValue()).getPayload();
+		assertTrue(payload.indexOf("T9") < payload.indexOf("T2") && payload.indexOf("T2") < payload.indexOf("T1"), payload);
+		// closed days (before 2024-03-08) cached, also the empty ones; open days not cached
+		assertEquals(1, transactionCache.get(TEST_ACCOUNT_ID, LocalDate.of(2024, 3, 2)).size());
+		assertTrue(transactionCache.get(TEST_ACCOUNT_ID, LocalDate.of(2024, 3, 7)).isEmpty());
+		assertNull(transactionCache.get(TEST_ACCOUNT_ID, LocalDate.of(2024, 3, 9)));
+	}
+
+	@Test
+	@DisplayName("lanciaChiamataEsterna - the complete days come from the ledger, only the open ones from Fabrick")
+	@SuppressWarnings("unchecked")
+	void testLanciaChiamataEsterna_servedFromLedger() throws Exception {
+		ListaTransactionDto fromLedger = transaction("L1");
+		fromLedger.setAccountingDate("2024-02-15");
+		when(transactionLedger.covers(LocalDate.of(2024, 2, 1))).thenReturn(true);
+		when(transactionLedger.getCompleteUntil()).thenReturn(LocalDate.of(2024, 3, 7));
+		when(transactionLedger.read(TEST_ACCOUNT_ID, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 3, 7)))
+				.thenReturn(Future.succeededFuture(List.of(fromLedger)));
+
+		HttpResponse<Buffer> response = mock(HttpResponse.class);
+		when(response.statusCode()).thenReturn(200);
+		when(response.body()).thenReturn(Buffer.buffer("{\"status\":\"OK\",\"payload\":{\"list\":["
+				+ "{\"transactionId\":\"F9\",\"accountingDate\":\"2024-03-09\"}]}}"));
+		when(singleFlight.execute(any(), any(), anyLong(), any())).thenReturn(Future.succeededFuture(response));
+
+		DecodedMessage messageIn = MessageLayout.compile("OPERAZIONE=3;start-date=10;end-date=10;")
+				.wrap("LIS2024-02-012024-03-10");
+		Message<Object> message = VerticleTestUtils.mockMessage(new OperationRequest(
+				"https://api.example.com/transactions?fromAccountingDate=2024-02-01&toAccountingDate=2024-03-10",
+				messageIn, UrlTemplate.compile(
+						"https://api.example.com/transactions?fromAccountingDate={start-date}&toAccountingDate={end-date}")));
+
+		verticle.lanciaChiamataEsterna(message);
+
+		verify(singleFlight).execute(eq("LIS"),
+				eq("https://api.example.com/transactions?fromAccountingDate=2024-03-08&toAccountingDate=2024-03-10"), anyLong(), any());
+		ArgumentCaptor<Object> reply = ArgumentCaptor.forClass(Object.class);
+		verify(message).reply(reply.capture());
+		String payload = ((OperationResult) reply.getValue()).getPayload();
+		assertTrue(payload.indexOf("F9") >= 0 && payload.indexOf("F9") < payload.indexOf("L1"), payload);
 	}
 
 	// ==================== Configuration Tests ====================
@@ -18,6 +18,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.EventBus;
+import it.demo.fabrick.client.FabrickClients;
 import it.demo.fabrick.vertx.SaldoVerticle;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
@@ -36,6 +37,9 @@ class SaldoVerticleTest {
 	@Mock
 	private EventBus eventBus;
 
+	@Mock
+	private FabrickClients fabrickClients;
+
 	@InjectMocks
 	private SaldoVerticle verticle;
 
@@ -66,7 +70,8 @@ class SaldoVerticleTest {
 
 		verticle.start(startPromise);
 
-		verify(eventBus).consumer(any(), any());
+		verify(fabrickClients).create(vertx);
+		verify(eventBus).localConsumer(any(), any());
 	}
 
 	// ==================== Configuration Tests ====================
@@ -1,8 +1,11 @@
 package it.demo.fabrick.unit.verticle;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
+import java.lang.reflect.Field;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -10,6 +13,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
 
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.EventBus;
@@ -20,6 +25,7 @@ import it.demo.fabrick.vertx.SocketServerVerticle;
 /**
  * Unit tests for SocketServerVerticle.
  */
+@MockitoSettings(strictness = Strictness.LENIENT)
 @ExtendWith(MockitoExtension.class)
 @DisplayName("SocketServerVerticle Tests")
 class SocketServerVerticleTest {
@@ -37,7 +43,15 @@ class SocketServerVerticleTest {
 	private SocketServerVerticle verticle;
 
 	@BeforeEach
-	void setUp() {
+	void setUp() throws Exception {
+		// Set framing configuration using reflection since it's @Value injected
+		setField("charset", "cp280");
+		setField("framing", "DELIMITER");
+		setField("delimiter", "END-OF-BUFFER");
+		setField("maxFrameSize", 65536);
+		setField("correlationIdLength", 0);
+		setField("maxInFlightPerConnection", 1000);
+
 		when(vertx.createNetServer(any(NetServerOptions.class))).thenReturn(netServer);
 		when(netServer.connectHandler(any())).thenReturn(netServer);
 		when(netServer.listen(any(io.vertx.core.Handler.class))).thenReturn(netServer);
@@ -50,4 +64,18 @@ class SocketServerVerticleTest {
 	void testStart_noExceptions() throws Exception {
 		verticle.start();
 	}
+
+	@Test
+	@DisplayName("start - invalid framing mode is rejected")
+	void testStart_invalidFramingMode() throws Exception {
+		setField("framing", "UNKNOWN");
+
+		assertThrows(IllegalArgumentException.class, () -> verticle.start());
+	}
+
+	private void setField(String name, Object value) throws Exception {
+		Field field = SocketServerVerticle.class.getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(verticle, value);
+	}
 }